@@ -0,0 +1,151 @@
+package com.kido.ucmaindemo.widget.news;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.adapter.NewsTextStyles;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.SyntheticFeedSource;
+import com.kido.ucmaindemo.widget.text.LayoutTextView;
+import com.kido.ucmaindemo.widget.text.TextLayoutCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 扁平条目{@link NewsRowView}与item_news布局的 创建、测量、布局、绘制 耗时对比，结果输出到logcat
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsRowBenchmark {
+    private static final String TAG = "NewsRowBenchmark";
+
+    private static final int ROWS = 200;
+    private static final int ROUNDS = 5;
+
+    private Context mContext;
+    private NewsTextStyles mStyles;
+    private List<FeedItem> mItems;
+    private int mWidthSpec;
+    private int mHeightSpec;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(InstrumentationRegistry.getTargetContext(), R.style.AppTheme);
+        mStyles = new NewsTextStyles(mContext);
+        mItems = SyntheticFeedSource.load("推荐", 0, ROWS);
+        int width = mContext.getResources().getDisplayMetrics().widthPixels;
+        mWidthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        mHeightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        mCanvas = new Canvas(Bitmap.createBitmap(width, 1024, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void compareWithXmlRow() {
+        long[] xml = new long[4];
+        long[] flat = new long[4];
+        for (int round = 0; round < ROUNDS; round++) { // 第一轮包含类加载和JIT，只作预热
+            long[] xmlRound = runXml();
+            long[] flatRound = runFlat();
+            if (round > 0) {
+                for (int i = 0; i < 4; i++) {
+                    xml[i] += xmlRound[i];
+                    flat[i] += flatRound[i];
+                }
+            }
+        }
+        String[] phases = {"inflate", "measure", "layout", "draw"};
+        for (int i = 0; i < 4; i++) {
+            Log.i(TAG, String.format("%-8s xml=%6dus flat=%6dus (per %d rows)", phases[i],
+                    xml[i] / (ROUNDS - 1) / 1000, flat[i] / (ROUNDS - 1) / 1000, ROWS));
+        }
+    }
+
+    /**
+     * @return 各阶段总耗时（纳秒）
+     */
+    private long[] runXml() {
+        TextLayoutCache cache = new TextLayoutCache(512 * 1024); // 每轮重新排版，与扁平条目条件相同
+        ViewGroup parent = new FrameLayout(mContext);
+        LayoutInflater inflater = LayoutInflater.from(mContext);
+        View[] rows = new View[ROWS];
+        long[] times = new long[4];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = inflater.inflate(R.layout.item_news, parent, false);
+        }
+        times[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            LayoutTextView title = (LayoutTextView) rows[i].findViewById(R.id.title);
+            title.setCache(cache);
+            title.setText(mItems.get(i).title, mStyles.title);
+            rows[i].measure(mWidthSpec, mHeightSpec);
+        }
+        times[1] = System.nanoTime() - start;
+
+        layoutAndDraw(rows, times);
+        return times;
+    }
+
+    private long[] runFlat() {
+        TextLayoutCache cache = new TextLayoutCache(512 * 1024);
+        View[] rows = new View[ROWS];
+        long[] times = new long[4];
+        long now = System.currentTimeMillis();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new NewsRowView(mContext);
+        }
+        times[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            NewsRowView row = (NewsRowView) rows[i];
+            FeedItem item = mItems.get(i);
+            row.setCache(cache);
+            row.bind(item.title, mStyles.title, NewsTextStyles.formatMeta(item, now), mStyles.meta, i % 3 == 0);
+            row.measure(mWidthSpec, mHeightSpec);
+        }
+        times[1] = System.nanoTime() - start;
+
+        layoutAndDraw(rows, times);
+        return times;
+    }
+
+    private void layoutAndDraw(View[] rows, long[] times) {
+        long start = System.nanoTime();
+        for (View row : rows) {
+            row.layout(0, 0, row.getMeasuredWidth(), row.getMeasuredHeight());
+        }
+        times[2] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (View row : rows) {
+            row.draw(mCanvas);
+        }
+        times[3] = System.nanoTime() - start;
+
+        for (View row : rows) {
+            assertTrue(row.getMeasuredHeight() > 0);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kido.ucmaindemo;
+
+import android.app.Activity;
+import android.os.AsyncTask;
+import android.support.v7.app.AlertDialog;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+
+import com.kido.ucmaindemo.feed.FeedClient;
+import com.kido.ucmaindemo.feed.FeedSource;
+import com.kido.ucmaindemo.feed.mock.FeedLoadRunner;
+import com.kido.ucmaindemo.feed.mock.MockFeedServer;
+import com.kido.ucmaindemo.utils.Logger;
+
+import java.io.IOException;
+
+/**
+ * debug包：信息流数据来自进程内的{@link MockFeedServer}，测试页多一个压测入口。release包中有同名的实现
+ *
+ * @author Kido
+ */
+public class BuildVariant {
+
+    private static MockFeedServer sMockServer;
+
+    /**
+     * 启动为news_tab_titles中的频道提供数据的模拟服务，不要在主线程调用
+     */
+    public static FeedSource createFeedSource() throws IOException {
+        return new FeedClient(getMockServer().getBaseUrl(), FeedSource.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @return 模拟服务，可以修改延迟、错误率等
+     */
+    public static synchronized MockFeedServer getMockServer() throws IOException {
+        if (sMockServer == null) {
+            String[] channels = MyApplication.getContext().getResources().getStringArray(R.array.news_tab_titles);
+            MockFeedServer server = new MockFeedServer(channels).setLatency(100, 400);
+            server.start();
+            sMockServer = server;
+        }
+        return sMockServer;
+    }
+
+    /**
+     * 在测试页的container中添加调试入口
+     */
+    public static void addTestEntries(final Activity activity, ViewGroup container) {
+        final Button button = new Button(activity);
+        button.setText(R.string.loadTest_feed);
+        button.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                runFeedLoadTest(activity, button);
+            }
+        });
+        container.addView(button, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+    }
+
+    /**
+     * 所有频道同时刷新、翻页，请求发往进程内的模拟服务
+     */
+    private static void runFeedLoadTest(final Activity activity, final Button button) {
+        final String[] channels = activity.getResources().getStringArray(R.array.news_tab_titles);
+        button.setEnabled(false);
+        button.setText(R.string.loadTest_running);
+        new AsyncTask<Void, Void, String>() {
+            @Override
+            protected String doInBackground(Void... params) {
+                try {
+                    FeedClient client = new FeedClient(getMockServer().getBaseUrl(), FeedSource.DEFAULT_PAGE_SIZE);
+                    return new FeedLoadRunner(client, channels, 5, 4).run().toString();
+                } catch (Exception e) {
+                    return e.toString();
+                }
+            }
+
+            @Override
+            protected void onPostExecute(String result) {
+                Logger.d("FeedLoadTest", "result->\n%s", result);
+                button.setEnabled(true);
+                button.setText(R.string.loadTest_feed);
+                if (!activity.isFinishing()) {
+                    new AlertDialog.Builder(activity)
+                            .setTitle(R.string.loadTest_feed)
+                            .setMessage(result)
+                            .setPositiveButton(android.R.string.ok, null)
+                            .show();
+                }
+            }
+        }.execute();
+    }
+}
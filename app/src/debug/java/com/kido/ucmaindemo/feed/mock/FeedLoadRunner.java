@@ -0,0 +1,157 @@
+package com.kido.ucmaindemo.feed.mock;
+
+import com.kido.ucmaindemo.feed.FeedClient;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.FeedItemPool;
+import com.kido.ucmaindemo.feed.FeedStreamReader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 信息流压测：每个频道一个线程，模拟用户在所有标签页上同时刷新和翻页，统计吞吐、延迟分位数和内存。
+ * <p>
+ * 每个频道执行refreshes轮，每轮先请求第0页（刷新），再依次请求pagesPerRefresh页（翻页）。
+ *
+ * @author Kido
+ */
+public class FeedLoadRunner {
+
+    private static final long MEMORY_SAMPLE_INTERVAL_MS = 20;
+
+    private final FeedClient mClient;
+    private final String[] mChannels;
+    private final int mRefreshes;
+    private final int mPagesPerRefresh;
+
+    public FeedLoadRunner(FeedClient client, String[] channels, int refreshes, int pagesPerRefresh) {
+        mClient = client;
+        mChannels = channels;
+        mRefreshes = refreshes;
+        mPagesPerRefresh = pagesPerRefresh;
+    }
+
+    /**
+     * 同步执行，不要在主线程调用
+     */
+    public Report run() throws InterruptedException {
+        final int total = mChannels.length * mRefreshes * (1 + mPagesPerRefresh);
+        final long[] latencies = new long[total];
+        final AtomicInteger latencyCount = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicLong items = new AtomicLong();
+        final AtomicLong peakHeap = new AtomicLong();
+
+        final Runtime runtime = Runtime.getRuntime();
+        long startHeap = runtime.totalMemory() - runtime.freeMemory();
+        peakHeap.set(startHeap);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                long used = runtime.totalMemory() - runtime.freeMemory();
+                if (used > peakHeap.get()) {
+                    peakHeap.set(used);
+                }
+            }
+        }, 0, MEMORY_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(mChannels.length);
+        long start = System.nanoTime();
+        for (final String channel : mChannels) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final FeedItemPool pool = new FeedItemPool(mClient.getPageSize() * 2);
+                    FeedStreamReader reader = new FeedStreamReader(pool, 10);
+                    FeedStreamReader.Sink sink = new FeedStreamReader.Sink() {
+                        @Override
+                        public void onItems(List<FeedItem> batch, boolean complete) {
+                            items.addAndGet(batch.size());
+                            pool.releaseAll(batch);
+                        }
+                    };
+                    for (int r = 0; r < mRefreshes; r++) {
+                        for (int page = 0; page <= mPagesPerRefresh; page++) {
+                            long begin = System.nanoTime();
+                            try {
+                                mClient.fetch(channel, page, reader, sink);
+                            } catch (IOException e) {
+                                errors.incrementAndGet();
+                            }
+                            latencies[latencyCount.getAndIncrement()] = System.nanoTime() - begin;
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.MINUTES);
+        long durationNanos = System.nanoTime() - start;
+        sampler.shutdownNow();
+        long endHeap = runtime.totalMemory() - runtime.freeMemory();
+
+        int count = latencyCount.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        Report report = new Report();
+        report.requests = count;
+        report.errors = errors.get();
+        report.items = items.get();
+        report.durationMs = durationNanos / 1000000;
+        report.requestsPerSecond = count * 1e9 / durationNanos;
+        report.itemsPerSecond = report.items * 1e9 / durationNanos;
+        report.p50Ms = percentile(sorted, 0.50);
+        report.p90Ms = percentile(sorted, 0.90);
+        report.p99Ms = percentile(sorted, 0.99);
+        report.maxMs = count == 0 ? 0 : sorted[count - 1] / 1e6;
+        report.startHeapKb = startHeap / 1024;
+        report.peakHeapKb = Math.max(peakHeap.get(), endHeap) / 1024;
+        report.endHeapKb = endHeap / 1024;
+        return report;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * 压测结果，延迟单位为毫秒
+     */
+    public static class Report {
+        public int requests;
+        public int errors;
+        public long items;
+        public long durationMs;
+        public double requestsPerSecond;
+        public double itemsPerSecond;
+        public double p50Ms;
+        public double p90Ms;
+        public double p99Ms;
+        public double maxMs;
+        public long startHeapKb;
+        public long peakHeapKb;
+        public long endHeapKb;
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d, errors=%d, items=%d, duration=%dms\n"
+                            + "throughput=%.1f req/s, %.0f items/s\n"
+                            + "latency p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms\n"
+                            + "heap start=%dKB, peak=%dKB, end=%dKB",
+                    requests, errors, items, durationMs, requestsPerSecond, itemsPerSecond,
+                    p50Ms, p90Ms, p99Ms, maxMs, startHeapKb, peakHeapKb, endHeapKb);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.kido.ucmaindemo.feed.mock;
+
+import com.kido.ucmaindemo.feed.FeedClient;
+import com.kido.ucmaindemo.feed.SyntheticFeedSource;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的模拟信息流服务，监听127.0.0.1上的随机端口，用于在没有真实后端的情况下测试信息流的拉取链路，只在debug包中。
+ * <p>
+ * 接口：GET /feed?channel=推荐&page=0&size=20，返回{@link com.kido.ucmaindemo.feed.FeedStreamReader}的数据格式；
+ * GET /thumb?id=123，返回按id生成的纯色BMP缩略图。
+ * 每次请求第0页视为一次刷新，该频道顶部会多出{@link #setNewItemsPerRefresh(int)}条新数据，因此翻页时可能出现重复条目，与真实服务一致。
+ * 延迟、页大小、错误率可以随时修改。不依赖Android API，可以直接在JVM单元测试中使用。
+ *
+ * @author Kido
+ */
+public class MockFeedServer implements Closeable {
+
+    public static final String PATH_FEED = FeedClient.PATH_FEED;
+    public static final String PATH_THUMB = FeedClient.PATH_THUMB;
+    public static final int THUMB_WIDTH = 160;
+    public static final int THUMB_HEIGHT = 120;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int SO_TIMEOUT_MS = 10 * 1000;
+
+    private final Set<String> mChannels;
+    private final Map<String, AtomicInteger> mHeads = new ConcurrentHashMap<>();
+    private final Random mRandom = new Random();
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    private volatile int mMinLatencyMs;
+    private volatile int mMaxLatencyMs;
+    private volatile float mErrorRate;
+    private volatile int mPageSize = 20;
+    private volatile int mNewItemsPerRefresh = 5;
+
+    private ServerSocket mServerSocket;
+    private ExecutorService mWorkers;
+    private volatile boolean mClosed;
+
+    /**
+     * @param channels 提供数据的频道，其余频道返回404
+     */
+    public MockFeedServer(String[] channels) {
+        mChannels = new HashSet<>(channels.length * 2);
+        for (String channel : channels) {
+            mChannels.add(channel);
+            mHeads.put(channel, new AtomicInteger());
+        }
+    }
+
+    /**
+     * 每个请求的延迟在[minMs, maxMs]之间均匀分布
+     */
+    public MockFeedServer setLatency(int minMs, int maxMs) {
+        mMinLatencyMs = minMs;
+        mMaxLatencyMs = Math.max(minMs, maxMs);
+        return this;
+    }
+
+    /**
+     * @param errorRate 返回503的概率，0~1
+     */
+    public MockFeedServer setErrorRate(float errorRate) {
+        mErrorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param pageSize 请求未指定size时每页的条数
+     */
+    public MockFeedServer setPageSize(int pageSize) {
+        mPageSize = pageSize;
+        return this;
+    }
+
+    public MockFeedServer setNewItemsPerRefresh(int count) {
+        mNewItemsPerRefresh = count;
+        return this;
+    }
+
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public synchronized void start() throws IOException {
+        if (mServerSocket != null) {
+            return;
+        }
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mWorkers = Executors.newCachedThreadPool();
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, "MockFeedServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mClosed = true;
+        if (mServerSocket != null) {
+            mServerSocket.close();
+            mWorkers.shutdownNow();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!mClosed) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) { // close()
+                return;
+            }
+            mWorkers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    handle(socket);
+                }
+            });
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            socket.setSoTimeout(SO_TIMEOUT_MS);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+            String requestLine = in.readLine();
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) { // 忽略请求头
+            }
+            mRequestCount.incrementAndGet();
+            simulateLatency();
+            OutputStream out = socket.getOutputStream();
+            if (mRandom.nextFloat() < mErrorRate) {
+                respond(out, 503, "Service Unavailable", "text/plain", new byte[0]);
+                return;
+            }
+            String[] parts = requestLine == null ? new String[0] : requestLine.split(" ");
+            if (parts.length < 2 || !"GET".equals(parts[0])) {
+                respond(out, 400, "Bad Request", "text/plain", new byte[0]);
+                return;
+            }
+            boolean thumb = parts[1].startsWith(PATH_THUMB + "?");
+            byte[] body = thumb ? serveThumbnail(parts[1]) : serve(parts[1]);
+            if (body == null) {
+                respond(out, 404, "Not Found", "text/plain", new byte[0]);
+            } else {
+                respond(out, 200, "OK", thumb ? "image/bmp" : "application/json; charset=utf-8", body);
+            }
+        } catch (IOException | InterruptedException ignored) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * @return 响应内容，路径或频道不存在时返回null
+     */
+    private byte[] serve(String target) throws UnsupportedEncodingException {
+        int queryStart = target.indexOf('?');
+        String path = queryStart < 0 ? target : target.substring(0, queryStart);
+        if (!PATH_FEED.equals(path) || queryStart < 0) {
+            return null;
+        }
+        String channel = null;
+        int page = 0;
+        int size = mPageSize;
+        for (String param : target.substring(queryStart + 1).split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String key = param.substring(0, eq);
+            String value = URLDecoder.decode(param.substring(eq + 1), "UTF-8");
+            try {
+                if ("channel".equals(key)) {
+                    channel = value;
+                } else if ("page".equals(key)) {
+                    page = Integer.parseInt(value);
+                } else if ("size".equals(key)) {
+                    size = Math.min(Integer.parseInt(value), MAX_PAGE_SIZE);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (channel == null || !mChannels.contains(channel)) {
+            return null;
+        }
+        AtomicInteger head = mHeads.get(channel);
+        int top = page == 0 ? head.addAndGet(mNewItemsPerRefresh) : head.get();
+        StringBuilder sb = new StringBuilder(size * 96);
+        SyntheticFeedSource.appendJson(sb, channel, page * size - top, size); // 新数据的序号为负数，越新越小
+        return sb.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return id对应的缩略图，参数错误时返回null
+     */
+    private static byte[] serveThumbnail(String target) {
+        String query = target.substring(target.indexOf('?') + 1);
+        if (!query.startsWith("id=")) {
+            return null;
+        }
+        try {
+            return makeBmp(Long.parseLong(query.substring(3)), THUMB_WIDTH, THUMB_HEIGHT);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 24位BMP，颜色由id决定，上下两半深浅不同
+     */
+    static byte[] makeBmp(long id, int width, int height) {
+        int rowBytes = (width * 3 + 3) & ~3;
+        int imageBytes = rowBytes * height;
+        byte[] bmp = new byte[54 + imageBytes];
+        bmp[0] = 'B';
+        bmp[1] = 'M';
+        putIntLE(bmp, 2, bmp.length);
+        putIntLE(bmp, 10, 54); // 像素数据偏移
+        putIntLE(bmp, 14, 40); // BITMAPINFOHEADER
+        putIntLE(bmp, 18, width);
+        putIntLE(bmp, 22, height);
+        bmp[26] = 1; // planes
+        bmp[28] = 24; // bits per pixel
+        putIntLE(bmp, 34, imageBytes);
+        int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b1;
+        for (int y = 0; y < height; y++) {
+            int shade = y < height / 2 ? 0 : 0x40; // 自下而上存储，下半部分较浅
+            int offset = 54 + y * rowBytes;
+            for (int x = 0; x < width; x++) {
+                bmp[offset++] = (byte) Math.min(255, (hash & 0xff) + shade);
+                bmp[offset++] = (byte) Math.min(255, ((hash >>> 8) & 0xff) + shade);
+                bmp[offset++] = (byte) Math.min(255, ((hash >>> 16) & 0xff) + shade);
+            }
+        }
+        return bmp;
+    }
+
+    private static void putIntLE(byte[] b, int offset, int v) {
+        b[offset] = (byte) v;
+        b[offset + 1] = (byte) (v >>> 8);
+        b[offset + 2] = (byte) (v >>> 16);
+        b[offset + 3] = (byte) (v >>> 24);
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        int min = mMinLatencyMs;
+        int max = mMaxLatencyMs;
+        int latency = max > min ? min + mRandom.nextInt(max - min + 1) : min;
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+    }
+
+    private static void respond(OutputStream out, int code, String message, String contentType, byte[] body) throws IOException {
+        String header = "HTTP/1.1 " + code + " " + message + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(header.getBytes(UTF_8));
+        out.write(body);
+        out.flush();
+    }
+}
@@ -2,23 +2,23 @@ package com.kido.ucmaindemo;
 
 import android.os.Bundle;
 import android.os.Handler;
-import android.support.design.widget.TabLayout;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
-import com.kido.ucmaindemo.adapter.TagFragmentAdapter;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.image.HeaderImageLoader;
+import com.kido.ucmaindemo.widget.NewsPageHost;
 import com.kido.ucmaindemo.widget.OnlyUcNewsLayout;
+import com.kido.ucmaindemo.widget.debug.PerfHudView;
 import com.kido.ucmaindemo.widget.main.UcNewsBarLayout;
 import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
 import com.kido.ucmaindemo.widget.main.UcNewsTabLayout;
 import com.kido.ucmaindemo.widget.main.UcNewsTitleLayout;
 import com.kido.ucmaindemo.widget.refresh.KSwipeRefreshLayout;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * 仿UC首页。此处测试代码模拟动态添加信息流页面view的情况。
  *
@@ -28,7 +28,7 @@ import java.util.List;
 public class AddViewActivity extends AppCompatActivity {
 
     private FrameLayout mRootContainer;
-    private OnlyUcNewsLayout mOnlyUcNewsLayout;
+    private NewsPageHost mNewsPageHost;
     private KSwipeRefreshLayout mRefreshLayout;
     private UcNewsTitleLayout mTitleLayout;
     private UcNewsBarLayout mBarLayout;
@@ -36,9 +36,28 @@ public class AddViewActivity extends AppCompatActivity {
     private UcNewsContentPager mContentPager;
 
     private ImageView bottomBar;
+    private PerfHudView mPerfHudView;
+
+    private NewsChannelRegistry mChannelRegistry;
+
+    private final Runnable mGoBackHomeRunnable = new Runnable() { // 复用，每次返回不必再分配
+        @Override
+        public void run() {
+            try {
+                mNewsPageHost.showHome(mHomeTerminalListener);
+                mBarLayout.openBar();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    };
 
-    private List<NewsTagFragment> mFragments;
-
+    private final NewsChannelRegistry.OnTerminalListener mHomeTerminalListener = new NewsChannelRegistry.OnTerminalListener() {
+        @Override
+        public void onTerminal() { // open header to go back home
+            mBarLayout.openBar();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,7 +66,16 @@ public class AddViewActivity extends AppCompatActivity {
         bindViews();
         initTitleAndHeader();
         initTabsAndPager();
+        initNewsPageHost();
         initRefreshLayout();
+        mPerfHudView = PerfHudView.attach(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        AppExecutors.getDefault().getMainHandler().removeCallbacks(mGoBackHomeRunnable); // 主线程Handler是共用的，不随Activity销毁
+        mChannelRegistry.release();
+        super.onDestroy();
     }
 
     private void bindViews() {
@@ -62,31 +90,47 @@ public class AddViewActivity extends AppCompatActivity {
 
     }
 
+    private void initNewsPageHost() {
+        mNewsPageHost = new NewsPageHost(mRootContainer, mRefreshLayout, mContentPager, mChannelRegistry);
+        mNewsPageHost.setOnGobackListener(new OnlyUcNewsLayout.OnGobackListener() {
+            @Override
+            public void onGoback() {
+                gobackHome();
+            }
+        });
+    }
+
     private void initTitleAndHeader() {
+        HeaderImageLoader.load((ImageView) findViewById(R.id.weather_header), R.drawable.uc_weather_block,
+                ContextCompat.getColor(this, R.color.header_placeholder));
         mTitleLayout.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                mFragments.get(mContentPager.getCurrentItem()).scrollToTop(true);
+                mChannelRegistry.getCurrentFragment().scrollToTop(true);
             }
         });
         mBarLayout.setBarStateListener(new UcNewsBarLayout.OnBarStateListener() {
             @Override
             public void onBarStartClosing() {
+                updateHudBarState(PerfHudView.BAR_CLOSING);
+                mNewsPageHost.prepareNews();
                 mContentPager.setPagingEnabled(true);
                 mRefreshLayout.setEnabled(false);
-                mFragments.get(0).setOpeningState(false);
+                mChannelRegistry.getFragment(0).setOpeningState(false);
             }
 
             @Override
             public void onBarStartOpening() {
+                updateHudBarState(PerfHudView.BAR_OPENING);
                 mContentPager.setCurrentItem(0, false);
                 mContentPager.setPagingEnabled(false);
                 mRefreshLayout.setEnabled(true);
-                mFragments.get(0).setOpeningState(true);
+                mChannelRegistry.getFragment(0).setOpeningState(true);
             }
 
             @Override
             public void onBarClosed() {
+                updateHudBarState(PerfHudView.BAR_CLOSED);
 //                bottomBar.setImageResource(R.drawable.bottom_bar_toutiao);
 //                mOnlyUcNewsLayout.setVisibility(View.VISIBLE); // 模拟动态添加View
                 gotoUcNews();
@@ -94,6 +138,7 @@ public class AddViewActivity extends AppCompatActivity {
 
             @Override
             public void onBarOpened() {
+                updateHudBarState(PerfHudView.BAR_OPENED);
 //                bottomBar.setImageResource(R.drawable.bottom_bar_home);
 //                mOnlyUcNewsLayout.setVisibility(View.GONE);// 模拟动态移除View
 //                gobackHome();
@@ -103,18 +148,7 @@ public class AddViewActivity extends AppCompatActivity {
 
     private void gotoUcNews() { //测试代码，仅供模拟测试
         try {
-            mRootContainer.removeView(mRefreshLayout);
-            if (mOnlyUcNewsLayout != null) {
-                mRootContainer.removeView(mOnlyUcNewsLayout);
-            }
-            mOnlyUcNewsLayout = new OnlyUcNewsLayout(AddViewActivity.this);
-            mOnlyUcNewsLayout.setOnGobackListener(new OnlyUcNewsLayout.OnGobackListener() {
-                @Override
-                public void onGoback() {
-                    gobackHome();
-                }
-            });
-            mRootContainer.addView(mOnlyUcNewsLayout, FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT);
+            mNewsPageHost.showNews();
         } catch (Exception e) {
             e.printStackTrace();
 
@@ -123,45 +157,22 @@ public class AddViewActivity extends AppCompatActivity {
     }
 
     private void gobackHome() { //测试代码，仅供模拟测试
-        new Handler().post(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    mRootContainer.removeView(mOnlyUcNewsLayout);
-                    mRootContainer.addView(mRefreshLayout);
-                    mBarLayout.openBar();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        });
+        Handler handler = AppExecutors.getDefault().getMainHandler();
+        handler.removeCallbacks(mGoBackHomeRunnable); // 连续返回只执行一次
+        handler.post(mGoBackHomeRunnable);
 
     }
 
 
     private void initTabsAndPager() {
         String[] newsTabTitles = getResources().getStringArray(R.array.news_tab_titles);
-        mFragments = new ArrayList<>(newsTabTitles.length);
+        mChannelRegistry = new NewsChannelRegistry(getSupportFragmentManager(), newsTabTitles);
         for (String title : newsTabTitles) {
-            mTabLayout.addTab(mTabLayout.newTab().setText(title));
-            NewsTagFragment fragment = NewsTagFragment.newInstance(title);
-            fragment.addOnRefreshListener(new KSwipeRefreshLayout.OnRefreshListener() {
-                @Override
-                public void onRefresh() {
-                    // do nothing, because something has been done inside the fragment.
-                }
-
-                @Override
-                public void onTerminal() { // open header to go back home
-                    mBarLayout.openBar();
-                }
-            });
-            mFragments.add(fragment);
+            mTabLayout.addTab(title);
         }
 
-        mTabLayout.setTabMode(TabLayout.MODE_SCROLLABLE);
         mContentPager.setupTabLayout(mTabLayout);
-        mContentPager.setAdapter(new TagFragmentAdapter(getSupportFragmentManager(), mFragments));
+        mChannelRegistry.attachTo(mContentPager, true, mHomeTerminalListener);
         mContentPager.setPagingEnabled(false);
 
     }
@@ -176,11 +187,27 @@ public class AddViewActivity extends AppCompatActivity {
 
             @Override
             public void onTerminal() { // close header to go to news list
+                updateHudRefreshState(PerfHudView.REFRESH_TERMINAL);
                 mBarLayout.closeBar();
             }
         });
     }
 
+    private void updateHudBarState(String barState) {
+        if (mPerfHudView != null) {
+            mPerfHudView.setBarState(barState);
+            if (PerfHudView.BAR_OPENED.equals(barState) || PerfHudView.BAR_CLOSED.equals(barState)) {
+                mPerfHudView.setRefreshState(PerfHudView.REFRESH_IDLE);
+            }
+        }
+    }
+
+    private void updateHudRefreshState(String refreshState) {
+        if (mPerfHudView != null) {
+            mPerfHudView.setRefreshState(refreshState);
+        }
+    }
+
     @Override
     public void onBackPressed() {
         if (mBarLayout.isClosed()) {
@@ -3,17 +3,44 @@ package com.kido.ucmaindemo;
 import android.app.Application;
 import android.content.Context;
 
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+import com.kido.ucmaindemo.utils.Logger;
+
 /**
  * @author Kido
  */
 
 public class MyApplication extends Application {
+    private static final String TAG = "MyApplication";
     private static Context sContext;
 
     @Override
     public void onCreate() {
         super.onCreate();
         sContext = this;
+        AppExecutors.getDefault(); // 之后各模块都从这里取线程池和主线程Handler
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level); // 分发给registerComponentCallbacks注册的回调
+        logTrim(level, MemoryCoordinator.getDefault().onTrimMemory(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        logTrim(MemoryCoordinator.TRIM_MEMORY_COMPLETE, MemoryCoordinator.getDefault().onLowMemory());
+    }
+
+    /**
+     * dump会遍历各组件的占用，只在debug包中做
+     */
+    private static void logTrim(int level, int stage) {
+        if (BuildConfig.DEBUG && stage != MemoryCoordinator.STAGE_NONE) {
+            Logger.d(TAG, "onTrimMemory-> level=%s, stage=%s\n%s", level, stage, MemoryCoordinator.getDefault().dump());
+        }
     }
 
     public static Context getContext() {
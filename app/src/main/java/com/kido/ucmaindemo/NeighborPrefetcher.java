@@ -0,0 +1,172 @@
+package com.kido.ucmaindemo;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.view.ViewPager;
+
+import com.kido.ucmaindemo.adapter.NewsRowPool;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.executor.CancellationToken;
+import com.kido.ucmaindemo.utils.Logger;
+import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
+
+import java.util.ArrayList;
+
+/**
+ * 左右相邻频道的空闲预取。
+ * <p>
+ * ViewPager停在第N页时，N±1页（offscreenPageLimit以内）已经创建，下一次滑动时才创建的是N±(limit+1)页。
+ * 因此在可以左右滑动时，利用主线程空闲（{@link MessageQueue.IdleHandler}）为这两页做准备：
+ * 在预取线程池中读出它们的首屏缓存数据，再逐个预先创建一屏条目view放进{@link NewsRowPool}，每次空闲只做一步。
+ * 上次滑动方向的一侧先做；拖动方向改变时取消另一侧还没做的工作，停下后重新安排。只在主线程使用。
+ *
+ * @author Kido
+ */
+public class NeighborPrefetcher implements ViewPager.OnPageChangeListener, MessageQueue.IdleHandler,
+        UcNewsContentPager.OnPagingEnabledListener {
+    private static final String TAG = "NeighborPrefetcher";
+
+    private static final class Job {
+        final int page;
+        final int direction;
+        final CancellationToken token = new CancellationToken();
+        boolean dataRequested;
+
+        Job(int page, int direction) {
+            this.page = page;
+            this.direction = direction;
+        }
+    }
+
+    private final NewsChannelRegistry mRegistry;
+    private final NewsRowPool mRowPool;
+    private final ArrayList<Job> mJobs = new ArrayList<>(2);
+    private UcNewsContentPager mPager;
+    private int mScrollState = ViewPager.SCROLL_STATE_IDLE;
+    private int mDirection = 1; // 最近一次拖动的方向，1为向右翻页
+    private boolean mIdleAdded;
+
+    public NeighborPrefetcher(NewsChannelRegistry registry, NewsRowPool rowPool) {
+        mRegistry = registry;
+        mRowPool = rowPool;
+    }
+
+    /**
+     * 改为跟随pager，原来的pager不再跟随
+     */
+    public void attach(UcNewsContentPager pager) {
+        if (mPager == pager) {
+            return;
+        }
+        if (mPager != null) {
+            mPager.removeOnPageChangeListener(this);
+            mPager.setOnPagingEnabledListener(null);
+        }
+        cancelAll();
+        mPager = pager;
+        pager.addOnPageChangeListener(this);
+        pager.setOnPagingEnabledListener(this);
+        schedule();
+    }
+
+    @Override
+    public void onPagingEnabledChanged(boolean enabled) {
+        if (enabled) {
+            schedule();
+        } else {
+            cancelAll();
+        }
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        if (mScrollState != ViewPager.SCROLL_STATE_DRAGGING) {
+            return;
+        }
+        int direction = position < mPager.getCurrentItem() ? -1 : positionOffset > 0 ? 1 : 0;
+        if (direction != 0 && direction != mDirection) {
+            mDirection = direction;
+            cancel(-direction);
+        }
+    }
+
+    @Override
+    public void onPageSelected(int position) {
+        if (mScrollState == ViewPager.SCROLL_STATE_IDLE) { // 直接跳转，没有滚动状态变化
+            schedule();
+        }
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        mScrollState = state;
+        if (state == ViewPager.SCROLL_STATE_IDLE) {
+            schedule();
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        while (!mJobs.isEmpty() && mJobs.get(0).token.isCancelled()) {
+            mJobs.remove(0);
+        }
+        if (mJobs.isEmpty()) {
+            mIdleAdded = false;
+            return false;
+        }
+        Job job = mJobs.get(0);
+        if (!job.dataRequested) {
+            job.dataRequested = true;
+            mRegistry.getFragment(job.page).prefetchData(AppExecutors.getDefault().getPrefetchPool(), job.token);
+            return true;
+        }
+        if (mRowPool.inflateOne()) {
+            return true;
+        }
+        mJobs.remove(0);
+        mIdleAdded = !mJobs.isEmpty();
+        return mIdleAdded;
+    }
+
+    /**
+     * 按当前页重新安排两侧的预取
+     */
+    private void schedule() {
+        cancelAll();
+        if (mPager == null || !mPager.isPagingEnabled() || mPager.getAdapter() == null) {
+            return;
+        }
+        int current = mPager.getCurrentItem();
+        int distance = mPager.getOffscreenPageLimit() + 1;
+        addJob(current + mDirection * distance, mDirection);
+        addJob(current - mDirection * distance, -mDirection);
+        if (!mJobs.isEmpty() && !mIdleAdded) {
+            mIdleAdded = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    private void addJob(int page, int direction) {
+        if (page >= 0 && page < mRegistry.getCount()) {
+            mJobs.add(new Job(page, direction));
+        }
+    }
+
+    private void cancel(int direction) {
+        for (int i = mJobs.size() - 1; i >= 0; i--) {
+            Job job = mJobs.get(i);
+            if (job.direction == direction) {
+                job.token.cancel();
+                mJobs.remove(i);
+                Logger.d(TAG, "cancel-> page=%s", job.page);
+            }
+        }
+    }
+
+    private void cancelAll() {
+        for (Job job : mJobs) {
+            job.token.cancel();
+        }
+        mJobs.clear();
+    }
+}
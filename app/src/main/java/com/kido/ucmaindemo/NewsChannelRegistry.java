@@ -0,0 +1,170 @@
+package com.kido.ucmaindemo;
+
+import android.support.v4.app.FragmentManager;
+
+import com.kido.ucmaindemo.adapter.NewsRowPool;
+import com.kido.ucmaindemo.adapter.TagFragmentAdapter;
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
+import com.kido.ucmaindemo.widget.refresh.KSwipeRefreshLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 新闻频道的fragment注册表。
+ * <p>
+ * 每个频道只持有一个{@link NewsTagFragment}（以及它的列表数据），首页和独立的信息流页面共用同一套fragment。
+ * 切换页面时通过{@link #attachTo(UcNewsContentPager, boolean, OnTerminalListener)}把内容从原来的ViewPager
+ * 移到新的ViewPager，而不是再创建一份。
+ * 点击标签跳到不相邻的频道时，离开的频道及其相邻频道在过渡期间暂停合并数据。
+ * 宿主可以左右滑动时，由{@link NeighborPrefetcher}在空闲时为即将创建的相邻频道预取数据和条目view。
+ * 预创建的条目view和没有view的频道数据登记在{@link MemoryCoordinator}中，内存紧张时释放；宿主销毁时需调用{@link #release()}。
+ *
+ * @author Kido
+ */
+public class NewsChannelRegistry {
+
+    private final FragmentManager mFragmentManager;
+    private final List<NewsTagFragment> mFragments;
+
+    private UcNewsContentPager mHostPager;
+    private NewsRowPool mRowPool;
+    private NeighborPrefetcher mPrefetcher;
+    private final UcNewsContentPager.OnTabJumpListener mTabJumpListener = new UcNewsContentPager.OnTabJumpListener() {
+        @Override
+        public void onTabJumpStarted(int from, int to) {
+            for (int i = Math.max(0, from - 1); i <= Math.min(from + 1, mFragments.size() - 1); i++) {
+                mFragments.get(i).setSuspended(true);
+            }
+        }
+
+        @Override
+        public void onTabJumpFinished(int to) {
+            for (NewsTagFragment fragment : mFragments) {
+                fragment.setSuspended(false);
+            }
+        }
+    };
+    private OnTerminalListener mOnTerminalListener;
+    private final MemoryCoordinator.Trimmable mRowPoolTrimmable = new MemoryCoordinator.Trimmable() {
+        @Override
+        public void onTrim(int stage) {
+            mRowPool.clear();
+        }
+
+        @Override
+        public String describe() {
+            return mRowPool.toString();
+        }
+    };
+    private final MemoryCoordinator.Trimmable mDataTrimmable = new MemoryCoordinator.Trimmable() {
+        @Override
+        public void onTrim(int stage) {
+            for (NewsTagFragment fragment : mFragments) {
+                fragment.trimData();
+            }
+        }
+
+        @Override
+        public String describe() {
+            int items = 0;
+            for (NewsTagFragment fragment : mFragments) {
+                items += fragment.getDataSize();
+            }
+            return items + " items in " + mFragments.size() + " channels";
+        }
+    };
+
+    public NewsChannelRegistry(FragmentManager fragmentManager, String[] titles) {
+        mFragmentManager = fragmentManager;
+        mFragments = new ArrayList<>(titles.length);
+        KSwipeRefreshLayout.OnRefreshListener refreshListener = new KSwipeRefreshLayout.OnRefreshListener() {
+            @Override
+            public void onRefresh() {
+                // do nothing, because something has been done inside the fragment.
+            }
+
+            @Override
+            public void onTerminal() {
+                if (mOnTerminalListener != null) {
+                    mOnTerminalListener.onTerminal();
+                }
+            }
+        };
+        for (String title : titles) {
+            NewsTagFragment fragment = NewsTagFragment.newInstance(title);
+            fragment.addOnRefreshListener(refreshListener);
+            mFragments.add(fragment);
+        }
+    }
+
+    public int getCount() {
+        return mFragments.size();
+    }
+
+    public NewsTagFragment getFragment(int position) {
+        return mFragments.get(position);
+    }
+
+    /**
+     * @return 当前宿主ViewPager所显示的fragment
+     */
+    public NewsTagFragment getCurrentFragment() {
+        return mFragments.get(mHostPager == null ? 0 : mHostPager.getCurrentItem());
+    }
+
+    public UcNewsContentPager getHostPager() {
+        return mHostPager;
+    }
+
+    /**
+     * 把所有频道内容移到指定的ViewPager中显示，原来的ViewPager会释放这些fragment。
+     *
+     * @param pager        新的宿主
+     * @param openingState fragment重新创建view时使用的opening状态
+     * @param listener     在该宿主中下拉到terminal时的回调
+     */
+    public void attachTo(UcNewsContentPager pager, boolean openingState, OnTerminalListener listener) {
+        mOnTerminalListener = listener;
+        if (mHostPager == pager) {
+            return;
+        }
+        int currentItem = 0;
+        if (mHostPager != null) {
+            currentItem = mHostPager.getCurrentItem();
+            mHostPager.setOnTabJumpListener(null);
+            mHostPager.setAdapter(null); // 销毁原宿主中的fragment view，fragment实例及数据保留
+        }
+        for (NewsTagFragment fragment : mFragments) {
+            fragment.setDefaultOpeningState(openingState);
+        }
+        if (mRowPool == null) { // 两个宿主在同一个activity中，共用
+            mRowPool = new NewsRowPool(pager.getContext());
+            mPrefetcher = new NeighborPrefetcher(this, mRowPool);
+            for (NewsTagFragment fragment : mFragments) {
+                fragment.setRowPool(mRowPool);
+            }
+            MemoryCoordinator coordinator = MemoryCoordinator.getDefault();
+            coordinator.register("row pool", MemoryCoordinator.PRIORITY_SPECULATIVE, mRowPoolTrimmable);
+            coordinator.register("channel data", MemoryCoordinator.PRIORITY_DATA, mDataTrimmable);
+        }
+        pager.setAdapter(new TagFragmentAdapter(mFragmentManager, mFragments));
+        pager.setCurrentItem(currentItem, false);
+        mHostPager = pager;
+        pager.setOnTabJumpListener(mTabJumpListener);
+        mPrefetcher.attach(pager);
+    }
+
+    /**
+     * 宿主Activity销毁时调用，不再参与内存释放
+     */
+    public void release() {
+        MemoryCoordinator.getDefault().unregister(mRowPoolTrimmable);
+        MemoryCoordinator.getDefault().unregister(mDataTrimmable);
+    }
+
+    public interface OnTerminalListener {
+        void onTerminal();
+    }
+}
@@ -2,22 +2,45 @@ package com.kido.ucmaindemo;
 
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.widget.NestedScrollView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.Toast;
 
 import com.kido.ucmaindemo.adapter.ListViewAdapter;
+import com.kido.ucmaindemo.adapter.NewsRowPool;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.executor.CancellationToken;
+import com.kido.ucmaindemo.feed.ChannelReadState;
+import com.kido.ucmaindemo.feed.FeedCache;
+import com.kido.ucmaindemo.feed.FeedSource;
+import com.kido.ucmaindemo.feed.FeedSources;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.FeedItemPool;
+import com.kido.ucmaindemo.feed.FeedListModel;
+import com.kido.ucmaindemo.feed.FeedStreamReader;
+import com.kido.ucmaindemo.feed.ReadStateStore;
+import com.kido.ucmaindemo.feed.RefreshCoordinator;
+import com.kido.ucmaindemo.feed.SyntheticFeedSource;
+import com.kido.ucmaindemo.feed.impression.ImpressionLogger;
+import com.kido.ucmaindemo.image.ThumbnailLoader;
 import com.kido.ucmaindemo.utils.Logger;
 import com.kido.ucmaindemo.widget.listView.NestedListView;
+import com.kido.ucmaindemo.widget.listView.ScrollBindPolicy;
+import com.kido.ucmaindemo.widget.news.NewsRowView;
 import com.kido.ucmaindemo.widget.refresh.KSwipeRefreshLayout;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * 新闻标签对应的fragment
@@ -25,20 +48,111 @@ import java.util.List;
  * @author Kido
  */
 public class NewsTagFragment extends Fragment {
+    private static final String TAG = "NewsTagFragment";
     private static final String KEY_TITLE = "title";
     private static final String KEY_OPENING = "opening";
 
+    private static final int FIRST_SCREEN_ITEMS = 20;
+    private static final long FIRST_SCREEN_BUDGET_NANOS = 4 * 1000 * 1000L; // 首屏同步读缓存的耗时上限
+
+    // 后台回到主线程的消息，obj为数据
+    private static final int MSG_SOURCE = 1;
+    private static final int MSG_MERGE_FRESH = 2; // arg1为1时是第一批
+    private static final int MSG_MERGE_CACHED = 3;
+
+    private static final Executor sFeedExecutor = AppExecutors.getDefault().getUiPool().newSerialExecutor();
+    private static final Handler sMainHandler = AppExecutors.getDefault().getMainHandler();
+    /**
+     * 逐批回到主线程不分配Runnable，Message取自系统的对象池
+     */
+    private final Handler mFeedHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+        @Override
+        public boolean handleMessage(Message msg) {
+            if (msg.what == MSG_SOURCE) {
+                mFeedSource = (FeedSource) msg.obj;
+                if (adapter != null) {
+                    adapter.setThumbnailSource(mFeedSource, mThumbnailViewport);
+                }
+            } else {
+                mergeOrDefer(Message.obtain(msg)); // msg分发完会被回收，留下一份
+            }
+            return true;
+        }
+    });
+    private static final FeedStreamReader sFeedReader = new FeedStreamReader(FeedItemPool.getDefault(), 10); // 只在sFeedExecutor上使用
+
     private NestedScrollView mNestedScrollView;
     private NestedListView mListView;
     private KSwipeRefreshLayout mRefreshLayout;
 
     private String mTitle = "";
     private boolean mIsOpeningState;
+    private long mSavedFirstId = -1; // 按条目id记录，期间列表有插入也能恢复到同一条
+    private int mSavedFirstTop;
     private List<KSwipeRefreshLayout.OnRefreshListener> mOnRefreshListeners = new ArrayList<>();
 
-    final ArrayList<String> dataList = new ArrayList<>();
+    private boolean mFeedRequested;
+    private CancellationToken mPrefetchToken; // 进行中的首屏预取
+    private CancellationToken mViewToken; // view销毁时取消
+    private boolean mSuspended;
+    private final List<Message> mDeferredMerges = new ArrayList<>();
+    private NewsRowPool mRowPool;
+    private ChannelReadState mReadState;
+    private ImpressionLogger mImpressionLogger;
+    private final ThumbnailLoader.Viewport mThumbnailViewport = new ThumbnailLoader.Viewport();
+    private FeedSource mFeedSource; // 后台创建完成后才有，用于取缩略图地址
+    private int mLastSeenFirst = -1;
+    private int mLastSeenCount;
+    private final RefreshCoordinator.Callback mRefreshCallback = new RefreshCoordinator.Callback() {
+        @Override
+        public void onRefreshed(List<FeedItem> items) {
+            mergeFresh(items, true); // 一次性合并，只通知一次adapter
+            finishRefreshing();
+        }
+
+        @Override
+        public void onRefreshFailed(IOException e) {
+            Logger.e(TAG, "onRefreshFailed-> channel=%s, %s", mTitle, e);
+            finishRefreshing();
+        }
+    };
+    private int mFreshInsertAt;
+
+    final FeedListModel dataModel = new FeedListModel(FeedItemPool.getDefault());
     ListViewAdapter adapter;
 
+    /**
+     * 插入发生在可见条目之前时，让可见条目保持在原来的位置，不跟着跳动；已在顶部时则直接露出新条目
+     */
+    private final FeedListModel.Observer mModelObserver = new FeedListModel.Observer() {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            FeedCache.getDefault().writeBehind(mTitle, dataModel.getItems());
+            if (mListView == null) {
+                return;
+            }
+            int headers = mListView.getHeaderViewsCount();
+            int first = mListView.getFirstVisiblePosition();
+            View firstChild = mListView.getChildAt(0);
+            int top = firstChild == null ? 0 : firstChild.getTop();
+            boolean atTop = first == 0 && top >= mListView.getPaddingTop();
+            mLastSeenFirst = -1; // 同样的可见范围可能对应了新的条目
+            adapter.prefetchTitles(positionStart, itemCount);
+            adapter.notifyDataSetChanged();
+            if (!atTop && positionStart <= first - headers) {
+                mListView.setSelectionFromTop(first + itemCount, top);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            FeedCache.getDefault().writeBehind(mTitle, dataModel.getItems());
+            if (adapter != null) {
+                adapter.notifyDataSetChanged();
+            }
+        }
+    };
+
     public static NewsTagFragment newInstance() {
         return newInstance("");
     }
@@ -57,18 +171,49 @@ public class NewsTagFragment extends Fragment {
     }
 
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mTitle = getArguments().getString(KEY_TITLE);
+        mIsOpeningState = getArguments().getBoolean(KEY_OPENING);
+        mReadState = ReadStateStore.getDefault().get(mTitle); // 首次获取时在后台加载
+        mImpressionLogger = ImpressionLogger.getDefault();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        mReadState.flush();
+        mImpressionLogger.requestFlush();
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         ViewGroup rootView = (ViewGroup) inflater.inflate(R.layout.fragment_news_tag, container, false);
+        mViewToken = new CancellationToken();
         initView(rootView);
         initData();
         return rootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        if (mListView != null) { // fragment可能被移到另一个ViewPager中重新创建view，记下滚动位置
+            int first = mListView.getFirstVisiblePosition() - mListView.getHeaderViewsCount();
+            View firstChild = mListView.getChildAt(0);
+            mSavedFirstId = first > 0 && first < dataModel.size() ? dataModel.getItemId(first) : -1;
+            mSavedFirstTop = firstChild == null ? 0 : firstChild.getTop();
+        }
+        RefreshCoordinator.get(mTitle).cancel(mRefreshCallback); // 下拉状态属于view，view销毁后结果不再需要
+        mViewToken.cancel(); // 为这个view排版的标题等不再需要
+        mListView = null;
+        adapter = null;
+        mRefreshLayout = null;
+        super.onDestroyView();
+    }
+
     private void initView(View rootView) {
-        mTitle = getArguments().getString(KEY_TITLE);
-        mIsOpeningState = getArguments().getBoolean(KEY_OPENING);
 //        mNestedScrollView = (NestedScrollView) rootView.findViewById(R.id.nested_scrollView);
         mListView = (NestedListView) rootView.findViewById(R.id.recyclerView);
         mRefreshLayout = (KSwipeRefreshLayout) rootView.findViewById(R.id.refresh_layout);
@@ -77,12 +222,7 @@ public class NewsTagFragment extends Fragment {
             @Override
             public void onRefresh() {
                 triggerOnRefresh();
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        mRefreshLayout.setRefreshing(false);
-                    }
-                }, 1500); //模拟下拉耗时
+                RefreshCoordinator.get(mTitle).refresh(mRefreshCallback);
             }
 
             @Override
@@ -93,7 +233,16 @@ public class NewsTagFragment extends Fragment {
         setOpeningState(mIsOpeningState);
     }
 
+    /**
+     * 只记录opening状态，在下次创建view时生效。同时写回参数：fragment从ViewPager移除后重新加入会再走onCreate
+     */
+    public void setDefaultOpeningState(boolean isOpening) {
+        mIsOpeningState = isOpening;
+        getArguments().putBoolean(KEY_OPENING, isOpening);
+    }
+
     public void setOpeningState(boolean isOpening) {
+        mIsOpeningState = isOpening;
         if (isOpening) {
             scrollToTop(false);
             setRefreshEnable(false);
@@ -153,9 +302,10 @@ public class NewsTagFragment extends Fragment {
 
     private void initData() {
 
-        for (int i = 0; i < 40; i++) {
-            dataList.add("This is the title. (" + mTitle + i + ")");
+        if (dataModel.isEmpty()) { // 数据跟随fragment实例，重新创建view时复用；首次从本地缓存同步读出首屏
+            dataModel.appendNew(FeedCache.getDefault().read(mTitle, FIRST_SCREEN_ITEMS, FIRST_SCREEN_BUDGET_NANOS));
         }
+        dataModel.setObserver(mModelObserver);
 //        RecyclerViewAdapter adapter = new RecyclerViewAdapter(dataList);
 //        adapter.setOnItemClickListener(new RecyclerViewAdapter.OnItemClickListener() {
 //            @Override
@@ -163,11 +313,52 @@ public class NewsTagFragment extends Fragment {
 //                Toast.makeText(getContext(), dataList.get(position), Toast.LENGTH_LONG).show();
 //            }
 //        });
-        adapter = new ListViewAdapter(getContext(), dataList);
+        adapter = new ListViewAdapter(getContext(), dataModel);
+        adapter.setReadState(mReadState);
+        adapter.setRowPool(mRowPool);
+        adapter.setCancellationToken(mViewToken);
+        final ScrollBindPolicy bindPolicy = new ScrollBindPolicy(mListView);
+        adapter.setBindPolicy(bindPolicy);
+        mListView.setOnFlingListener(bindPolicy);
+        if (mFeedSource != null) {
+            adapter.setThumbnailSource(mFeedSource, mThumbnailViewport);
+        }
+        mLastSeenFirst = -1;
         mListView.setAdapter(adapter);
+        mListView.setRecyclerListener(new AbsListView.RecyclerListener() {
+            @Override
+            public void onMovedToScrapHeap(View view) {
+                if (view instanceof NewsRowView) { // 滑出屏幕的条目不再需要缩略图
+                    ((NewsRowView) view).cancelThumbnail();
+                }
+            }
+        });
+        int savedPosition = dataModel.positionOf(mSavedFirstId);
+        if (!mIsOpeningState && savedPosition > 0) {
+            mListView.setSelectionFromTop(savedPosition + mListView.getHeaderViewsCount(), mSavedFirstTop);
+        }
+        mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                bindPolicy.onScrollStateChanged(scrollState);
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                bindPolicy.onScroll(firstVisibleItem);
+                int headers = mListView.getHeaderViewsCount();
+                mThumbnailViewport.set(firstVisibleItem - headers, firstVisibleItem + visibleItemCount - 1 - headers);
+                markVisibleSeen(firstVisibleItem, visibleItemCount);
+            }
+        });
         mListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                int dataPosition = position - mListView.getHeaderViewsCount();
+                if (dataPosition >= 0 && dataPosition < dataModel.size()
+                        && mReadState.markRead(dataModel.get(dataPosition).getOrdinal())) {
+                    adapter.notifyDataSetChanged(); // 已读的标题变灰
+                }
                 if (position % 2 == 0) {
                     addData();
                 } else {
@@ -175,16 +366,197 @@ public class NewsTagFragment extends Fragment {
                 }
             }
         });
+        if (!mFeedRequested) {
+            mFeedRequested = true;
+            loadFeedInBackground();
+        }
 
     }
 
+    /**
+     * 内存紧张时释放列表数据，只在没有view时进行；下次创建view时从本地缓存重新读出，并重新拉取最新数据
+     *
+     * @return 释放的条目数
+     */
+    public int trimData() {
+        if (mListView != null || dataModel.isEmpty()) {
+            return 0;
+        }
+        int count = dataModel.size();
+        dataModel.setObserver(null); // 不能触发写缓存，缓存中的数据就是之后要读回的
+        dataModel.remove(0, count);
+        mFeedRequested = false;
+        mLastSeenFirst = -1;
+        Logger.d(TAG, "trimData-> channel=%s, items=%s", mTitle, count);
+        return count;
+    }
+
+    public int getDataSize() {
+        return dataModel.size();
+    }
+
+    /**
+     * @param rowPool 预先创建的条目view，列表第一屏先从这里取
+     */
+    public void setRowPool(NewsRowPool rowPool) {
+        mRowPool = rowPool;
+    }
+
+    /**
+     * 预取首屏数据：在executor上读出本地缓存的首屏，回到主线程合并，之后创建view时就不必同步读缓存。
+     * 已有数据或正在预取时不做；token在后台读之前检查，取消后（包括任务被线程池丢弃后再取消）可以再次预取。可在onCreate之前调用。
+     */
+    public void prefetchData(Executor executor, final CancellationToken token) {
+        if ((mPrefetchToken != null && !mPrefetchToken.isCancelled()) || !dataModel.isEmpty()) {
+            return;
+        }
+        mPrefetchToken = token;
+        final String channel = getArguments().getString(KEY_TITLE);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<FeedItem> items = token.isCancelled() ? null
+                        : FeedCache.getDefault().read(channel, FIRST_SCREEN_ITEMS, 0);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPrefetchToken == token) {
+                            mPrefetchToken = null;
+                        }
+                        if (items != null) { // view已经创建并读过缓存的话，重复的条目会被丢弃
+                            mergeOrDefer(Message.obtain(mFeedHandler, MSG_MERGE_CACHED, items));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 把可见的条目记为已曝光，并为新进入可见范围的条目记录曝光日志；可见范围没变时直接返回
+     */
+    private void markVisibleSeen(int firstVisibleItem, int visibleItemCount) {
+        if (firstVisibleItem == mLastSeenFirst && visibleItemCount == mLastSeenCount) {
+            return;
+        }
+        int lastFirst = mLastSeenFirst;
+        int lastEnd = lastFirst < 0 ? -1 : lastFirst + mLastSeenCount;
+        mLastSeenFirst = firstVisibleItem;
+        mLastSeenCount = visibleItemCount;
+        int headers = mListView.getHeaderViewsCount();
+        int start = Math.max(0, firstVisibleItem - headers);
+        int end = Math.min(dataModel.size(), firstVisibleItem + visibleItemCount - headers);
+        int channel = mTitle.hashCode();
+        for (int i = start; i < end; i++) {
+            FeedItem item = dataModel.get(i);
+            mReadState.markSeen(item.getOrdinal());
+            int listPosition = i + headers;
+            if (listPosition < lastFirst || listPosition >= lastEnd) {
+                mImpressionLogger.log(item.id, channel, i);
+            }
+        }
+    }
+
+    /**
+     * 后台拉取并流式解析最新数据，每解析出一批就回到主线程合并，首批不必等整个数据读完；最后合并完整缓存
+     */
+    private void loadFeedInBackground() {
+        final String channel = mTitle;
+        sFeedExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<FeedItem> cached = FeedCache.getDefault().read(channel, Integer.MAX_VALUE, 0);
+                try {
+                    FeedSource source = FeedSources.getDefault();
+                    Message.obtain(mFeedHandler, MSG_SOURCE, source).sendToTarget();
+                    source.fetch(channel, 0, sFeedReader, new FeedStreamReader.Sink() {
+                        private boolean mFirstBatch = true;
+
+                        @Override
+                        public void onItems(List<FeedItem> items, boolean complete) {
+                            List<FeedItem> batch = new ArrayList<>(items); // items由解析器复用
+                            Message.obtain(mFeedHandler, MSG_MERGE_FRESH, mFirstBatch ? 1 : 0, 0, batch).sendToTarget();
+                            mFirstBatch = false;
+                        }
+                    });
+                } catch (IOException e) {
+                    Logger.e(TAG, "loadFeedInBackground-> channel=%s, failed: %s", channel, e);
+                }
+                Message.obtain(mFeedHandler, MSG_MERGE_CACHED, cached).sendToTarget();
+            }
+        });
+    }
+
+    /**
+     * 切换页面的过渡期间暂停：后台到达的数据先不合并（合并会引起列表刷新和排版预取），恢复时按到达顺序合并
+     */
+    public void setSuspended(boolean suspended) {
+        if (mSuspended == suspended) {
+            return;
+        }
+        mSuspended = suspended;
+        if (!suspended) {
+            for (int i = 0, z = mDeferredMerges.size(); i < z; i++) {
+                merge(mDeferredMerges.get(i));
+            }
+            mDeferredMerges.clear();
+        }
+    }
+
+    /**
+     * @param msg 由这里回收
+     */
+    private void mergeOrDefer(Message msg) {
+        if (mSuspended) {
+            mDeferredMerges.add(msg);
+        } else {
+            merge(msg);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(Message msg) {
+        List<FeedItem> items = (List<FeedItem>) msg.obj;
+        if (msg.what == MSG_MERGE_FRESH) {
+            mergeFresh(items, msg.arg1 == 1);
+        } else {
+            mergeCached(items);
+        }
+        msg.recycle();
+    }
+
+    /**
+     * 最新数据中没有的条目按顺序插到顶部
+     *
+     * @param firstBatch 是否为本次数据的第一批，是则从顶部开始插入，否则接在上一批之后
+     */
+    private void mergeFresh(List<FeedItem> fresh, boolean firstBatch) {
+        if (firstBatch) {
+            mFreshInsertAt = 0;
+        }
+        mFreshInsertAt += dataModel.insertNew(mFreshInsertAt, fresh);
+    }
+
+    /**
+     * 缓存中首屏之后的条目接到末尾
+     */
+    private void mergeCached(List<FeedItem> cached) {
+        dataModel.appendNew(cached);
+    }
+
+    private void finishRefreshing() {
+        if (mRefreshLayout != null) {
+            mRefreshLayout.setRefreshing(false);
+        }
+    }
+
     public void addData() {
-        int size = dataList.size();
-        for (int i = size; i < size + 5; i++) {
-            dataList.add("This is the title. (" + mTitle + i + ")");
+        int maxSeq = -1; // 刷新插到顶部的序号更大，不能用size作起点
+        for (int i = 0, n = dataModel.size(); i < n; i++) {
+            maxSeq = Math.max(maxSeq, (int) dataModel.getItemId(i));
         }
-        Toast.makeText(getContext(), "You added 5 data.", Toast.LENGTH_SHORT).show();
-        adapter.notifyDataSetChanged();
+        int added = dataModel.appendNew(SyntheticFeedSource.load(mTitle, maxSeq + 1, 5));
+        Toast.makeText(getContext(), "You added " + added + " data.", Toast.LENGTH_SHORT).show();
 
 //        mListView.setAdapter(new ListViewAdapter(getContext(), dataList));
 
@@ -1,21 +1,19 @@
 package com.kido.ucmaindemo;
 
 import android.os.Bundle;
-import android.support.design.widget.TabLayout;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 import android.widget.ImageView;
 
-import com.kido.ucmaindemo.adapter.TagFragmentAdapter;
+import com.kido.ucmaindemo.image.HeaderImageLoader;
+import com.kido.ucmaindemo.widget.debug.PerfHudView;
 import com.kido.ucmaindemo.widget.main.UcNewsBarLayout;
 import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
 import com.kido.ucmaindemo.widget.main.UcNewsTabLayout;
 import com.kido.ucmaindemo.widget.main.UcNewsTitleLayout;
 import com.kido.ucmaindemo.widget.refresh.KSwipeRefreshLayout;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  *  仿UC首页。此处测试代码模拟內嵌信息流页面view的情况。
  * @author Kido
@@ -30,10 +28,18 @@ public class PreLayoutActivity extends AppCompatActivity {
     private UcNewsContentPager mContentPager;
 
     private ImageView bottomBar;
+    private PerfHudView mPerfHudView;
 
-    private List<NewsTagFragment> mFragments;
+    private NewsChannelRegistry mChannelRegistry;
 
 
+    private final NewsChannelRegistry.OnTerminalListener mHomeTerminalListener = new NewsChannelRegistry.OnTerminalListener() {
+        @Override
+        public void onTerminal() { // open header to go back home
+            mBarLayout.openBar();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -42,6 +48,13 @@ public class PreLayoutActivity extends AppCompatActivity {
         initTitleAndHeader();
         initTabsAndPager();
         initRefreshLayout();
+        mPerfHudView = PerfHudView.attach(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        mChannelRegistry.release();
+        super.onDestroy();
     }
 
     private void bindViews() {
@@ -64,35 +77,41 @@ public class PreLayoutActivity extends AppCompatActivity {
     }
 
     private void initTitleAndHeader() {
+        HeaderImageLoader.load((ImageView) findViewById(R.id.weather_header), R.drawable.uc_weather_block,
+                ContextCompat.getColor(this, R.color.header_placeholder));
         mTitleLayout.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                mFragments.get(mContentPager.getCurrentItem()).scrollToTop(true);
+                mChannelRegistry.getCurrentFragment().scrollToTop(true);
             }
         });
         mBarLayout.setBarStateListener(new UcNewsBarLayout.OnBarStateListener() {
             @Override
             public void onBarStartClosing() {
+                updateHudBarState(PerfHudView.BAR_CLOSING);
                 mContentPager.setPagingEnabled(true);
                 mRefreshLayout.setEnabled(false);
-                mFragments.get(0).setOpeningState(false);
+                mChannelRegistry.getFragment(0).setOpeningState(false);
             }
 
             @Override
             public void onBarStartOpening() {
+                updateHudBarState(PerfHudView.BAR_OPENING);
                 mContentPager.setCurrentItem(0, false);
                 mContentPager.setPagingEnabled(false);
                 mRefreshLayout.setEnabled(true);
-                mFragments.get(0).setOpeningState(true);
+                mChannelRegistry.getFragment(0).setOpeningState(true);
             }
 
             @Override
             public void onBarClosed() {
+                updateHudBarState(PerfHudView.BAR_CLOSED);
                 bottomBar.setImageResource(R.drawable.bottom_bar_toutiao);
             }
 
             @Override
             public void onBarOpened() {
+                updateHudBarState(PerfHudView.BAR_OPENED);
                 bottomBar.setImageResource(R.drawable.bottom_bar_home);
             }
         });
@@ -101,30 +120,16 @@ public class PreLayoutActivity extends AppCompatActivity {
 
     private void initTabsAndPager() {
         String[] newsTabTitles = getResources().getStringArray(R.array.news_tab_titles);
-        mFragments = new ArrayList<>(newsTabTitles.length);
+        mChannelRegistry = new NewsChannelRegistry(getSupportFragmentManager(), newsTabTitles);
         for (String title : newsTabTitles) {
-            mTabLayout.addTab(mTabLayout.newTab().setText(title));
-            NewsTagFragment fragment = NewsTagFragment.newInstance(title);
-            fragment.addOnRefreshListener(new KSwipeRefreshLayout.OnRefreshListener() {
-                @Override
-                public void onRefresh() {
-                    // do nothing, because something has been done inside the fragment.
-                }
-
-                @Override
-                public void onTerminal() { // open header to go back home
-                    mBarLayout.openBar();
-                }
-            });
-            mFragments.add(fragment);
+            mTabLayout.addTab(title);
         }
 
-        mTabLayout.setTabMode(TabLayout.MODE_SCROLLABLE);
         mContentPager.setupTabLayout(mTabLayout);
-        mContentPager.setAdapter(new TagFragmentAdapter(getSupportFragmentManager(), mFragments));
+        mChannelRegistry.attachTo(mContentPager, true, mHomeTerminalListener);
         mContentPager.setPagingEnabled(false);
         mContentPager.setCurrentItem(0);
-        mFragments.get(0).setOpeningState(true);
+        mChannelRegistry.getFragment(0).setOpeningState(true);
 
     }
 
@@ -138,11 +143,27 @@ public class PreLayoutActivity extends AppCompatActivity {
 
             @Override
             public void onTerminal() { // close header to go to news list
+                updateHudRefreshState(PerfHudView.REFRESH_TERMINAL);
                 mBarLayout.closeBar();
             }
         });
     }
 
+    private void updateHudBarState(String barState) {
+        if (mPerfHudView != null) {
+            mPerfHudView.setBarState(barState);
+            if (PerfHudView.BAR_OPENED.equals(barState) || PerfHudView.BAR_CLOSED.equals(barState)) {
+                mPerfHudView.setRefreshState(PerfHudView.REFRESH_IDLE);
+            }
+        }
+    }
+
+    private void updateHudRefreshState(String refreshState) {
+        if (mPerfHudView != null) {
+            mPerfHudView.setRefreshState(refreshState);
+        }
+    }
+
     @Override
     public void onBackPressed() {
         if (mBarLayout.isClosed()) {
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.Button;
 
 /**
@@ -28,6 +29,7 @@ public class TestActivity extends AppCompatActivity implements View.OnClickListe
 
         mUcNewsBarButton.setOnClickListener(this);
         mOnlyUcNewsButton.setOnClickListener(this);
+        BuildVariant.addTestEntries(this, (ViewGroup) findViewById(R.id.test_container)); // debug包的调试入口
     }
 
     @Override
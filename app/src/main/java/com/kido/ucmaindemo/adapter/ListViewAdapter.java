@@ -5,11 +5,21 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
-import android.widget.TextView;
 
 import com.kido.ucmaindemo.R;
-import com.kido.ucmaindemo.utils.Logger;
-
+import com.kido.ucmaindemo.executor.CancellationToken;
+import com.kido.ucmaindemo.feed.ChannelReadState;
+import com.kido.ucmaindemo.feed.FeedSource;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.FeedListModel;
+import com.kido.ucmaindemo.image.ThumbnailLoader;
+import com.kido.ucmaindemo.image.Thumbnails;
+import com.kido.ucmaindemo.widget.listView.ScrollBindPolicy;
+import com.kido.ucmaindemo.widget.news.NewsRowView;
+import com.kido.ucmaindemo.widget.text.LayoutTextView;
+import com.kido.ucmaindemo.widget.text.TextLayoutCache;
+
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -18,15 +28,93 @@ import java.util.List;
 
 public class ListViewAdapter extends BaseAdapter {
 
-    private List<String> mItems;
+    private static final int PREFETCH_MAX = 40; // 大约两屏，再多容易在显示前就被淘汰
+    static final int TYPE_XML = 0;
+    static final int TYPE_FLAT = 1;
+
+    private FeedListModel mItems;
     private Context mContext;
     private LayoutInflater mInflater;
-
-
-    public ListViewAdapter(Context context, List<String> items) {
+    private ChannelReadState mReadState;
+    private final NewsTextStyles mStyles;
+    private int mTitleWidth; // 标题排版宽度，第一次测量后才知道
+    private boolean mFlatRows;
+    private FeedSource mThumbnailSource;
+    private ThumbnailLoader.Viewport mViewport;
+    private ScrollBindPolicy mBindPolicy;
+    private NewsRowPool mRowPool;
+    private CancellationToken mCancellationToken;
+
+    public ListViewAdapter(Context context, FeedListModel items) {
         this.mContext = context;
         this.mItems = items;
         this.mInflater = LayoutInflater.from(context);
+        this.mStyles = new NewsTextStyles(context);
+    }
+
+    /**
+     * @param readState 用于把已读的标题显示为灰色，可为null
+     */
+    public void setReadState(ChannelReadState readState) {
+        this.mReadState = readState;
+    }
+
+    /**
+     * @param flatRows 是否用{@link NewsRowView}代替item_news布局，需在setAdapter之前调用
+     */
+    public void setFlatRows(boolean flatRows) {
+        this.mFlatRows = flatRows;
+    }
+
+    /**
+     * 扁平条目显示缩略图
+     *
+     * @param source   提供缩略图地址
+     * @param viewport 列表的可见范围，用于排加载优先级
+     */
+    public void setThumbnailSource(FeedSource source, ThumbnailLoader.Viewport viewport) {
+        this.mThumbnailSource = source;
+        this.mViewport = viewport;
+        if (mFlatRows) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 快速滑动时只做轻量绑定：标题只用已缓存的排版，不显示附加信息，不加载缩略图
+     *
+     * @param policy 可为null，总是完整绑定
+     */
+    public void setBindPolicy(ScrollBindPolicy policy) {
+        this.mBindPolicy = policy;
+        if (policy != null) {
+            policy.setBinder(TYPE_XML, mXmlBinder);
+            policy.setBinder(TYPE_FLAT, mFlatBinder);
+        }
+    }
+
+    /**
+     * @param rowPool 没有可复用的条目view时先从池中取，可为null
+     */
+    public void setRowPool(NewsRowPool rowPool) {
+        this.mRowPool = rowPool;
+    }
+
+    /**
+     * @param token 取消后还没开始的标题排版预取不再进行，通常随列表view销毁而取消；可为null
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.mCancellationToken = token;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mFlatRows ? TYPE_FLAT : TYPE_XML;
     }
 
     @Override
@@ -41,33 +129,114 @@ public class ListViewAdapter extends BaseAdapter {
 
     @Override
     public long getItemId(int position) {
-        return position;
+        return mItems.getItemId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        ViewHolder holder;
-        boolean preNull = true;
+        int viewType = getItemViewType(position);
+        if (convertView == null && mRowPool != null) {
+            convertView = mRowPool.take(viewType);
+        }
         if (convertView == null) {
-            preNull = true;
-            convertView = mInflater.inflate(R.layout.item_news, null);
-            holder = new ViewHolder(convertView);
-            convertView.setTag(holder);
+            convertView = createView(mContext, mInflater, viewType);
+        }
+        if (mBindPolicy != null) {
+            mBindPolicy.bind(viewType, convertView, position);
         } else {
-            preNull = false;
-            holder = (ViewHolder) convertView.getTag();
+            (viewType == TYPE_FLAT ? mFlatBinder : mXmlBinder).bindFull(convertView, position);
         }
-
-        holder.title.setText(mItems.get(position));
-        Logger.e("kido", "getView convertView-> position=%s, hash=%s, preNull=%s", position, convertView.hashCode(), preNull);
         return convertView;
     }
 
-    public class ViewHolder {
-        public TextView title;
+    private final ScrollBindPolicy.Binder mXmlBinder = new ScrollBindPolicy.Binder() {
+        @Override
+        public void bindCheap(View view, int position) {
+            FeedItem item = mItems.get(position);
+            ((ViewHolder) view.getTag()).title.setText(item.title, getTitleStyle(item), true);
+        }
+
+        @Override
+        public void bindFull(View view, int position) {
+            ViewHolder holder = (ViewHolder) view.getTag();
+            FeedItem item = mItems.get(position);
+            holder.title.setText(item.title, getTitleStyle(item));
+            updateTitleWidth(holder.title.getTextWidth());
+        }
+    };
+
+    private final ScrollBindPolicy.Binder mFlatBinder = new ScrollBindPolicy.Binder() {
+        @Override
+        public void bindCheap(View view, int position) {
+            FeedItem item = mItems.get(position);
+            boolean hasThumbnail = mThumbnailSource != null && mThumbnailSource.hasThumbnail(item);
+            ((NewsRowView) view).bind(item.title, getTitleStyle(item), null, mStyles.meta, hasThumbnail, true);
+        }
+
+        @Override
+        public void bindFull(View view, int position) {
+            NewsRowView row = (NewsRowView) view;
+            FeedItem item = mItems.get(position);
+            String thumbnailUrl = mThumbnailSource == null ? null : mThumbnailSource.getThumbnailUrl(item);
+            row.bind(item.title, getTitleStyle(item), NewsTextStyles.formatMeta(item, System.currentTimeMillis()), mStyles.meta,
+                    thumbnailUrl != null);
+            if (thumbnailUrl != null) {
+                row.loadThumbnail(Thumbnails.getDefault(), thumbnailUrl, mViewport, position);
+            }
+            updateTitleWidth(row.getTitleWidth());
+        }
+    };
+
+    static View createView(Context context, LayoutInflater inflater, int viewType) {
+        if (viewType == TYPE_FLAT) {
+            return new NewsRowView(context);
+        }
+        View view = inflater.inflate(R.layout.item_news, null);
+        view.setTag(new ViewHolder(view));
+        return view;
+    }
+
+    private TextLayoutCache.Style getTitleStyle(FeedItem item) {
+        return mReadState != null && mReadState.isRead(item.getOrdinal()) ? mStyles.readTitle : mStyles.title;
+    }
+
+    /**
+     * @param titleWidth 复用的view才有，列表宽度变化后随之更新
+     */
+    private void updateTitleWidth(int titleWidth) {
+        if (titleWidth > 0) {
+            mTitleWidth = titleWidth;
+        }
+    }
+
+    /**
+     * 在后台为从position开始的最多{@link #PREFETCH_MAX}个未读条目的标题排版，宽度未知（尚未显示过条目）时不做
+     */
+    public void prefetchTitles(int position, int count) {
+        if (mTitleWidth == 0) {
+            return;
+        }
+        count = Math.min(count, PREFETCH_MAX);
+        List<CharSequence> titles = new ArrayList<>(count);
+        for (int i = position, end = Math.min(position + count, mItems.size()); i < end; i++) {
+            FeedItem item = mItems.get(i);
+            if (mReadState == null || !mReadState.isRead(item.getOrdinal())) {
+                titles.add(item.title);
+            }
+        }
+        TextLayoutCache.getDefault().prefetch(titles, mTitleWidth, mStyles.title, mCancellationToken);
+    }
+
+    public static class ViewHolder {
+        public LayoutTextView title;
 
         public ViewHolder(View rootView) {
-            title = (TextView) rootView.findViewById(R.id.title);
+            title = (LayoutTextView) rootView.findViewById(R.id.title);
         }
 
     }
@@ -0,0 +1,76 @@
+package com.kido.ucmaindemo.adapter;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * 预先创建好的新闻条目view，供新建的频道列表填第一屏，切换频道时省去逐个inflate。
+ * <p>
+ * 由空闲时的预取逐个创建（{@link #inflateOne()}），{@link ListViewAdapter}没有可复用的view时先从这里取。
+ * 只创建最近被取用的条目类型，各频道共用，只在主线程使用。
+ *
+ * @author Kido
+ */
+public class NewsRowPool {
+
+    private static final int MAX_PER_TYPE = 10; // 约一屏
+
+    private final Context mContext;
+    private final LayoutInflater mInflater;
+    private final SparseArray<ArrayList<View>> mViews = new SparseArray<>();
+    private int mPreferredType = ListViewAdapter.TYPE_XML;
+
+    public NewsRowPool(Context context) {
+        mContext = context;
+        mInflater = LayoutInflater.from(context);
+    }
+
+    /**
+     * @return 没有时返回null
+     */
+    public View take(int viewType) {
+        mPreferredType = viewType;
+        ArrayList<View> views = mViews.get(viewType);
+        return views == null || views.isEmpty() ? null : views.remove(views.size() - 1);
+    }
+
+    public boolean isFull() {
+        return size(mPreferredType) >= MAX_PER_TYPE;
+    }
+
+    /**
+     * 为最近取用的类型创建一个view
+     *
+     * @return 池已满时不创建，返回false
+     */
+    public boolean inflateOne() {
+        if (isFull()) {
+            return false;
+        }
+        ArrayList<View> views = mViews.get(mPreferredType);
+        if (views == null) {
+            views = new ArrayList<>(MAX_PER_TYPE);
+            mViews.put(mPreferredType, views);
+        }
+        views.add(ListViewAdapter.createView(mContext, mInflater, mPreferredType));
+        return true;
+    }
+
+    public int size(int viewType) {
+        ArrayList<View> views = mViews.get(viewType);
+        return views == null ? 0 : views.size();
+    }
+
+    public void clear() {
+        mViews.clear();
+    }
+
+    @Override
+    public String toString() {
+        return size(ListViewAdapter.TYPE_XML) + " xml, " + size(ListViewAdapter.TYPE_FLAT) + " flat rows";
+    }
+}
@@ -0,0 +1,52 @@
+package com.kido.ucmaindemo.adapter;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.widget.text.TextLayoutCache;
+
+/**
+ * 新闻条目的文字样式。各adapter用相同参数创建，排版缓存可以共用
+ *
+ * @author Kido
+ */
+public class NewsTextStyles {
+
+    public static final int TITLE_MAX_LINES = 2;
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    public final TextLayoutCache.Style title;
+    public final TextLayoutCache.Style readTitle;
+    public final TextLayoutCache.Style meta;
+
+    public NewsTextStyles(Context context) {
+        float titleSize = context.getResources().getDimension(R.dimen.news_title_text_size);
+        title = new TextLayoutCache.Style(titleSize, ContextCompat.getColor(context, R.color.textDark), TITLE_MAX_LINES);
+        readTitle = new TextLayoutCache.Style(titleSize, ContextCompat.getColor(context, R.color.textGray), TITLE_MAX_LINES);
+        meta = new TextLayoutCache.Style(context.getResources().getDimension(R.dimen.news_meta_text_size),
+                ContextCompat.getColor(context, R.color.textGray), 1);
+    }
+
+    /**
+     * @return 条目的附加信息，如"推荐 · 5分钟前"
+     */
+    public static String formatMeta(FeedItem item, long now) {
+        long elapsed = Math.max(0, now - item.publishTime);
+        String time;
+        if (elapsed < MINUTE) {
+            time = "刚刚";
+        } else if (elapsed < HOUR) {
+            time = elapsed / MINUTE + "分钟前";
+        } else if (elapsed < DAY) {
+            time = elapsed / HOUR + "小时前";
+        } else {
+            time = elapsed / DAY + "天前";
+        }
+        return item.channel + " · " + time;
+    }
+}
@@ -4,11 +4,15 @@ import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import com.kido.ucmaindemo.R;
-
-import java.util.List;
+import com.kido.ucmaindemo.feed.FeedSource;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.FeedListModel;
+import com.kido.ucmaindemo.image.ThumbnailLoader;
+import com.kido.ucmaindemo.image.Thumbnails;
+import com.kido.ucmaindemo.widget.news.NewsRowView;
+import com.kido.ucmaindemo.widget.text.LayoutTextView;
 
 
 /**
@@ -19,26 +23,89 @@ import java.util.List;
 
 public class RecyclerViewAdapter extends RecyclerView.Adapter<RecyclerViewAdapter.ViewHolder> implements View.OnClickListener {
 
+    private static final int TYPE_XML = 0;
+    private static final int TYPE_FLAT = 1;
+
     private OnItemClickListener mOnItemClickListener;
-    private List<String> mItems;
+    private FeedListModel mItems;
+    private NewsTextStyles mStyles;
+    private boolean mFlatRows;
+    private FeedSource mThumbnailSource;
+    private ThumbnailLoader.Viewport mViewport;
 
-    public RecyclerViewAdapter(List<String> items) {
+    public RecyclerViewAdapter(FeedListModel items) {
         this.mItems = items;
+        setHasStableIds(true);
+    }
+
+
+    /**
+     * @param flatRows 是否用{@link NewsRowView}代替item_news布局
+     */
+    public void setFlatRows(boolean flatRows) {
+        if (mFlatRows != flatRows) {
+            mFlatRows = flatRows;
+            notifyDataSetChanged();
+        }
     }
 
+    /**
+     * 扁平条目显示缩略图
+     *
+     * @param source   提供缩略图地址
+     * @param viewport 列表的可见范围，用于排加载优先级
+     */
+    public void setThumbnailSource(FeedSource source, ThumbnailLoader.Viewport viewport) {
+        this.mThumbnailSource = source;
+        this.mViewport = viewport;
+        if (mFlatRows) {
+            notifyDataSetChanged();
+        }
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mFlatRows ? TYPE_FLAT : TYPE_XML;
+    }
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_news, parent, false);
+        if (mStyles == null) {
+            mStyles = new NewsTextStyles(parent.getContext());
+        }
+        View v;
+        if (viewType == TYPE_FLAT) {
+            v = new NewsRowView(parent.getContext());
+            v.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        } else {
+            v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_news, parent, false);
+        }
         v.setOnClickListener(this);
-        return new ViewHolder(v);
+        ViewHolder holder = new ViewHolder(v);
+        v.setTag(holder); // 只在创建时设置一次，点击时再取当前位置
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        String item = mItems.get(position);
-        holder.title.setText(item);
-        holder.itemView.setTag(position);
+        FeedItem item = mItems.get(position);
+        if (holder.row != null) {
+            String thumbnailUrl = mThumbnailSource == null ? null : mThumbnailSource.getThumbnailUrl(item);
+            holder.row.bind(item.title, mStyles.title, NewsTextStyles.formatMeta(item, System.currentTimeMillis()), mStyles.meta,
+                    thumbnailUrl != null);
+            if (thumbnailUrl != null) {
+                holder.row.loadThumbnail(Thumbnails.getDefault(), thumbnailUrl, mViewport, position);
+            }
+        } else {
+            holder.title.setText(item.title, mStyles.title);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        if (holder.row != null) {
+            holder.row.cancelThumbnail();
+        }
     }
 
     @Override
@@ -46,20 +113,31 @@ public class RecyclerViewAdapter extends RecyclerView.Adapter<RecyclerViewAdapte
         return mItems.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return mItems.getItemId(position);
+    }
+
     @Override
     public void onClick(View v) {
-        if (mOnItemClickListener != null) {
-            mOnItemClickListener.onItemClick(v, (int) v.getTag());
+        int position = ((ViewHolder) v.getTag()).getAdapterPosition();
+        if (mOnItemClickListener != null && position != RecyclerView.NO_POSITION) {
+            mOnItemClickListener.onItemClick(v, position);
         }
     }
 
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
-        public TextView title;
+        public LayoutTextView title; // item_news布局
+        public NewsRowView row; // 扁平布局
 
         public ViewHolder(View itemView) {
             super(itemView);
-            title = (TextView) itemView.findViewById(R.id.title);
+            if (itemView instanceof NewsRowView) {
+                row = (NewsRowView) itemView;
+            } else {
+                title = (LayoutTextView) itemView.findViewById(R.id.title);
+            }
         }
     }
 
@@ -0,0 +1,138 @@
+package com.kido.ucmaindemo.executor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.view.View;
+
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用中共用的线程池，按优先级分为四个池：
+ * <ul>
+ * <li>UI关键：用户正在等待结果的后台工作，如刷新、首屏数据、头图解码</li>
+ * <li>预取：过时就没有意义的工作，队列满时丢弃最旧的</li>
+ * <li>I/O：缓存文件读写</li>
+ * <li>日志：曝光、已读记录等低优先级的记录</li>
+ * </ul>
+ * 任务多半从主线程提交，除预取外都用{@link TaskPool#POLICY_OVERFLOW}：积压时继续排队，不会在主线程上执行，积压程度见{@link #dump()}。
+ * 有状态的任务通过{@link TaskPool#newSerialExecutor()}串行执行；需要自己调度的常驻线程用{@link #newThreadFactory(String, int)}创建。
+ * 固定的工作回到主线程时复用同一个Runnable，经过共用的Handler；逐批带数据回来的，用自己的Handler.Callback
+ * 接收{@link android.os.Message#obtain(Handler, int, Object)}，Message取自系统的对象池，不必每批分配Runnable。
+ * 在{@link com.kido.ucmaindemo.MyApplication#onCreate()}中创建。
+ *
+ * @author Kido
+ */
+public class AppExecutors {
+
+    private static AppExecutors sDefault;
+
+    private final TaskPool mUiPool;
+    private final TaskPool mPrefetchPool;
+    private final TaskPool mIoPool;
+    private final TaskPool mLogPool;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Executor mMainExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mMainHandler.post(command);
+        }
+    };
+
+    private AppExecutors() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        mUiPool = new TaskPool("ui", Math.max(2, Math.min(cpus, 4)), 64, TaskPool.POLICY_OVERFLOW,
+                newThreadFactory("ui", Process.THREAD_PRIORITY_DEFAULT), PerfMetrics.EXECUTOR_UI_WAIT_NANOS);
+        mPrefetchPool = new TaskPool("prefetch", 2, 32, TaskPool.POLICY_DISCARD_OLDEST,
+                newThreadFactory("prefetch", Process.THREAD_PRIORITY_BACKGROUND), -1);
+        mIoPool = new TaskPool("io", 2, 128, TaskPool.POLICY_OVERFLOW,
+                newThreadFactory("io", Process.THREAD_PRIORITY_BACKGROUND), -1);
+        mLogPool = new TaskPool("log", 1, 64, TaskPool.POLICY_OVERFLOW,
+                newThreadFactory("log", Process.THREAD_PRIORITY_LOWEST), -1);
+    }
+
+    public static synchronized AppExecutors getDefault() {
+        if (sDefault == null) {
+            sDefault = new AppExecutors();
+        }
+        return sDefault;
+    }
+
+    public TaskPool getUiPool() {
+        return mUiPool;
+    }
+
+    public TaskPool getPrefetchPool() {
+        return mPrefetchPool;
+    }
+
+    public TaskPool getIoPool() {
+        return mIoPool;
+    }
+
+    public TaskPool getLogPool() {
+        return mLogPool;
+    }
+
+    public Handler getMainHandler() {
+        return mMainHandler;
+    }
+
+    public Executor getMainExecutor() {
+        return mMainExecutor;
+    }
+
+    /**
+     * 线程以指定的Linux优先级运行，守护线程
+     *
+     * @param priority {@link Process}中的THREAD_PRIORITY_*
+     */
+    public static ThreadFactory newThreadFactory(final String name, final int priority) {
+        return new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(priority);
+                        r.run();
+                    }
+                }, name + "-" + mCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * @return view从窗口移除时取消的token；view尚未attach时，等它attach后再移除才取消
+     */
+    public static CancellationToken newViewToken(View view) {
+        final CancellationToken token = new CancellationToken();
+        view.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                v.removeOnAttachStateChangeListener(this);
+                token.cancel();
+            }
+        });
+        return token;
+    }
+
+    /**
+     * @return 各池的状态，调试用
+     */
+    public String dump() {
+        return mUiPool + "\n" + mPrefetchPool + "\n" + mIoPool + "\n" + mLogPool;
+    }
+}
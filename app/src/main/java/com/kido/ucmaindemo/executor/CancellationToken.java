@@ -0,0 +1,20 @@
+package com.kido.ucmaindemo.executor;
+
+/**
+ * 后台任务的取消标记，通常跟随fragment或view的生命周期，由{@link TaskPool}在任务开始执行前检查。
+ * 已开始的任务需要自己在合适的地方检查{@link #isCancelled()}。任意线程可用。
+ *
+ * @author Kido
+ */
+public class CancellationToken {
+
+    private volatile boolean mCancelled;
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+}
@@ -0,0 +1,256 @@
+package com.kido.ucmaindemo.executor;
+
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定线程数的线程池，不依赖Android API。
+ * <p>
+ * 排队数超过容量时按策略处理：{@link #POLICY_OVERFLOW}继续排队，不丢任务，也从不在提交线程（多半是主线程）上执行，
+ * 只记下超出的次数和最大排队数；{@link #POLICY_DISCARD_OLDEST}丢弃排队最久的任务，适合过时就没有意义的预取。
+ * 每个任务记录排队等待的时间，排队数计入{@link PerfMetrics#EXECUTOR_QUEUED}；空闲的线程超时后退出。
+ *
+ * @author Kido
+ */
+public class TaskPool implements Executor {
+
+    public static final int POLICY_OVERFLOW = 0;
+    public static final int POLICY_DISCARD_OLDEST = 1;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String mName;
+    private final int mCapacity;
+    private final int mPolicy;
+    private final int mWaitMetric;
+    private final ThreadPoolExecutor mExecutor;
+
+    private final AtomicLong mExecuted = new AtomicLong();
+    private final AtomicLong mCancelled = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mOverflowed = new AtomicLong();
+    private final AtomicLong mMaxQueueSize = new AtomicLong();
+    private final AtomicLong mLastWaitNanos = new AtomicLong();
+    private final AtomicLong mMaxWaitNanos = new AtomicLong();
+
+    private final class Task implements Runnable {
+        final Runnable command;
+        final CancellationToken token;
+        final long enqueueNanos = System.nanoTime();
+
+        Task(Runnable command, CancellationToken token) {
+            this.command = command;
+            this.token = token;
+        }
+
+        @Override
+        public void run() {
+            PerfMetrics.add(PerfMetrics.EXECUTOR_QUEUED, -1);
+            recordWait(System.nanoTime() - enqueueNanos);
+            if (token != null && token.isCancelled()) {
+                mCancelled.incrementAndGet();
+                return;
+            }
+            command.run();
+            mExecuted.incrementAndGet();
+        }
+    }
+
+    private final RejectedExecutionHandler mRejectedHandler = new RejectedExecutionHandler() {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                drop();
+            } else { // 只有丢弃策略的队列有界
+                if (executor.getQueue().poll() != null) {
+                    drop();
+                }
+                executor.execute(r);
+            }
+        }
+    };
+
+    /**
+     * @param threads    线程数
+     * @param capacity   队列容量，{@link #POLICY_OVERFLOW}时只用来统计超出的次数
+     * @param policy     排队数超过容量时的策略
+     * @param waitMetric 记录排队等待时间（纳秒）的{@link PerfMetrics}槽位，不记录时为-1
+     */
+    public TaskPool(String name, int threads, int capacity, int policy, ThreadFactory threadFactory, int waitMetric) {
+        mName = name;
+        mCapacity = capacity;
+        mPolicy = policy;
+        mWaitMetric = waitMetric;
+        LinkedBlockingQueue<Runnable> queue = policy == POLICY_DISCARD_OLDEST
+                ? new LinkedBlockingQueue<Runnable>(capacity) : new LinkedBlockingQueue<Runnable>();
+        mExecutor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                queue, threadFactory, mRejectedHandler);
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, null);
+    }
+
+    /**
+     * @param token 开始执行前已取消则跳过，可为null
+     */
+    public void execute(Runnable command, CancellationToken token) {
+        PerfMetrics.add(PerfMetrics.EXECUTOR_QUEUED, 1);
+        mExecutor.execute(new Task(command, token));
+        int size = mExecutor.getQueue().size();
+        if (size > mCapacity) {
+            mOverflowed.incrementAndGet();
+        }
+        long max;
+        while (size > (max = mMaxQueueSize.get()) && !mMaxQueueSize.compareAndSet(max, size)) {
+            // 重试
+        }
+    }
+
+    /**
+     * 在本池上按提交顺序逐个执行的executor，用于有状态、需要串行访问的任务（如同一个文件的读写）。
+     * 丢弃策略的池可能丢掉串行队列中的任务，不提供。
+     */
+    public Executor newSerialExecutor() {
+        if (mPolicy == POLICY_DISCARD_OLDEST) {
+            throw new IllegalStateException(mName + " may discard tasks");
+        }
+        return new SerialExecutor();
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getQueueSize() {
+        return mExecutor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return mExecutor.getActiveCount();
+    }
+
+    public long getExecuted() {
+        return mExecuted.get();
+    }
+
+    /**
+     * @return 开始前已被取消而跳过的任务数
+     */
+    public long getCancelled() {
+        return mCancelled.get();
+    }
+
+    public long getDropped() {
+        return mDropped.get();
+    }
+
+    /**
+     * @return 提交时排队数已超过容量的次数，{@link #POLICY_OVERFLOW}时才会出现
+     */
+    public long getOverflowed() {
+        return mOverflowed.get();
+    }
+
+    public long getMaxQueueSize() {
+        return mMaxQueueSize.get();
+    }
+
+    public long getLastWaitNanos() {
+        return mLastWaitNanos.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return mMaxWaitNanos.get();
+    }
+
+    /**
+     * 不再接受新任务，已排队的仍会执行
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        return mExecutor.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return mName + ": active=" + getActiveCount() + ", queued=" + getQueueSize()
+                + ", maxQueued=" + getMaxQueueSize() + ", executed=" + getExecuted() + ", cancelled=" + getCancelled()
+                + ", dropped=" + getDropped() + ", overflowed=" + getOverflowed()
+                + ", maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos());
+    }
+
+    private void recordWait(long nanos) {
+        mLastWaitNanos.set(nanos);
+        long max;
+        while (nanos > (max = mMaxWaitNanos.get()) && !mMaxWaitNanos.compareAndSet(max, nanos)) {
+            // 重试
+        }
+        if (mWaitMetric >= 0) {
+            PerfMetrics.set(mWaitMetric, nanos);
+        }
+    }
+
+    private void drop() {
+        PerfMetrics.add(PerfMetrics.EXECUTOR_QUEUED, -1);
+        mDropped.incrementAndGet();
+    }
+
+    private final class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mRunning;
+
+        @Override
+        public void execute(final Runnable command) {
+            synchronized (this) {
+                mTasks.offer(command);
+                if (mRunning) {
+                    return;
+                }
+                mRunning = true;
+            }
+            TaskPool.this.execute(mDrain);
+        }
+
+        /**
+         * 一次只执行一个，执行完再提交下一个，不长期占住池中的线程
+         */
+        private final Runnable mDrain = new Runnable() {
+            @Override
+            public void run() {
+                Runnable next;
+                synchronized (SerialExecutor.this) {
+                    next = mTasks.poll();
+                }
+                try {
+                    next.run();
+                } finally {
+                    scheduleNext();
+                }
+            }
+        };
+
+        private void scheduleNext() {
+            synchronized (this) {
+                if (mTasks.isEmpty()) {
+                    mRunning = false;
+                    return;
+                }
+            }
+            TaskPool.this.execute(mDrain);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.utils.CompactBitmap;
+
+/**
+ * 一个频道的已曝光（seen）/已读（read）状态，按条目序号（{@link FeedItem#getOrdinal()}）存放在{@link CompactBitmap}中。
+ * <p>
+ * 标记只改内存中的位图，新增的记录先放进数组，攒够一批再交给{@link ReadStateStore}在后台追加写入文件。
+ * 任意线程可用，滚动时每帧只是几次无竞争的加锁和位图查找。
+ *
+ * @author Kido
+ */
+public class ChannelReadState {
+
+    static final byte FLAG_SEEN = 1;
+    static final byte FLAG_READ = 2;
+
+    private static final int FLUSH_THRESHOLD = 64;
+
+    private final String mChannel;
+    private final ReadStateStore mStore;
+    private final CompactBitmap mSeen = new CompactBitmap();
+    private final CompactBitmap mRead = new CompactBitmap();
+
+    private long[] mPending = new long[FLUSH_THRESHOLD]; // (flag << 32) | ordinal
+    private int mPendingCount;
+    private boolean mFlushScheduled;
+    private boolean mLoaded;
+
+    int mRecordsOnDisk; // 只在存储线程访问
+
+    ChannelReadState(String channel, ReadStateStore store) {
+        mChannel = channel;
+        mStore = store;
+    }
+
+    public String getChannel() {
+        return mChannel;
+    }
+
+    public synchronized boolean isLoaded() {
+        return mLoaded;
+    }
+
+    public synchronized boolean isSeen(int ordinal) {
+        return mSeen.contains(ordinal);
+    }
+
+    public synchronized boolean isRead(int ordinal) {
+        return mRead.contains(ordinal);
+    }
+
+    /**
+     * @return 是否为新曝光
+     */
+    public boolean markSeen(int ordinal) {
+        return mark(FLAG_SEEN, ordinal);
+    }
+
+    /**
+     * 已读的条目同时记为已曝光
+     *
+     * @return 是否为新读
+     */
+    public boolean markRead(int ordinal) {
+        mark(FLAG_SEEN, ordinal);
+        return mark(FLAG_READ, ordinal);
+    }
+
+    /**
+     * 把尚未落盘的记录交给后台写入
+     */
+    public synchronized void flush() {
+        if (mPendingCount > 0 && !mFlushScheduled) {
+            mFlushScheduled = true;
+            mStore.scheduleFlush(this);
+        }
+    }
+
+    /**
+     * @return 估算占用的内存字节数
+     */
+    public synchronized long memoryBytes() {
+        return mSeen.memoryBytes() + mRead.memoryBytes() + mPending.length * 8L;
+    }
+
+    private synchronized boolean mark(byte flag, int ordinal) {
+        CompactBitmap bitmap = flag == FLAG_READ ? mRead : mSeen;
+        if (!bitmap.add(ordinal)) {
+            return false;
+        }
+        if (mPendingCount == mPending.length) { // 后台写入跟不上时扩容
+            long[] pending = new long[mPending.length * 2];
+            System.arraycopy(mPending, 0, pending, 0, mPendingCount);
+            mPending = pending;
+        }
+        mPending[mPendingCount++] = ((long) flag << 32) | (ordinal & 0xffffffffL);
+        if (mPendingCount >= FLUSH_THRESHOLD) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * 存储线程调用，取出待写入的记录
+     */
+    synchronized long[] drainPending() {
+        long[] records = new long[mPendingCount];
+        System.arraycopy(mPending, 0, records, 0, mPendingCount);
+        mPendingCount = 0;
+        mFlushScheduled = false;
+        return records;
+    }
+
+    /**
+     * 存储线程调用，合并文件中读到的记录（加载前内存中已有的标记保留）
+     */
+    synchronized void onLoaded(byte[] flags, int[] ordinals, int count) {
+        for (int i = 0; i < count; i++) {
+            (flags[i] == FLAG_READ ? mRead : mSeen).add(ordinals[i]);
+        }
+        mLoaded = true;
+    }
+
+    /**
+     * 存储线程调用，用于压缩文件
+     */
+    synchronized int[][] snapshot() {
+        return new int[][]{mSeen.toArray(), mRead.toArray()};
+    }
+}
@@ -0,0 +1,203 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.MyApplication;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.utils.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 信息流本地缓存，每个频道一个文件。
+ * <p>
+ * 文件格式（大端）：
+ * <pre>
+ * int magic | int version | short channelLen | channel(utf8) | int count
+ * count * ( long id | long publishTime | short titleLen | title(utf8) )
+ * </pre>
+ * 读取通过内存映射进行，可以限定条数和耗时，用于启动时同步渲染首屏；
+ * 写入在I/O线程池中串行进行（同一频道未落盘的写入只保留最新一次），先写临时文件并sync，再rename替换，保证崩溃时文件完整。
+ *
+ * @author Kido
+ */
+public class FeedCache {
+    private static final String TAG = "FeedCache";
+
+    private static final int MAGIC = 0x55434643; // "UCFC"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".feed";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static FeedCache sDefault;
+
+    private final File mDir;
+    private final Executor mWriteExecutor = AppExecutors.getDefault().getIoPool().newSerialExecutor();
+    private final Map<String, List<FeedItem>> mPendingWrites = new ConcurrentHashMap<>();
+
+    public FeedCache(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return 应用缓存目录下的默认实例
+     */
+    public static synchronized FeedCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new FeedCache(new File(MyApplication.getContext().getCacheDir(), "feed"));
+        }
+        return sDefault;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param channel     频道
+     * @param maxItems    最多读取的条数
+     * @param budgetNanos 耗时上限，超出后返回已读到的部分，<=0表示不限
+     */
+    public List<FeedItem> read(String channel, int maxItems, long budgetNanos) {
+        File file = getFile(channel);
+        if (!file.exists()) {
+            return new ArrayList<>(0);
+        }
+        long start = System.nanoTime();
+        List<FeedItem> items = new ArrayList<>();
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel fileChannel = raf.getChannel();
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return items;
+            }
+            byte[] scratch = new byte[256];
+            int channelLen = buffer.getShort() & 0xffff;
+            buffer.position(buffer.position() + channelLen);
+            int count = buffer.getInt();
+            int limit = Math.min(count, maxItems);
+            for (int i = 0; i < limit; i++) {
+                long id = buffer.getLong();
+                long publishTime = buffer.getLong();
+                int titleLen = buffer.getShort() & 0xffff;
+                if (scratch.length < titleLen) {
+                    scratch = new byte[titleLen];
+                }
+                buffer.get(scratch, 0, titleLen);
+                items.add(new FeedItem(id, channel, new String(scratch, 0, titleLen, UTF_8), publishTime));
+                if (budgetNanos > 0 && System.nanoTime() - start > budgetNanos) {
+                    break;
+                }
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            Logger.e(TAG, "read-> channel=%s, failed: %s", channel, e);
+        } finally {
+            closeQuietly(raf);
+        }
+        Logger.d(TAG, "read-> channel=%s, items=%s, cost=%sus", channel, items.size(), (System.nanoTime() - start) / 1000);
+        return items;
+    }
+
+    /**
+     * 异步写入，调用方之后可以继续修改items，也可以把其中的条目放回对象池：这里拷贝的是条目的值，不是引用
+     */
+    public void writeBehind(final String channel, List<FeedItem> items) {
+        boolean scheduled = mPendingWrites.put(channel, copyOf(items)) != null;
+        if (scheduled) { // 前一次写入还在排队，直接用最新数据覆盖
+            return;
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<FeedItem> snapshot = mPendingWrites.remove(channel);
+                if (snapshot == null) {
+                    return;
+                }
+                try {
+                    write(channel, snapshot);
+                } catch (IOException e) {
+                    Logger.e(TAG, "writeBehind-> channel=%s, failed: %s", channel, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 新建的条目不来自对象池，写入前不会被清空或复用
+     */
+    private static List<FeedItem> copyOf(List<FeedItem> items) {
+        List<FeedItem> copy = new ArrayList<>(items.size());
+        for (int i = 0, z = items.size(); i < z; i++) {
+            FeedItem item = items.get(i);
+            copy.add(new FeedItem(item.id, item.channel, item.title, item.publishTime));
+        }
+        return copy;
+    }
+
+    /**
+     * 同步写入（先写临时文件再替换）
+     */
+    public void write(String channel, List<FeedItem> items) throws IOException {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            throw new IOException("can not create " + mDir);
+        }
+        File file = getFile(channel);
+        File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+        FileOutputStream fos = new FileOutputStream(tmpFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, channel);
+            out.writeInt(items.size());
+            for (int i = 0, z = items.size(); i < z; i++) {
+                FeedItem item = items.get(i);
+                out.writeLong(item.id);
+                out.writeLong(item.publishTime);
+                writeString(out, item.title);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            closeQuietly(fos);
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("rename failed: " + tmpFile);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(UTF_8);
+        int len = Math.min(bytes.length, 0xffff);
+        out.writeShort(len);
+        out.write(bytes, 0, len);
+    }
+
+    private File getFile(String channel) {
+        return new File(mDir, Integer.toHexString(channel.hashCode()) + SUFFIX);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
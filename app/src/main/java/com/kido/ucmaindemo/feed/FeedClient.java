@@ -0,0 +1,74 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+
+/**
+ * 信息流接口的HTTP客户端，响应内容交给{@link FeedStreamReader}边下载边解析。
+ * <p>
+ * 接口：GET {@link #PATH_FEED}?channel=推荐&amp;page=0&amp;size=20，GET {@link #PATH_THUMB}?id=123；服务地址由调用方传入。
+ *
+ * @author Kido
+ */
+public class FeedClient implements FeedSource {
+
+    public static final String PATH_FEED = "/feed";
+    public static final String PATH_THUMB = "/thumb";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CONNECT_TIMEOUT_MS = 5 * 1000;
+    private static final int READ_TIMEOUT_MS = 10 * 1000;
+
+    private final String mBaseUrl;
+    private final int mPageSize;
+
+    /**
+     * @param baseUrl 服务地址，如http://127.0.0.1:8080，不以/结尾
+     */
+    public FeedClient(String baseUrl, int pageSize) {
+        mBaseUrl = baseUrl;
+        mPageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    @Override
+    public boolean hasThumbnail(FeedItem item) {
+        return SyntheticFeedSource.hasThumbnail(item.id);
+    }
+
+    @Override
+    public String getThumbnailUrl(FeedItem item) {
+        return hasThumbnail(item) ? mBaseUrl + PATH_THUMB + "?id=" + item.id : null;
+    }
+
+    @Override
+    public int fetch(String channel, int page, FeedStreamReader reader, FeedStreamReader.Sink sink) throws IOException {
+        URL url = new URL(mBaseUrl + PATH_FEED + "?channel=" + URLEncoder.encode(channel, "UTF-8")
+                + "&page=" + page + "&size=" + mPageSize);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        try {
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("fetch " + url + " failed: http " + code);
+            }
+            Reader in = new InputStreamReader(connection.getInputStream(), UTF_8);
+            try {
+                return reader.read(in, channel, sink);
+            } finally {
+                in.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
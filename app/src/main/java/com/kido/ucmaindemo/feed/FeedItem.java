@@ -0,0 +1,40 @@
+package com.kido.ucmaindemo.feed;
+
+/**
+ * 信息流条目
+ *
+ * @author Kido
+ */
+public class FeedItem {
+
+    public long id;
+    public String channel;
+    public String title;
+    public long publishTime;
+
+    public FeedItem() {
+    }
+
+    public FeedItem(long id, String channel, String title, long publishTime) {
+        set(id, channel, title, publishTime);
+    }
+
+    public void set(long id, String channel, String title, long publishTime) {
+        this.id = id;
+        this.channel = channel;
+        this.title = title;
+        this.publishTime = publishTime;
+    }
+
+    /**
+     * @return 频道内的序号（id的低32位），用于按序号记录已读等状态
+     */
+    public int getOrdinal() {
+        return (int) id;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.utils.LongIntHashMap;
+
+import java.util.List;
+
+/**
+ * 列表条目的id索引：id到位置的哈希表，以及位置到id的数组，都不装箱，随增删增量维护。
+ * <p>
+ * 哈希表中保存的是"位置 - mOffset"。在position处插入/删除时，position两侧只需修正条目较少的一侧：
+ * 修正后面的条目时直接改它们的值；修正前面的条目时改mOffset，并反向修正前面条目的值。
+ * 因此在顶部插入新数据（刷新）和在末尾追加（翻页）都只需要O(插入条数)次哈希操作。
+ *
+ * @author Kido
+ */
+public class FeedItemIndex {
+
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private final LongIntHashMap mPositions = new LongIntHashMap();
+    private long[] mIds = new long[16];
+    private int mSize;
+    private int mOffset;
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean contains(long id) {
+        return mPositions.containsKey(id);
+    }
+
+    /**
+     * @return 位置，不存在返回-1
+     */
+    public int positionOf(long id) {
+        int value = mPositions.get(id, MISSING);
+        return value == MISSING ? -1 : value + mOffset;
+    }
+
+    public long idAt(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position=" + position + ", size=" + mSize);
+        }
+        return mIds[position];
+    }
+
+    /**
+     * 在position处插入items（调用方保证id都不在索引中）
+     */
+    public void insert(int position, List<FeedItem> items) {
+        int count = items.size();
+        if (count == 0) {
+            return;
+        }
+        if (position < 0 || position > mSize) {
+            throw new IndexOutOfBoundsException("position=" + position + ", size=" + mSize);
+        }
+        shift(position, count);
+        ensureCapacity(mSize + count);
+        System.arraycopy(mIds, position, mIds, position + count, mSize - position);
+        for (int i = 0; i < count; i++) {
+            long id = items.get(i).id;
+            mIds[position + i] = id;
+            mPositions.put(id, position + i - mOffset);
+        }
+        mSize += count;
+    }
+
+    /**
+     * 删除[position, position + count)
+     */
+    public void remove(int position, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (position < 0 || position + count > mSize) {
+            throw new IndexOutOfBoundsException("position=" + position + ", count=" + count + ", size=" + mSize);
+        }
+        for (int i = position; i < position + count; i++) {
+            mPositions.remove(mIds[i]);
+        }
+        System.arraycopy(mIds, position + count, mIds, position, mSize - position - count);
+        mSize -= count;
+        shift(position, -count); // 此时position及之后就是原来被删除区间之后的条目
+    }
+
+    public void clear() {
+        mPositions.clear();
+        mSize = 0;
+        mOffset = 0;
+    }
+
+    /**
+     * 让原来位于position及之后的条目位置加上delta，前面的条目位置不变
+     */
+    private void shift(int position, int delta) {
+        if (position < mSize - position) {
+            // 前面的少：整体偏移delta，再把前面的条目改回去
+            mOffset += delta;
+            for (int i = 0; i < position; i++) {
+                mPositions.adjust(mIds[i], -delta);
+            }
+        } else {
+            for (int i = position; i < mSize; i++) {
+                mPositions.adjust(mIds[i], delta);
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (mIds.length < size) {
+            long[] ids = new long[Math.max(size, mIds.length * 2)];
+            System.arraycopy(mIds, 0, ids, 0, mSize);
+            mIds = ids;
+        }
+    }
+}
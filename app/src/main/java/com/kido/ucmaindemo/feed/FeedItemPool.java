@@ -0,0 +1,58 @@
+package com.kido.ucmaindemo.feed;
+
+import java.util.List;
+
+/**
+ * FeedItem对象池，解析时从池中取，列表丢弃（去重、刷新替换）的条目放回池中。线程安全。
+ *
+ * @author Kido
+ */
+public class FeedItemPool {
+
+    private static final int DEFAULT_MAX_SIZE = 128;
+
+    private static FeedItemPool sDefault;
+
+    private final FeedItem[] mItems;
+    private int mSize;
+
+    public FeedItemPool(int maxSize) {
+        mItems = new FeedItem[maxSize];
+    }
+
+    /**
+     * @return 信息流各处共用的实例
+     */
+    public static synchronized FeedItemPool getDefault() {
+        if (sDefault == null) {
+            sDefault = new FeedItemPool(DEFAULT_MAX_SIZE);
+        }
+        return sDefault;
+    }
+
+    public synchronized FeedItem acquire() {
+        if (mSize == 0) {
+            return new FeedItem();
+        }
+        FeedItem item = mItems[--mSize];
+        mItems[mSize] = null;
+        return item;
+    }
+
+    public synchronized void release(FeedItem item) {
+        if (mSize < mItems.length) {
+            item.set(0, null, null, 0);
+            mItems[mSize++] = item;
+        }
+    }
+
+    public synchronized void releaseAll(List<FeedItem> items) {
+        for (int i = 0, z = items.size(); i < z; i++) {
+            release(items.get(i));
+        }
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+}
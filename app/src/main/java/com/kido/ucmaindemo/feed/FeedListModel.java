@@ -0,0 +1,138 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.utils.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个频道的列表数据及其id索引（{@link FeedItemIndex}）。所有增删都要经过这里，以保证索引与列表一致，并通知最小的变化范围。
+ * <p>
+ * 合并时只插入列表中还没有的条目（按id判断），重复的条目放回对象池。只在主线程使用。
+ *
+ * @author Kido
+ */
+public class FeedListModel {
+
+    /**
+     * 列表变化的回调
+     */
+    public interface Observer {
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+    }
+
+    private final ArrayList<FeedItem> mItems = new ArrayList<>();
+    private final FeedItemIndex mIndex = new FeedItemIndex();
+    private final LongHashSet mBatchIds = new LongHashSet(); // 本次要插入条目的id，用于批内去重，复用
+    private final ArrayList<FeedItem> mScratch = new ArrayList<>(); // 本次要插入的条目，复用
+    private final FeedItemPool mPool;
+    private Observer mObserver;
+
+    public FeedListModel(FeedItemPool pool) {
+        mPool = pool;
+    }
+
+    public void setObserver(Observer observer) {
+        mObserver = observer;
+    }
+
+    /**
+     * @return 列表本身，只读，供adapter使用
+     */
+    public List<FeedItem> getItems() {
+        return mItems;
+    }
+
+    public int size() {
+        return mItems.size();
+    }
+
+    public boolean isEmpty() {
+        return mItems.isEmpty();
+    }
+
+    public FeedItem get(int position) {
+        return mItems.get(position);
+    }
+
+    public boolean contains(long id) {
+        return mIndex.contains(id);
+    }
+
+    /**
+     * @return 稳定id，即条目id
+     */
+    public long getItemId(int position) {
+        return mIndex.idAt(position);
+    }
+
+    /**
+     * @return id对应的位置，不存在返回-1
+     */
+    public int positionOf(long id) {
+        return mIndex.positionOf(id);
+    }
+
+    /**
+     * 把items中新的条目按原顺序插入到position处
+     *
+     * @return 实际插入的条数
+     */
+    public int insertNew(int position, List<FeedItem> items) {
+        ArrayList<FeedItem> fresh = mScratch;
+        for (int i = 0, z = items.size(); i < z; i++) {
+            FeedItem item = items.get(i);
+            if (!mIndex.contains(item.id) && mBatchIds.add(item.id)) {
+                fresh.add(item);
+            } else {
+                mPool.release(item);
+            }
+        }
+        int count = fresh.size();
+        if (count > 0) {
+            position = Math.min(position, mItems.size());
+            mItems.addAll(position, fresh); // 一次arraycopy
+            mIndex.insert(position, fresh);
+            for (int i = 0; i < count; i++) { // 逐个删除，避免clear()填充整张表
+                mBatchIds.remove(fresh.get(i).id);
+            }
+        }
+        fresh.clear();
+        if (count > 0 && mObserver != null) {
+            mObserver.onItemRangeInserted(position, count);
+        }
+        return count;
+    }
+
+    /**
+     * 删除[position, position + count)，条目放回对象池
+     */
+    public void remove(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<FeedItem> range = mItems.subList(position, position + count);
+        mPool.releaseAll(range);
+        range.clear();
+        mIndex.remove(position, count);
+        if (mObserver != null) {
+            mObserver.onItemRangeRemoved(position, count);
+        }
+    }
+
+    /**
+     * 新条目插到顶部
+     */
+    public int prependNew(List<FeedItem> items) {
+        return insertNew(0, items);
+    }
+
+    /**
+     * 新条目接到末尾
+     */
+    public int appendNew(List<FeedItem> items) {
+        return insertNew(mItems.size(), items);
+    }
+}
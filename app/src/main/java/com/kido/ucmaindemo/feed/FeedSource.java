@@ -0,0 +1,34 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.IOException;
+
+/**
+ * 信息流数据的来源，按页拉取，内容交给{@link FeedStreamReader}解析
+ *
+ * @author Kido
+ */
+public interface FeedSource {
+
+    int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * 同步拉取一页数据，不要在主线程调用
+     *
+     * @param channel 频道
+     * @param page    页码，0表示刷新
+     * @param reader  解析器，由调用线程持有
+     * @param sink    接收解析结果
+     * @return 条数
+     */
+    int fetch(String channel, int page, FeedStreamReader reader, FeedStreamReader.Sink sink) throws IOException;
+
+    /**
+     * 不拼地址，用于只需要留出缩略图位置的场合
+     */
+    boolean hasThumbnail(FeedItem item);
+
+    /**
+     * @return 条目的缩略图地址，没有缩略图返回null
+     */
+    String getThumbnailUrl(FeedItem item);
+}
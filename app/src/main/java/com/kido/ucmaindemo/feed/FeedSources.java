@@ -0,0 +1,25 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.BuildVariant;
+
+import java.io.IOException;
+
+/**
+ * 应用中共用的信息流来源，由{@link BuildVariant#createFeedSource()}按构建类型创建
+ *
+ * @author Kido
+ */
+public class FeedSources {
+
+    private static FeedSource sDefault;
+
+    /**
+     * 首次调用时创建（debug包会启动模拟服务），不要在主线程调用
+     */
+    public static synchronized FeedSource getDefault() throws IOException {
+        if (sDefault == null) {
+            sDefault = BuildVariant.createFeedSource();
+        }
+        return sDefault;
+    }
+}
@@ -0,0 +1,129 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式解析信息流数据，边读边把条目分批交给{@link Sink}，不构建完整的对象树。
+ * <p>
+ * 数据格式：
+ * <pre>
+ * {"channel": "推荐", "items": [{"id": 1, "channel": "推荐", "title": "...", "time": 1494000000000}, ...]}
+ * </pre>
+ * 条目从{@link FeedItemPool}中获取，key和频道名经{@link StringPool}复用。非线程安全，同一时间只能在一个线程上使用。
+ *
+ * @author Kido
+ */
+public class FeedStreamReader {
+
+    private static final String KEY_CHANNEL = "channel";
+    private static final String KEY_ITEMS = "items";
+    private static final String KEY_ID = "id";
+    private static final String KEY_TITLE = "title";
+    private static final String KEY_TIME = "time";
+
+    /**
+     * 接收解析结果
+     */
+    public interface Sink {
+        /**
+         * 在解析线程回调。items在回调返回后会被清空复用，需要保留的条目要自行拷贝出去。
+         *
+         * @param items    本批条目
+         * @param complete 是否为最后一批
+         */
+        void onItems(List<FeedItem> items, boolean complete);
+    }
+
+    private final FeedItemPool mItemPool;
+    private final StringPool mStringPool = new StringPool(256);
+    private final int mBatchSize;
+    private final ArrayList<FeedItem> mBatch;
+
+    /**
+     * @param itemPool  条目对象池
+     * @param batchSize 每解析出多少条回调一次
+     */
+    public FeedStreamReader(FeedItemPool itemPool, int batchSize) {
+        mItemPool = itemPool;
+        mBatchSize = batchSize;
+        mBatch = new ArrayList<>(batchSize);
+    }
+
+    public FeedItemPool getItemPool() {
+        return mItemPool;
+    }
+
+    /**
+     * 解析，调用方负责关闭in
+     *
+     * @param in             数据
+     * @param defaultChannel 数据中没有频道字段时使用的频道
+     * @param sink           接收方
+     * @return 解析出的总条数
+     */
+    public int read(Reader in, String defaultChannel, Sink sink) throws IOException {
+        JsonTokenReader json = new JsonTokenReader(in, mStringPool);
+        String channel = defaultChannel;
+        int count = 0;
+        mBatch.clear();
+        try {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (KEY_CHANNEL.equals(name)) {
+                    channel = json.nextString(true);
+                } else if (KEY_ITEMS.equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        mBatch.add(readItem(json, channel));
+                        count++;
+                        if (mBatch.size() >= mBatchSize) {
+                            sink.onItems(mBatch, false);
+                            mBatch.clear();
+                        }
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IOException | RuntimeException e) { // 出错或被Sink中断（如取消），未交出去的条目放回池中
+            mItemPool.releaseAll(mBatch);
+            mBatch.clear();
+            throw e;
+        }
+        sink.onItems(mBatch, true);
+        mBatch.clear();
+        return count;
+    }
+
+    private FeedItem readItem(JsonTokenReader json, String channel) throws IOException {
+        long id = 0;
+        long publishTime = 0;
+        String title = null;
+        String itemChannel = channel;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (KEY_ID.equals(name)) {
+                id = json.nextLong();
+            } else if (KEY_TITLE.equals(name)) {
+                title = json.nextString();
+            } else if (KEY_TIME.equals(name)) {
+                publishTime = json.nextLong();
+            } else if (KEY_CHANNEL.equals(name)) {
+                itemChannel = json.nextString(true);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        FeedItem item = mItemPool.acquire();
+        item.set(id, itemChannel, title, publishTime);
+        return item;
+    }
+}
@@ -0,0 +1,422 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 流式JSON读取器，用法与android.util.JsonReader类似（peek/beginObject/nextName/nextString...）。
+ * <p>
+ * 与JsonReader不同的是：字符先读入内部复用的char数组，key和需要复用的字符串可以直接从数组中经{@link StringPool}
+ * 取得已有实例，数字也直接从数组中解析，不产生中间String。纯Java实现，可以在JVM上运行和测试。
+ *
+ * @author Kido
+ */
+public class JsonTokenReader implements Closeable {
+
+    public static final int BEGIN_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int BEGIN_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int NAME = 5;
+    public static final int STRING = 6;
+    public static final int NUMBER = 7;
+    public static final int BOOLEAN = 8;
+    public static final int NULL = 9;
+    public static final int END_DOCUMENT = 10;
+
+    private static final int PEEKED_NONE = 0;
+
+    private static final int SCOPE_EMPTY_ARRAY = 1;
+    private static final int SCOPE_NONEMPTY_ARRAY = 2;
+    private static final int SCOPE_EMPTY_OBJECT = 3;
+    private static final int SCOPE_DANGLING_NAME = 4;
+    private static final int SCOPE_NONEMPTY_OBJECT = 5;
+    private static final int SCOPE_EMPTY_DOCUMENT = 6;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 7;
+
+    private final Reader mIn;
+    private final StringPool mStringPool;
+    private final char[] mBuffer = new char[8192];
+    private int mPos;
+    private int mLimit;
+
+    private char[] mToken = new char[128]; // 当前token（字符串/数字/字面量）的内容
+    private int mTokenLength;
+    private boolean mBooleanValue;
+
+    private int mPeeked = PEEKED_NONE;
+    private int[] mStack = new int[32];
+    private int mStackSize;
+
+    public JsonTokenReader(Reader in, StringPool stringPool) {
+        mIn = in;
+        mStringPool = stringPool;
+        mStack[mStackSize++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    public int peek() throws IOException {
+        if (mPeeked == PEEKED_NONE) {
+            mPeeked = doPeek();
+        }
+        return mPeeked;
+    }
+
+    public boolean hasNext() throws IOException {
+        int p = peek();
+        return p != END_OBJECT && p != END_ARRAY && p != END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(END_OBJECT);
+        mStackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(END_ARRAY);
+        mStackSize--;
+    }
+
+    /**
+     * key一般高度重复，总是经过StringPool
+     */
+    public String nextName() throws IOException {
+        expect(NAME);
+        return mStringPool.intern(mToken, 0, mTokenLength);
+    }
+
+    public String nextString() throws IOException {
+        return nextString(false);
+    }
+
+    /**
+     * @param intern 是否经过StringPool复用已有实例（适用于频道名等重复值）
+     */
+    public String nextString(boolean intern) throws IOException {
+        int p = peek();
+        if (p == NULL) {
+            mPeeked = PEEKED_NONE;
+            return null;
+        }
+        if (p != STRING && p != NUMBER) {
+            throw syntaxError("expected string but was " + p);
+        }
+        mPeeked = PEEKED_NONE;
+        return intern ? mStringPool.intern(mToken, 0, mTokenLength) : new String(mToken, 0, mTokenLength);
+    }
+
+    public long nextLong() throws IOException {
+        int p = peek();
+        if (p != NUMBER && p != STRING) {
+            throw syntaxError("expected number but was " + p);
+        }
+        mPeeked = PEEKED_NONE;
+        long value = 0;
+        boolean negative = false;
+        for (int i = 0; i < mTokenLength; i++) {
+            char c = mToken[i];
+            if (c == '-' && i == 0) {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else { // 小数或指数
+                return (long) Double.parseDouble(new String(mToken, 0, mTokenLength));
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(BOOLEAN);
+        return mBooleanValue;
+    }
+
+    public void nextNull() throws IOException {
+        expect(NULL);
+    }
+
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int p = peek();
+            if (p == BEGIN_OBJECT) {
+                beginObject();
+                depth++;
+            } else if (p == BEGIN_ARRAY) {
+                beginArray();
+                depth++;
+            } else if (p == END_OBJECT) {
+                endObject();
+                depth--;
+            } else if (p == END_ARRAY) {
+                endArray();
+                depth--;
+            } else if (p == END_DOCUMENT) {
+                throw syntaxError("unexpected end of document");
+            } else {
+                mPeeked = PEEKED_NONE;
+            }
+        } while (depth != 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private void expect(int token) throws IOException {
+        int p = peek();
+        if (p != token) {
+            throw syntaxError("expected " + token + " but was " + p);
+        }
+        mPeeked = PEEKED_NONE;
+    }
+
+    private void push(int scope) {
+        if (mStackSize == mStack.length) {
+            int[] stack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, stack, 0, mStackSize);
+            mStack = stack;
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    private int doPeek() throws IOException {
+        int top = mStackSize - 1;
+        int scope = mStack[top];
+        int c;
+        if (scope == SCOPE_EMPTY_ARRAY) {
+            mStack[top] = SCOPE_NONEMPTY_ARRAY;
+            c = nextNonWhitespace(true);
+            if (c == ']') {
+                return END_ARRAY;
+            }
+            mPos--;
+        } else if (scope == SCOPE_NONEMPTY_ARRAY) {
+            c = nextNonWhitespace(true);
+            if (c == ']') {
+                return END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("unterminated array");
+            }
+        } else if (scope == SCOPE_EMPTY_OBJECT || scope == SCOPE_NONEMPTY_OBJECT) {
+            mStack[top] = SCOPE_DANGLING_NAME;
+            if (scope == SCOPE_NONEMPTY_OBJECT) {
+                c = nextNonWhitespace(true);
+                if (c == '}') {
+                    return END_OBJECT;
+                } else if (c != ',') {
+                    throw syntaxError("unterminated object");
+                }
+            }
+            c = nextNonWhitespace(true);
+            if (c == '"') {
+                readString();
+                return NAME;
+            } else if (c == '}' && scope == SCOPE_EMPTY_OBJECT) {
+                return END_OBJECT;
+            }
+            throw syntaxError("expected name");
+        } else if (scope == SCOPE_DANGLING_NAME) {
+            mStack[top] = SCOPE_NONEMPTY_OBJECT;
+            c = nextNonWhitespace(true);
+            if (c != ':') {
+                throw syntaxError("expected ':'");
+            }
+        } else if (scope == SCOPE_EMPTY_DOCUMENT) {
+            mStack[top] = SCOPE_NONEMPTY_DOCUMENT;
+        } else if (scope == SCOPE_NONEMPTY_DOCUMENT) {
+            c = nextNonWhitespace(false);
+            if (c == -1) {
+                return END_DOCUMENT;
+            }
+            throw syntaxError("multiple top-level values");
+        }
+
+        c = nextNonWhitespace(true);
+        switch (c) {
+            case '{':
+                return BEGIN_OBJECT;
+            case '[':
+                return BEGIN_ARRAY;
+            case '"':
+                readString();
+                return STRING;
+            case 't':
+                readLiteral("rue");
+                mBooleanValue = true;
+                return BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                mBooleanValue = false;
+                return BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    mPos--;
+                    readNumber();
+                    return NUMBER;
+                }
+                throw syntaxError("unexpected character " + (char) c);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = mIn.read(mBuffer, 0, mBuffer.length);
+        if (read <= 0) {
+            mPos = 0;
+            mLimit = 0;
+            return false;
+        }
+        mPos = 0;
+        mLimit = read;
+        return true;
+    }
+
+    private int nextChar() throws IOException {
+        if (mPos == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPos++];
+    }
+
+    private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+        while (true) {
+            int c = nextChar();
+            if (c == -1) {
+                if (throwOnEof) {
+                    throw syntaxError("unexpected end of input");
+                }
+                return -1;
+            }
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private void appendToken(char c) {
+        if (mTokenLength == mToken.length) {
+            char[] token = new char[mTokenLength * 2];
+            System.arraycopy(mToken, 0, token, 0, mTokenLength);
+            mToken = token;
+        }
+        mToken[mTokenLength++] = c;
+    }
+
+    /**
+     * 读取字符串内容（起始引号已读）到mToken
+     */
+    private void readString() throws IOException {
+        mTokenLength = 0;
+        while (true) {
+            // 快速路径：在buffer内连续拷贝普通字符
+            int start = mPos;
+            while (mPos < mLimit) {
+                char c = mBuffer[mPos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                mPos++;
+            }
+            int count = mPos - start;
+            if (count > 0) {
+                if (mTokenLength + count > mToken.length) {
+                    char[] token = new char[Math.max(mToken.length * 2, mTokenLength + count)];
+                    System.arraycopy(mToken, 0, token, 0, mTokenLength);
+                    mToken = token;
+                }
+                System.arraycopy(mBuffer, start, mToken, mTokenLength, count);
+                mTokenLength += count;
+            }
+            int c = nextChar();
+            if (c == -1) {
+                throw syntaxError("unterminated string");
+            } else if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                appendToken(readEscape());
+            } else {
+                appendToken((char) c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = nextChar();
+        switch (c) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = nextChar();
+                    int digit;
+                    if (h >= '0' && h <= '9') {
+                        digit = h - '0';
+                    } else if (h >= 'a' && h <= 'f') {
+                        digit = h - 'a' + 10;
+                    } else if (h >= 'A' && h <= 'F') {
+                        digit = h - 'A' + 10;
+                    } else {
+                        throw syntaxError("bad \\u escape");
+                    }
+                    value = (value << 4) + digit;
+                }
+                return (char) value;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("bad escape");
+        }
+    }
+
+    private void readNumber() throws IOException {
+        mTokenLength = 0;
+        while (true) {
+            int c = nextChar();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                appendToken((char) c);
+            } else {
+                if (c != -1) {
+                    mPos--;
+                }
+                return;
+            }
+        }
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (nextChar() != rest.charAt(i)) {
+                throw syntaxError("bad literal");
+            }
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("json syntax error: " + message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.IOException;
+
+/**
+ * 进程内生成的信息流数据（{@link SyntheticFeedSource}），不经过网络，没有缩略图
+ *
+ * @author Kido
+ */
+public class LocalFeedSource implements FeedSource {
+
+    private final int mPageSize;
+
+    public LocalFeedSource(int pageSize) {
+        mPageSize = pageSize;
+    }
+
+    @Override
+    public int fetch(String channel, int page, FeedStreamReader reader, FeedStreamReader.Sink sink) throws IOException {
+        return reader.read(SyntheticFeedSource.openJson(channel, page * mPageSize, mPageSize), channel, sink);
+    }
+
+    @Override
+    public boolean hasThumbnail(FeedItem item) {
+        return false;
+    }
+
+    @Override
+    public String getThumbnailUrl(FeedItem item) {
+        return null;
+    }
+}
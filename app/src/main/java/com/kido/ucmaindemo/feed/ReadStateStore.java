@@ -0,0 +1,218 @@
+package com.kido.ucmaindemo.feed;
+
+import com.kido.ucmaindemo.MyApplication;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.utils.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 各频道已曝光/已读状态的存储，每个频道一个只追加的文件。
+ * <p>
+ * 文件由定长记录组成：byte flag | int ordinal（大端，5字节）。崩溃时最多丢掉末尾不完整的一条，
+ * 加载时把它截掉，之后追加的记录才能对齐。
+ * 频道状态在第一次{@link #get(String)}时创建，并在后台加载文件；加载完成前的标记可能与文件中的重复，
+ * 因此文件中的记录数超过实际状态数的两倍时重写压缩。
+ * 所有文件操作都通过一个串行executor进行，默认实例在日志线程池上。
+ *
+ * @author Kido
+ */
+public class ReadStateStore {
+    private static final String TAG = "ReadStateStore";
+
+    private static final String SUFFIX = ".rs";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int COMPACT_MIN_RECORDS = 4096;
+
+    private static ReadStateStore sDefault;
+
+    private final File mDir;
+    private final Executor mIoExecutor;
+    private final Map<String, ChannelReadState> mStates = new HashMap<>();
+
+    /**
+     * @param ioExecutor 文件读写所在的executor，必须是串行的
+     */
+    public ReadStateStore(File dir, Executor ioExecutor) {
+        mDir = dir;
+        mIoExecutor = ioExecutor;
+    }
+
+    /**
+     * @return 应用files目录下的默认实例
+     */
+    public static synchronized ReadStateStore getDefault() {
+        if (sDefault == null) {
+            sDefault = new ReadStateStore(new File(MyApplication.getContext().getFilesDir(), "read_state"),
+                    AppExecutors.getDefault().getLogPool().newSerialExecutor());
+        }
+        return sDefault;
+    }
+
+    public synchronized ChannelReadState get(String channel) {
+        ChannelReadState state = mStates.get(channel);
+        if (state == null) {
+            state = new ChannelReadState(channel, this);
+            mStates.put(channel, state);
+            final ChannelReadState loading = state;
+            mIoExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(loading);
+                }
+            });
+        }
+        return state;
+    }
+
+    void scheduleFlush(final ChannelReadState state) {
+        mIoExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(state, state.drainPending());
+            }
+        });
+    }
+
+    private void load(ChannelReadState state) {
+        File file = getFile(state.getChannel());
+        int count = file.exists() ? (int) (file.length() / 5) : 0;
+        byte[] flags = new byte[count];
+        int[] ordinals = new int[count];
+        int read = 0;
+        if (count > 0) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                for (; read < count; read++) {
+                    flags[read] = in.readByte();
+                    ordinals[read] = in.readInt();
+                }
+            } catch (EOFException ignored) { // 末尾不完整的记录
+            } catch (IOException e) {
+                Logger.e(TAG, "load-> channel=%s, failed: %s", state.getChannel(), e);
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        if (file.exists() && file.length() != count * 5L) {
+            truncate(state, file, count * 5L);
+        }
+        state.mRecordsOnDisk = read;
+        state.onLoaded(flags, ordinals, read);
+    }
+
+    /**
+     * 截掉末尾不完整的记录，在同一个串行executor上，先于之后的追加
+     */
+    private static void truncate(ChannelReadState state, File file, long length) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+        } catch (IOException e) {
+            Logger.e(TAG, "truncate-> channel=%s, failed: %s", state.getChannel(), e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void append(ChannelReadState state, long[] records) {
+        if (records.length == 0) {
+            return;
+        }
+        File file = getFile(state.getChannel());
+        try {
+            ensureDir();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            try {
+                for (long record : records) {
+                    out.writeByte((int) (record >>> 32));
+                    out.writeInt((int) record);
+                }
+            } finally {
+                out.close();
+            }
+            state.mRecordsOnDisk += records.length;
+        } catch (IOException e) {
+            Logger.e(TAG, "append-> channel=%s, failed: %s", state.getChannel(), e);
+            return;
+        }
+        int[][] snapshot = null;
+        if (state.mRecordsOnDisk > COMPACT_MIN_RECORDS) {
+            snapshot = state.snapshot();
+            if (state.mRecordsOnDisk <= (snapshot[0].length + snapshot[1].length) * 2) {
+                snapshot = null;
+            }
+        }
+        if (snapshot != null) {
+            compact(state, snapshot);
+        }
+    }
+
+    /**
+     * 用当前状态重写文件（先写临时文件再替换）
+     */
+    private void compact(ChannelReadState state, int[][] snapshot) {
+        File file = getFile(state.getChannel());
+        File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                for (int ordinal : snapshot[0]) {
+                    out.writeByte(ChannelReadState.FLAG_SEEN);
+                    out.writeInt(ordinal);
+                }
+                for (int ordinal : snapshot[1]) {
+                    out.writeByte(ChannelReadState.FLAG_READ);
+                    out.writeInt(ordinal);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+                throw new IOException("rename failed: " + tmpFile);
+            }
+            state.mRecordsOnDisk = snapshot[0].length + snapshot[1].length;
+        } catch (IOException e) {
+            Logger.e(TAG, "compact-> channel=%s, failed: %s", state.getChannel(), e);
+        }
+    }
+
+    private void ensureDir() throws IOException {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            throw new IOException("can not create " + mDir);
+        }
+    }
+
+    private File getFile(String channel) {
+        return new File(mDir, Integer.toHexString(channel.hashCode()) + SUFFIX);
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
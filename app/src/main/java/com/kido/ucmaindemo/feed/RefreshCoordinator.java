@@ -0,0 +1,184 @@
+package com.kido.ucmaindemo.feed;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.utils.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * 频道刷新的协调者，每个频道一个实例，只在主线程使用。
+ * <p>
+ * 同一频道同时只有一次刷新在进行，刷新期间再发起的请求直接加入等待，共享同一次结果；
+ * 所有等待方都取消后，进行中的请求会在下一批数据到达时中断，结果不再回调。
+ * 数据在后台读完后一次性回到主线程，由调用方一次性更新列表。
+ * 条目交给等待方后归它所有（合并时重复的条目会被放回对象池并清空），因此每个等待方各收到一份。
+ *
+ * @author Kido
+ */
+public class RefreshCoordinator {
+    private static final String TAG = "RefreshCoordinator";
+
+    private static final Map<String, RefreshCoordinator> sCoordinators = new HashMap<>();
+    private static final Executor sExecutor = AppExecutors.getDefault().getUiPool();
+    private static final int MSG_FINISHED = 1; // obj为RefreshTask
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+        @Override
+        public boolean handleMessage(Message msg) {
+            RefreshTask task = (RefreshTask) msg.obj;
+            task.finish();
+            return true;
+        }
+    });
+    private static final ThreadLocal<FeedStreamReader> sReaders = new ThreadLocal<FeedStreamReader>() {
+        @Override
+        protected FeedStreamReader initialValue() {
+            return new FeedStreamReader(FeedItemPool.getDefault(), 10);
+        }
+    };
+
+    private final String mChannel;
+    private final List<Callback> mCallbacks = new ArrayList<>();
+    private RefreshTask mInFlight;
+
+    /**
+     * 刷新结果，在主线程回调
+     */
+    public interface Callback {
+        /**
+         * @param items 最新数据，按服务端顺序，归调用方所有；多个等待方各收到一份拷贝
+         */
+        void onRefreshed(List<FeedItem> items);
+
+        void onRefreshFailed(IOException e);
+    }
+
+    private RefreshCoordinator(String channel) {
+        mChannel = channel;
+    }
+
+    public static RefreshCoordinator get(String channel) {
+        RefreshCoordinator coordinator = sCoordinators.get(channel);
+        if (coordinator == null) {
+            coordinator = new RefreshCoordinator(channel);
+            sCoordinators.put(channel, coordinator);
+        }
+        return coordinator;
+    }
+
+    public boolean isRefreshing() {
+        return mInFlight != null;
+    }
+
+    /**
+     * 发起刷新，已有刷新在进行时加入等待
+     */
+    public void refresh(Callback callback) {
+        if (!mCallbacks.contains(callback)) {
+            mCallbacks.add(callback);
+        }
+        if (mInFlight == null) {
+            mInFlight = new RefreshTask();
+            sExecutor.execute(mInFlight);
+            Logger.d(TAG, "refresh-> channel=%s, start", mChannel);
+        } else {
+            Logger.d(TAG, "refresh-> channel=%s, join in-flight, waiting=%s", mChannel, mCallbacks.size());
+        }
+    }
+
+    /**
+     * 取消等待，没有等待方时中断进行中的请求
+     */
+    public void cancel(Callback callback) {
+        mCallbacks.remove(callback);
+        if (mCallbacks.isEmpty() && mInFlight != null) {
+            mInFlight.mCancelled = true;
+            mInFlight = null;
+            Logger.d(TAG, "cancel-> channel=%s", mChannel);
+        }
+    }
+
+    private void onTaskFinished(RefreshTask task, List<FeedItem> items, IOException error) {
+        if (task != mInFlight) { // 已被取消
+            FeedItemPool.getDefault().releaseAll(items);
+            return;
+        }
+        mInFlight = null;
+        List<Callback> callbacks = new ArrayList<>(mCallbacks);
+        mCallbacks.clear();
+        Logger.d(TAG, "onTaskFinished-> channel=%s, items=%s, error=%s, callbacks=%s", mChannel, items.size(), error, callbacks.size());
+        if (error != null) {
+            FeedItemPool.getDefault().releaseAll(items);
+            for (Callback callback : callbacks) {
+                callback.onRefreshFailed(error);
+            }
+            return;
+        }
+        List<List<FeedItem>> lists = new ArrayList<>(callbacks.size());
+        for (int i = 0; i < callbacks.size(); i++) { // 先拷贝：第一个等待方合并时可能清空原来的条目
+            lists.add(i == 0 ? items : copyOf(items));
+        }
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).onRefreshed(lists.get(i));
+        }
+    }
+
+    private static List<FeedItem> copyOf(List<FeedItem> items) {
+        FeedItemPool pool = FeedItemPool.getDefault();
+        List<FeedItem> copy = new ArrayList<>(items.size());
+        for (int i = 0, z = items.size(); i < z; i++) {
+            FeedItem item = items.get(i);
+            FeedItem clone = pool.acquire();
+            clone.set(item.id, item.channel, item.title, item.publishTime);
+            copy.add(clone);
+        }
+        return copy;
+    }
+
+    private class RefreshTask implements Runnable {
+        volatile boolean mCancelled;
+        private List<FeedItem> mItems; // 结果经Message交给主线程，Handler保证可见性
+        private IOException mError;
+
+        @Override
+        public void run() {
+            final List<FeedItem> items = new ArrayList<>();
+            IOException error = null;
+            try {
+                if (mCancelled) {
+                    return;
+                }
+                FeedSources.getDefault().fetch(mChannel, 0, sReaders.get(), new FeedStreamReader.Sink() {
+                    @Override
+                    public void onItems(List<FeedItem> batch, boolean complete) {
+                        if (mCancelled) {
+                            throw new CancellationException();
+                        }
+                        items.addAll(batch);
+                    }
+                });
+            } catch (IOException e) {
+                error = e;
+            } catch (CancellationException e) {
+                FeedItemPool.getDefault().releaseAll(items);
+                return;
+            }
+            mItems = items;
+            mError = error;
+            Message.obtain(sMainHandler, MSG_FINISHED, this).sendToTarget();
+        }
+
+        void finish() {
+            onTaskFinished(this, mItems, mError);
+        }
+    }
+}
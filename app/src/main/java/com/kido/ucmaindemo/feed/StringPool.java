@@ -0,0 +1,66 @@
+package com.kido.ucmaindemo.feed;
+
+/**
+ * 字符串复用池，直接按char数组区间查找，命中时不产生新的String。
+ * <p>
+ * 开放寻址，容量固定，装满后不再收录新字符串（直接new），避免标题这类不重复的值把池撑大。非线程安全，每个解析器一个。
+ *
+ * @author Kido
+ */
+public class StringPool {
+
+    private final String[] mTable;
+    private final int mMask;
+    private final int mMaxSize;
+    private int mSize;
+
+    /**
+     * @param capacity 容量，会向上取整为2的幂
+     */
+    public StringPool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        mTable = new String[size];
+        mMask = size - 1;
+        mMaxSize = size * 3 / 4;
+    }
+
+    public String intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i]; // 与String.hashCode一致
+        }
+        int index = (hash ^ (hash >>> 16)) & mMask;
+        while (true) {
+            String s = mTable[index];
+            if (s == null) {
+                break;
+            }
+            if (s.hashCode() == hash && contentEquals(s, chars, offset, length)) {
+                return s;
+            }
+            index = (index + 1) & mMask;
+        }
+        String s = new String(chars, offset, length);
+        if (mSize < mMaxSize) {
+            mTable[index] = s;
+            mSize++;
+        }
+        return s;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    private static boolean contentEquals(String s, char[] chars, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package com.kido.ucmaindemo.feed;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地模拟的信息流数据，id由频道和序号生成，同一条目多次生成的id不变。
+ *
+ * @author Kido
+ */
+public class SyntheticFeedSource {
+
+    public static long makeId(String channel, int seq) {
+        return ((long) channel.hashCode() << 32) | (seq & 0xffffffffL);
+    }
+
+    public static String makeTitle(String channel, int seq) {
+        return "This is the title. (" + channel + seq + ")";
+    }
+
+    /**
+     * @return 是否为带缩略图的条目（每3条有1条）
+     */
+    public static boolean hasThumbnail(long id) {
+        return (int) id % 3 == 0;
+    }
+
+    /**
+     * @param channel 频道
+     * @param start   起始序号
+     * @param count   条数
+     */
+    public static List<FeedItem> load(String channel, int start, int count) {
+        List<FeedItem> items = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = start; i < start + count; i++) {
+            items.add(new FeedItem(makeId(channel, i), channel, makeTitle(channel, i), now));
+        }
+        return items;
+    }
+
+    /**
+     * 以{@link FeedStreamReader}的数据格式返回，模拟服务端下发的内容
+     */
+    public static Reader openJson(String channel, int start, int count) {
+        StringBuilder sb = new StringBuilder(count * 96);
+        appendJson(sb, channel, start, count);
+        return new StringReader(sb.toString());
+    }
+
+    public static void appendJson(StringBuilder sb, String channel, int start, int count) {
+        long now = System.currentTimeMillis();
+        sb.append("{\"channel\":");
+        appendQuoted(sb, channel);
+        sb.append(",\"items\":[");
+        for (int i = start; i < start + count; i++) {
+            if (i > start) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(makeId(channel, i));
+            sb.append(",\"channel\":");
+            appendQuoted(sb, channel);
+            sb.append(",\"title\":");
+            appendQuoted(sb, makeTitle(channel, i));
+            sb.append(",\"time\":").append(now).append('}');
+        }
+        sb.append("]}");
+    }
+
+    private static void appendQuoted(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,352 @@
+package com.kido.ucmaindemo.feed.impression;
+
+import android.os.Process;
+
+import com.kido.ucmaindemo.MyApplication;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.utils.LongHashSet;
+import com.kido.ucmaindemo.utils.Logger;
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 条目曝光日志。UI线程通过{@link #log(long, int, int)}把定长记录写进{@link ImpressionRingBuffer}，不分配对象也不做I/O；
+ * 后台线程批量取出，在当前文件内按条目id去重，攒够一批（条数或时间阈值）后一次写入文件。
+ * 没有待写记录时后台线程一直休眠，由新到的记录唤醒；有待写记录时只在攒够一批或到了写入时间时醒来。
+ * <p>
+ * 文件由定长记录组成：long id | long time | int channel | int position（大端，24字节）。
+ * 当前文件超过大小阈值时轮转为impressions.1.log、impressions.2.log……，最多保留{@link #setMaxFiles(int)}个。
+ * 缓冲区满时新记录被丢弃，丢弃数和积压量计入{@link PerfMetrics}。
+ * 各set方法需在{@link #start()}之前调用。
+ *
+ * @author Kido
+ */
+public class ImpressionLogger {
+    private static final String TAG = "ImpressionLogger";
+
+    static final int RECORD_BYTES = 24;
+    static final String FILE_NAME = "impressions";
+    static final String SUFFIX = ".log";
+
+    private static ImpressionLogger sDefault;
+
+    private final File mDir;
+    private final ImpressionRingBuffer mBuffer;
+
+    private int mBatchSize = 64;
+    private long mFlushIntervalMillis = 5000;
+    private long mMaxFileBytes = 256 * 1024;
+    private int mMaxFiles = 4;
+    private ThreadFactory mThreadFactory;
+
+    private volatile Thread mThread;
+    private volatile boolean mRunning;
+    private final AtomicBoolean mWaiting = new AtomicBoolean(); // 后台线程没有待写记录，无限期等待中
+    private volatile boolean mFlushRequested;
+
+    // 以下只在后台线程访问
+    private long[] mRecords;
+    private byte[] mPending;
+    private int mPendingCount;
+    private long mLastFlushMillis;
+    private long mFileBytes = -1;
+    private final LongHashSet mFileIds = new LongHashSet(); // 当前文件中已有的条目id
+
+    private final AtomicLong mWritten = new AtomicLong();
+    private final AtomicLong mDeduped = new AtomicLong();
+    private final AtomicLong mFlushes = new AtomicLong();
+    private final AtomicLong mRotations = new AtomicLong();
+
+    public ImpressionLogger(File dir, int capacity) {
+        mDir = dir;
+        mBuffer = new ImpressionRingBuffer(capacity);
+    }
+
+    /**
+     * @return 应用files目录下的默认实例，已启动
+     */
+    public static synchronized ImpressionLogger getDefault() {
+        if (sDefault == null) {
+            sDefault = new ImpressionLogger(new File(MyApplication.getContext().getFilesDir(), "impressions"), 1024)
+                    .setThreadFactory(AppExecutors.newThreadFactory(TAG, Process.THREAD_PRIORITY_LOWEST));
+            sDefault.start();
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param batchSize 攒够多少条写一次文件
+     */
+    public ImpressionLogger setBatchSize(int batchSize) {
+        mBatchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * @param millis 有待写入的记录时，最多隔多久写一次文件
+     */
+    public ImpressionLogger setFlushInterval(long millis) {
+        mFlushIntervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param bytes 当前文件超过该大小时轮转
+     */
+    public ImpressionLogger setMaxFileBytes(long bytes) {
+        mMaxFileBytes = bytes;
+        return this;
+    }
+
+    /**
+     * @param count 保留的文件数，含当前文件
+     */
+    public ImpressionLogger setMaxFiles(int count) {
+        mMaxFiles = Math.max(1, count);
+        return this;
+    }
+
+    /**
+     * @param factory 创建后台线程，默认为最低优先级的守护线程
+     */
+    public ImpressionLogger setThreadFactory(ThreadFactory factory) {
+        mThreadFactory = factory;
+        return this;
+    }
+
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mRecords = new long[mBatchSize * ImpressionRingBuffer.RECORD_LONGS];
+        mPending = new byte[mBatchSize * RECORD_BYTES];
+        mRunning = true;
+        Runnable loop = new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        };
+        if (mThreadFactory != null) {
+            mThread = mThreadFactory.newThread(loop);
+        } else {
+            mThread = new Thread(loop, TAG);
+            mThread.setPriority(Thread.MIN_PRIORITY);
+            mThread.setDaemon(true);
+        }
+        mThread.start();
+    }
+
+    /**
+     * 停止后台线程，缓冲区中剩余的记录全部写入后返回
+     */
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = mThread;
+        }
+        if (thread == null) {
+            return;
+        }
+        mRunning = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /**
+     * 只能在同一个线程（UI线程）调用
+     *
+     * @return 缓冲区已满、记录被丢弃时返回false
+     */
+    public boolean log(long itemId, int channel, int position) {
+        boolean offered = mBuffer.offer(itemId, System.currentTimeMillis(), channel, position);
+        // CAS同时充当屏障，保证后台线程要么看到这条记录，要么被唤醒
+        if (mWaiting.compareAndSet(true, false) || mBuffer.size() >= mBatchSize) {
+            Thread thread = mThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return offered;
+    }
+
+    /**
+     * 尽快把已记录的曝光写入文件（不等待），如页面进入后台时
+     */
+    public void requestFlush() {
+        mFlushRequested = true;
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public File getDir() {
+        return mDir;
+    }
+
+    public long getDropped() {
+        return mBuffer.getDropped();
+    }
+
+    public int getBacklog() {
+        return mBuffer.size();
+    }
+
+    public long getHighWatermark() {
+        return mBuffer.getHighWatermark();
+    }
+
+    /**
+     * @return 写入文件的记录数（去重后）
+     */
+    public long getWritten() {
+        return mWritten.get();
+    }
+
+    public long getDeduped() {
+        return mDeduped.get();
+    }
+
+    public long getFlushes() {
+        return mFlushes.get();
+    }
+
+    public long getRotations() {
+        return mRotations.get();
+    }
+
+    private void loop() {
+        mLastFlushMillis = System.currentTimeMillis();
+        while (true) {
+            boolean running = mRunning; // 先读，保证停止前写入的记录都能取到
+            boolean flushRequested = mFlushRequested;
+            if (flushRequested) {
+                mFlushRequested = false;
+            }
+            int count = mBuffer.drain(mRecords, mBatchSize);
+            for (int i = 0; i < count; i++) {
+                append(mRecords, i);
+            }
+            long now = System.currentTimeMillis();
+            if (mPendingCount > 0 && (!running || flushRequested
+                    || now - mLastFlushMillis >= mFlushIntervalMillis)) {
+                flush();
+            }
+            PerfMetrics.set(PerfMetrics.IMPRESSION_BACKLOG, mBuffer.size());
+            PerfMetrics.set(PerfMetrics.IMPRESSION_DROPPED, mBuffer.getDropped());
+            if (count == 0) {
+                if (!running) {
+                    return;
+                }
+                idle();
+            }
+        }
+    }
+
+    /**
+     * 没有待写记录时无限期等待新记录、flush请求或停止；否则等到写入时间
+     */
+    private void idle() {
+        if (mPendingCount == 0) {
+            mWaiting.set(true);
+            if (mBuffer.size() == 0 && mRunning && !mFlushRequested) {
+                LockSupport.park(this);
+            }
+            mWaiting.set(false);
+            return;
+        }
+        long waitMillis = mLastFlushMillis + mFlushIntervalMillis - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMillis));
+        }
+    }
+
+    private void append(long[] records, int i) {
+        long id = ImpressionRingBuffer.itemIdOf(records, i);
+        if (!mFileIds.add(id)) {
+            mDeduped.incrementAndGet();
+            return;
+        }
+        if (mPendingCount == mBatchSize) {
+            flush();
+        }
+        int offset = mPendingCount * RECORD_BYTES;
+        putLong(mPending, offset, id);
+        putLong(mPending, offset + 8, ImpressionRingBuffer.timeOf(records, i));
+        putInt(mPending, offset + 16, ImpressionRingBuffer.channelOf(records, i));
+        putInt(mPending, offset + 20, ImpressionRingBuffer.positionOf(records, i));
+        mPendingCount++;
+    }
+
+    private void flush() {
+        mLastFlushMillis = System.currentTimeMillis();
+        int count = mPendingCount;
+        mPendingCount = 0;
+        File file = getFile(0);
+        try {
+            if (mFileBytes < 0) {
+                if (!mDir.exists() && !mDir.mkdirs()) {
+                    throw new IOException("can not create " + mDir);
+                }
+                mFileBytes = file.length();
+            }
+            FileOutputStream out = new FileOutputStream(file, true);
+            try {
+                out.write(mPending, 0, count * RECORD_BYTES);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Logger.e(TAG, "flush-> %d records lost: %s", count, e);
+            return;
+        }
+        mFileBytes += count * RECORD_BYTES;
+        mWritten.addAndGet(count);
+        mFlushes.incrementAndGet();
+        if (mFileBytes >= mMaxFileBytes) {
+            rotate();
+        }
+    }
+
+    /**
+     * impressions.log -> impressions.1.log -> ... ，最旧的删除
+     */
+    private void rotate() {
+        getFile(mMaxFiles - 1).delete();
+        for (int i = mMaxFiles - 2; i >= 0; i--) {
+            File from = getFile(i);
+            if (from.exists() && !from.renameTo(getFile(i + 1))) {
+                Logger.e(TAG, "rotate-> rename failed: %s", from);
+            }
+        }
+        getFile(0).delete(); // mMaxFiles为1时没有被改名
+        mFileBytes = 0;
+        mFileIds.clear();
+        mRotations.incrementAndGet();
+    }
+
+    File getFile(int index) {
+        return new File(mDir, index == 0 ? FILE_NAME + SUFFIX : FILE_NAME + "." + index + SUFFIX);
+    }
+
+    private static void putLong(byte[] b, int offset, long v) {
+        putInt(b, offset, (int) (v >>> 32));
+        putInt(b, offset + 4, (int) v);
+    }
+
+    private static void putInt(byte[] b, int offset, int v) {
+        b[offset] = (byte) (v >>> 24);
+        b[offset + 1] = (byte) (v >>> 16);
+        b[offset + 2] = (byte) (v >>> 8);
+        b[offset + 3] = (byte) v;
+    }
+}
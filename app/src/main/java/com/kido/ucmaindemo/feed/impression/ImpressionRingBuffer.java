@@ -0,0 +1,132 @@
+package com.kido.ucmaindemo.feed.impression;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者单消费者的无锁环形缓冲区，每条记录固定为3个long：条目id | 时间 | 频道(高32位)与位置(低32位)。
+ * <p>
+ * 生产者（UI线程）写入时不分配对象、不加锁：写完槽位后以lazySet发布tail，消费者读到tail后即可安全读取槽位，
+ * 读完再以lazySet发布head把槽位还给生产者。缓冲区满时丢弃新记录并计数，不阻塞生产者。
+ *
+ * @author Kido
+ */
+public class ImpressionRingBuffer {
+
+    public static final int RECORD_LONGS = 3;
+
+    private final long[] mSlots;
+    private final int mCapacity;
+    private final int mMask;
+
+    private final AtomicLong mTail = new AtomicLong(); // 生产者写，消费者读
+    private final AtomicLong mHead = new AtomicLong(); // 消费者写，生产者读
+    private long mCachedHead; // 生产者本地缓存的head，减少对mHead的读
+    private final AtomicLong mDropped = new AtomicLong(); // 只由生产者修改
+    private volatile long mHighWatermark; // 只由生产者修改
+
+    /**
+     * @param capacity 记录数，会向上取整为2的幂
+     */
+    public ImpressionRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mCapacity = size;
+        mMask = size - 1;
+        mSlots = new long[size * RECORD_LONGS];
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    /**
+     * 生产者线程调用
+     *
+     * @return 缓冲区已满、记录被丢弃时返回false
+     */
+    public boolean offer(long itemId, long timeMillis, int channel, int position) {
+        long tail = mTail.get();
+        if (tail - mCachedHead >= mCapacity) {
+            mCachedHead = mHead.get();
+            if (tail - mCachedHead >= mCapacity) {
+                mDropped.lazySet(mDropped.get() + 1);
+                return false;
+            }
+        }
+        int index = (int) (tail & mMask) * RECORD_LONGS;
+        mSlots[index] = itemId;
+        mSlots[index + 1] = timeMillis;
+        mSlots[index + 2] = ((long) channel << 32) | (position & 0xffffffffL);
+        mTail.lazySet(tail + 1);
+        long occupancy = tail + 1 - mCachedHead;
+        if (occupancy > mHighWatermark) {
+            mHighWatermark = occupancy;
+        }
+        return true;
+    }
+
+    /**
+     * 消费者线程调用，取出最多maxRecords条记录
+     *
+     * @param out 至少maxRecords * RECORD_LONGS长
+     * @return 取出的条数
+     */
+    public int drain(long[] out, int maxRecords) {
+        long head = mHead.get();
+        int count = (int) Math.min(mTail.get() - head, maxRecords);
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((head + i) & mMask) * RECORD_LONGS;
+            int outIndex = i * RECORD_LONGS;
+            out[outIndex] = mSlots[index];
+            out[outIndex + 1] = mSlots[index + 1];
+            out[outIndex + 2] = mSlots[index + 2];
+        }
+        if (count > 0) {
+            mHead.lazySet(head + count);
+        }
+        return count;
+    }
+
+    /**
+     * @return 当前积压的记录数（近似值）
+     */
+    public int size() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    /**
+     * @return 累计写入成功的记录数
+     */
+    public long getOffered() {
+        return mTail.get();
+    }
+
+    /**
+     * @return 缓冲区满而被丢弃的记录数
+     */
+    public long getDropped() {
+        return mDropped.get();
+    }
+
+    /**
+     * @return 出现过的最大积压（生产者视角）
+     */
+    public long getHighWatermark() {
+        return mHighWatermark;
+    }
+
+    public static long itemIdOf(long[] records, int i) {
+        return records[i * RECORD_LONGS];
+    }
+
+    public static long timeOf(long[] records, int i) {
+        return records[i * RECORD_LONGS + 1];
+    }
+
+    public static int channelOf(long[] records, int i) {
+        return (int) (records[i * RECORD_LONGS + 2] >>> 32);
+    }
+
+    public static int positionOf(long[] records, int i) {
+        return (int) records[i * RECORD_LONGS + 2];
+    }
+}
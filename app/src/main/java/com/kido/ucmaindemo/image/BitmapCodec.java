@@ -0,0 +1,58 @@
+package com.kido.ucmaindemo.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 把缩略图文件解码为Bitmap：按目标尺寸inSampleSize降采样，使用RGB_565，API 19以上从复用池中取Bitmap作为inBitmap。
+ * <p>
+ * 结果不缩放到精确尺寸（不再多分配一张图），由绘制方按比例裁剪。
+ *
+ * @author Kido
+ */
+public class BitmapCodec implements ThumbnailLoader.Codec<Bitmap> {
+
+    @Override
+    public Bitmap decode(File file, int width, int height, ReusePool<Bitmap> pool) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("not an image: " + file);
+        }
+        int sampleSize = HeaderImageLoader.calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inSampleSize = sampleSize;
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap reuse = null;
+        if (Build.VERSION.SDK_INT >= 19) { // 更早的版本只能复用尺寸完全相同且不降采样的图
+            int outWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+            int outHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+            reuse = pool.take(outWidth * outHeight * 2);
+            options.inMutable = true;
+            options.inBitmap = reuse;
+        }
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) { // inBitmap不合适
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (OutOfMemoryError e) {
+            throw new IOException("OOM decoding " + file);
+        }
+        if (bitmap == null) {
+            throw new IOException("decode failed: " + file);
+        }
+        return bitmap;
+    }
+
+    @Override
+    public int sizeOf(Bitmap image) {
+        return Build.VERSION.SDK_INT >= 19 ? image.getAllocationByteCount() : image.getByteCount();
+    }
+}
@@ -0,0 +1,232 @@
+package com.kido.ucmaindemo.image;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 磁盘LRU缓存，每个key一个文件（文件名为key的MD5），总大小超出上限时删除最久未用的文件。
+ * <p>
+ * 第一次使用时按文件修改时间重建访问顺序，命中时更新修改时间，重启后顺序大致保留。
+ * 写入时先写临时文件再改名，读到的文件总是完整的。要在锁外读文件时用{@link #acquire}/{@link #putAndAcquire}
+ * 钉住，读完{@link #release}，钉住期间不会被淘汰。线程安全，应在后台线程使用。
+ *
+ * @author Kido
+ */
+public class DiskLruCache {
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final AtomicInteger sTmpCounter = new AtomicInteger();
+
+    private final File mDir;
+    private final long mMaxBytes;
+    private final LinkedHashMap<String, Long> mSizes = new LinkedHashMap<>(16, 0.75f, true); // 文件名 -> 大小，按访问排序
+    private final HashMap<String, Integer> mPinned = new HashMap<>(); // 文件名 -> 钉住次数
+    private long mBytes;
+    private boolean mLoaded;
+
+    public DiskLruCache(File dir, long maxBytes) {
+        mDir = dir;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @return key对应的文件，不存在返回null
+     */
+    public synchronized File get(String key) {
+        return get(key, false);
+    }
+
+    /**
+     * 同{@link #get}，命中时钉住文件，用完须调用{@link #release}
+     */
+    public synchronized File acquire(String key) {
+        return get(key, true);
+    }
+
+    /**
+     * 解除{@link #acquire}/{@link #putAndAcquire}的钉住，超出上限时补做淘汰
+     */
+    public synchronized void release(String key) {
+        String name = fileName(key);
+        Integer count = mPinned.get(name);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mPinned.put(name, count - 1);
+        } else {
+            mPinned.remove(name);
+            trimToSize(mMaxBytes);
+        }
+    }
+
+    private File get(String key, boolean pin) {
+        ensureLoaded();
+        String name = fileName(key);
+        if (mSizes.get(name) == null) {
+            return null;
+        }
+        File file = new File(mDir, name);
+        if (!file.exists()) { // 被外部删除
+            mBytes -= mSizes.remove(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        if (pin) {
+            pin(name);
+        }
+        return file;
+    }
+
+    /**
+     * 把in的全部内容存为key对应的文件（in由调用方关闭）
+     *
+     * @return 存入的文件
+     */
+    public File put(String key, InputStream in) throws IOException {
+        return put(key, in, false);
+    }
+
+    /**
+     * 同{@link #put}，存入的文件在淘汰前被钉住，用完须调用{@link #release}
+     */
+    public File putAndAcquire(String key, InputStream in) throws IOException {
+        return put(key, in, true);
+    }
+
+    private File put(String key, InputStream in, boolean pin) throws IOException {
+        synchronized (this) {
+            ensureLoaded();
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                throw new IOException("can not create " + mDir);
+            }
+        }
+        String name = fileName(key);
+        File tmp = new File(mDir, name + "." + sTmpCounter.incrementAndGet() + TMP_SUFFIX);
+        long size = 0;
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                size += n;
+            }
+        } catch (IOException e) {
+            out.close();
+            tmp.delete();
+            throw e;
+        }
+        out.close();
+        synchronized (this) {
+            File file = new File(mDir, name);
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("rename failed: " + tmp);
+            }
+            Long old = mSizes.put(name, size);
+            mBytes += size - (old == null ? 0 : old);
+            if (pin) {
+                pin(name);
+            }
+            trimToSize(mMaxBytes);
+            return file;
+        }
+    }
+
+    public synchronized void remove(String key) {
+        ensureLoaded();
+        String name = fileName(key);
+        Long size = mSizes.remove(name);
+        if (size != null) {
+            mBytes -= size;
+            new File(mDir, name).delete();
+        }
+    }
+
+    public synchronized long size() {
+        ensureLoaded();
+        return mBytes;
+    }
+
+    /**
+     * 从最久未用的开始删除，直到总大小不超过maxBytes；钉住的文件跳过
+     */
+    public synchronized void trimToSize(long maxBytes) {
+        ensureLoaded();
+        Iterator<Map.Entry<String, Long>> it = mSizes.entrySet().iterator();
+        while (mBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (mPinned.containsKey(eldest.getKey())) {
+                continue;
+            }
+            new File(mDir, eldest.getKey()).delete();
+            mBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void pin(String name) {
+        Integer count = mPinned.get(name);
+        mPinned.put(name, count == null ? 1 : count + 1);
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        File[] files = mDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return modified[a] < modified[b] ? -1 : (modified[a] == modified[b] ? 0 : 1);
+            }
+        });
+        for (Integer i : order) {
+            File file = files[i];
+            if (file.getName().endsWith(TMP_SUFFIX)) { // 上次写到一半
+                file.delete();
+                continue;
+            }
+            mSizes.put(file.getName(), file.length());
+            mBytes += file.length();
+        }
+        trimToSize(mMaxBytes);
+    }
+
+    static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
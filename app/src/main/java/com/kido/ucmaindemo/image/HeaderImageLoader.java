@@ -0,0 +1,170 @@
+package com.kido.ucmaindemo.image;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.v4.util.LruCache;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.executor.CancellationToken;
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+import com.kido.ucmaindemo.utils.Logger;
+
+/**
+ * 头部大图加载。
+ * <p>
+ * 按ImageView实际显示的尺寸在UI关键线程池中解码（先inSampleSize降采样，再缩放到精确尺寸），
+ * 图片不含alpha时使用RGB_565。解码结果放在一个跨Activity的小缓存中，解码完成前显示纯色占位；
+ * 开始解码前ImageView已从窗口移除的（如Activity已关闭）不再解码。
+ *
+ * @author Kido
+ */
+public class HeaderImageLoader {
+    private static final String TAG = "HeaderImageLoader";
+
+    private static final int CACHE_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(CACHE_MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    static { // 正在显示的bitmap被ImageView引用，移出缓存只是不再额外持有
+        MemoryCoordinator.getDefault().register(TAG, MemoryCoordinator.PRIORITY_CACHE, new MemoryCoordinator.Trimmable() {
+            @Override
+            public void onTrim(int stage) {
+                if (stage >= MemoryCoordinator.STAGE_ALL) {
+                    sCache.evictAll();
+                } else {
+                    sCache.trimToSize(sCache.size() / 2);
+                }
+            }
+
+            @Override
+            public String describe() {
+                return sCache.size() / 1024 + " KB, " + sCache.snapshot().size() + " bitmaps";
+            }
+        });
+    }
+
+    /**
+     * 加载图片到imageView，尺寸未确定时等到第一次绘制前再加载
+     *
+     * @param imageView        目标view，需为fitXY
+     * @param resId            图片资源
+     * @param placeholderColor 解码完成前的占位颜色
+     */
+    public static void load(final ImageView imageView, @DrawableRes final int resId, @ColorInt final int placeholderColor) {
+        if (imageView.getWidth() > 0 && imageView.getHeight() > 0) {
+            loadSized(imageView, resId, placeholderColor);
+            return;
+        }
+        imageView.setImageDrawable(new ColorDrawable(placeholderColor));
+        imageView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                imageView.getViewTreeObserver().removeOnPreDrawListener(this);
+                loadSized(imageView, resId, placeholderColor);
+                return true;
+            }
+        });
+    }
+
+    private static void loadSized(final ImageView imageView, @DrawableRes final int resId, @ColorInt int placeholderColor) {
+        final int width = imageView.getWidth() - imageView.getPaddingLeft() - imageView.getPaddingRight();
+        final int height = imageView.getHeight() - imageView.getPaddingTop() - imageView.getPaddingBottom();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        final String key = resId + "_" + width + "x" + height;
+        imageView.setTag(R.id.tag_image_request_key, key);
+        Bitmap cached = sCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+        imageView.setImageDrawable(new ColorDrawable(placeholderColor));
+        final Resources resources = imageView.getResources();
+        final AppExecutors executors = AppExecutors.getDefault();
+        CancellationToken token = AppExecutors.newViewToken(imageView);
+        executors.getUiPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decode(resources, resId, width, height);
+                if (bitmap == null) {
+                    return;
+                }
+                sCache.put(key, bitmap);
+                executors.getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (key.equals(imageView.getTag(R.id.tag_image_request_key))) {
+                            imageView.setImageBitmap(bitmap);
+                        }
+                    }
+                });
+            }
+        }, token);
+    }
+
+    /**
+     * 解码成刚好width*height大小的bitmap
+     */
+    static Bitmap decode(Resources resources, @DrawableRes int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false; // 自己控制缩放，不按density放大
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        Bitmap sampled;
+        try {
+            sampled = BitmapFactory.decodeResource(resources, resId, options);
+        } catch (OutOfMemoryError e) {
+            Logger.e(TAG, "decode-> OOM, resId=%s", resId);
+            return null;
+        }
+        if (sampled == null) {
+            return null;
+        }
+        Bitmap.Config config = sampled.hasAlpha() ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+        if (sampled.getWidth() == width && sampled.getHeight() == height && sampled.getConfig() == config) {
+            return sampled;
+        }
+        Bitmap result = Bitmap.createBitmap(width, height, config);
+        Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(sampled, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+        sampled.recycle();
+        Logger.d(TAG, "decode-> sampleSize=%s, result=%sx%s, config=%s", options.inSampleSize, width, height, config);
+        return result;
+    }
+
+    /**
+     * 在保证不小于目标尺寸的前提下取最大的2的幂
+     */
+    static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= reqWidth && srcHeight / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    public static void clearCache() {
+        sCache.evictAll();
+    }
+}
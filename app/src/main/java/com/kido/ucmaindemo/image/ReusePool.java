@@ -0,0 +1,79 @@
+package com.kido.ucmaindemo.image;
+
+import java.util.ArrayList;
+
+/**
+ * 可复用图片（如用于inBitmap的Bitmap）的池，按字节数限制总大小，超出时丢弃最早放入的。
+ * 取出时选不小于所需字节数的最小一个，且不超过所需的两倍，避免用大图承载小图浪费内存。线程安全。
+ *
+ * @author Kido
+ */
+public class ReusePool<T> {
+
+    /**
+     * 计算图片占用的字节数
+     */
+    public interface Sizer<T> {
+        int sizeOf(T image);
+    }
+
+    private final Sizer<T> mSizer;
+    private final long mMaxBytes;
+    private final ArrayList<T> mImages = new ArrayList<>();
+    private long mBytes;
+    private int mReuseCount;
+
+    public ReusePool(Sizer<T> sizer, long maxBytes) {
+        mSizer = sizer;
+        mMaxBytes = maxBytes;
+    }
+
+    public synchronized void put(T image) {
+        int size = mSizer.sizeOf(image);
+        if (size > mMaxBytes) {
+            return;
+        }
+        mImages.add(image);
+        mBytes += size;
+        while (mBytes > mMaxBytes) {
+            mBytes -= mSizer.sizeOf(mImages.remove(0));
+        }
+    }
+
+    /**
+     * @return 合适的图片，没有时返回null
+     */
+    public synchronized T take(int minBytes) {
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (int i = 0, z = mImages.size(); i < z; i++) {
+            int size = mSizer.sizeOf(mImages.get(i));
+            if (size >= minBytes && size <= minBytes * 2L && size < bestSize) {
+                best = i;
+                bestSize = size;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        mBytes -= bestSize;
+        mReuseCount++;
+        return mImages.remove(best);
+    }
+
+    /**
+     * @return 取出复用的次数
+     */
+    public synchronized int getReuseCount() {
+        return mReuseCount;
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    public synchronized void clear() {
+        mImages.clear();
+        mBytes = 0;
+    }
+}
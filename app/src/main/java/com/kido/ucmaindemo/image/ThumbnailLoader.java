@@ -0,0 +1,459 @@
+package com.kido.ucmaindemo.image;
+
+import com.kido.ucmaindemo.utils.Logger;
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 缩略图加载：内存缓存 -> 磁盘缓存 -> 下载，后台固定数量的线程解码。
+ * <p>
+ * <ul>
+ * <li>排队的请求按与所在列表可见范围（{@link Viewport}）的距离排序，可见的先加载；排队过多时丢弃最远的</li>
+ * <li>内存缓存按字节数LRU淘汰；图片被显示期间（请求未取消）计引用，淘汰后且没有引用时放入{@link ReusePool}供解码复用</li>
+ * <li>条目view被复用时取消原来的请求，尚未开始的不再加载，已加载的释放引用</li>
+ * <li>同一url、同一尺寸的请求合并为一次加载</li>
+ * </ul>
+ * 与具体图片类型无关（解码由{@link Codec}完成），可在JVM上测试。
+ *
+ * @author Kido
+ */
+public class ThumbnailLoader<T> {
+    private static final String TAG = "ThumbnailLoader";
+
+    private static final int MAX_PENDING = 64;
+
+    /**
+     * 把文件解码为图片
+     */
+    public interface Codec<T> extends ReusePool.Sizer<T> {
+        /**
+         * @param width  需要的宽，结果不小于它（按比例）即可
+         * @param height 需要的高
+         * @param pool   可复用的图片
+         */
+        T decode(File file, int width, int height, ReusePool<T> pool) throws IOException;
+    }
+
+    /**
+     * 下载url的内容
+     */
+    public interface Fetcher {
+        InputStream open(String url) throws IOException;
+    }
+
+    public interface Target<T> {
+        /**
+         * 内存命中时在{@link #load}中同步回调，否则在交付executor上回调
+         */
+        void onThumbnailLoaded(String url, T image);
+    }
+
+    /**
+     * 一个列表的可见范围，由滚动回调更新
+     */
+    public static class Viewport {
+        private volatile int mFirst;
+        private volatile int mLast;
+
+        /**
+         * @param first 第一个可见位置
+         * @param last  最后一个可见位置（含）
+         */
+        public void set(int first, int last) {
+            mFirst = first;
+            mLast = last;
+        }
+
+        int distanceTo(int position) {
+            int first = mFirst;
+            int last = mLast;
+            if (position < first) {
+                return first - position;
+            }
+            return position > last ? position - last : 0;
+        }
+    }
+
+    private static final class Entry<T> {
+        final T image;
+        final int size;
+        int refs;
+        boolean cached = true;
+
+        Entry(T image, int size) {
+            this.image = image;
+            this.size = size;
+        }
+    }
+
+    private final class Job {
+        final String url;
+        final String key;
+        final int width;
+        final int height;
+        final ArrayList<Request> requests = new ArrayList<>(1);
+
+        Job(String url, String key, int width, int height) {
+            this.url = url;
+            this.key = key;
+            this.width = width;
+            this.height = height;
+        }
+
+        int distance() {
+            int distance = Integer.MAX_VALUE;
+            for (int i = 0, z = requests.size(); i < z; i++) {
+                Request request = requests.get(i);
+                distance = Math.min(distance, request.mViewport.distanceTo(request.mPosition));
+            }
+            return distance;
+        }
+    }
+
+    /**
+     * 一次加载请求，条目view被复用或销毁时需要{@link #cancel()}
+     */
+    public final class Request {
+        private final Viewport mViewport;
+        private final int mPosition;
+        private final Target<T> mTarget;
+        private Job mJob; // 排队或加载中
+        private Entry<T> mEntry; // 已交付
+        private boolean mCancelled;
+
+        Request(Viewport viewport, int position, Target<T> target) {
+            mViewport = viewport;
+            mPosition = position;
+            mTarget = target;
+        }
+
+        public void cancel() {
+            synchronized (ThumbnailLoader.this) {
+                if (mCancelled) {
+                    return;
+                }
+                mCancelled = true;
+                if (mJob != null) {
+                    mJob.requests.remove(this);
+                    if (mJob.requests.isEmpty() && mPending.remove(mJob)) {
+                        mJobs.remove(mJob.key);
+                    }
+                    mJob = null;
+                    mCancelledCount++;
+                }
+                if (mEntry != null) {
+                    release(mEntry);
+                    mEntry = null;
+                }
+            }
+        }
+    }
+
+    private final Fetcher mFetcher;
+    private final DiskLruCache mDisk;
+    private final Codec<T> mCodec;
+    private final ReusePool<T> mPool;
+    private final Executor mDelivery;
+    private final long mMaxMemoryBytes;
+    private final Thread[] mWorkers;
+
+    // 以下由this保护
+    private final LinkedHashMap<String, Entry<T>> mMemory = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMemoryBytes;
+    private final HashMap<String, Job> mJobs = new HashMap<>(); // 排队和加载中的
+    private final ArrayList<Job> mPending = new ArrayList<>();
+    private boolean mClosed;
+    private int mMemoryHits;
+    private int mDiskHits;
+    private int mFetches;
+    private int mDecodes;
+    private int mCancelledCount;
+    private int mDropped;
+
+    /**
+     * @param delivery 交付结果的executor，通常是主线程
+     * @param threads  解码线程数
+     */
+    public ThumbnailLoader(Fetcher fetcher, DiskLruCache disk, Codec<T> codec, ReusePool<T> pool,
+                           long maxMemoryBytes, Executor delivery, int threads) {
+        this(fetcher, disk, codec, pool, maxMemoryBytes, delivery, threads, new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG + "-" + mCount++);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param threadFactory 创建解码线程
+     */
+    public ThumbnailLoader(Fetcher fetcher, DiskLruCache disk, Codec<T> codec, ReusePool<T> pool,
+                           long maxMemoryBytes, Executor delivery, int threads, ThreadFactory threadFactory) {
+        mFetcher = fetcher;
+        mDisk = disk;
+        mCodec = codec;
+        mPool = pool;
+        mMaxMemoryBytes = maxMemoryBytes;
+        mDelivery = delivery;
+        mWorkers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            mWorkers[i] = threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    Job job;
+                    while ((job = takeJob()) != null) {
+                        runJob(job);
+                    }
+                }
+            });
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * 加载url的缩略图，内存命中时直接回调
+     *
+     * @param viewport 所在列表的可见范围
+     * @param position 条目在列表中的位置
+     */
+    public Request load(String url, int width, int height, Viewport viewport, int position, Target<T> target) {
+        String key = url + '#' + width + 'x' + height;
+        Request request = new Request(viewport, position, target);
+        Entry<T> entry;
+        synchronized (this) {
+            entry = mMemory.get(key);
+            if (entry != null) {
+                mMemoryHits++;
+                entry.refs++;
+                request.mEntry = entry;
+            } else {
+                Job job = mJobs.get(key);
+                if (job == null) {
+                    job = new Job(url, key, width, height);
+                    mJobs.put(key, job);
+                    mPending.add(job);
+                    if (mPending.size() > MAX_PENDING) {
+                        dropFarthest();
+                    }
+                    notify();
+                }
+                job.requests.add(request);
+                request.mJob = job;
+            }
+        }
+        if (entry != null) {
+            target.onThumbnailLoaded(url, entry.image);
+        }
+        return request;
+    }
+
+    /**
+     * 把内存缓存缩小到maxBytes以内，并清空复用池，用于内存紧张时
+     */
+    public synchronized void trimMemory(long maxBytes) {
+        trimToSize(maxBytes);
+        mPool.clear();
+    }
+
+    /**
+     * 停止解码线程，排队的请求不再处理
+     */
+    public synchronized void close() {
+        mClosed = true;
+        notifyAll();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return mMemoryBytes;
+    }
+
+    public synchronized int getMemoryHits() {
+        return mMemoryHits;
+    }
+
+    public synchronized int getDiskHits() {
+        return mDiskHits;
+    }
+
+    public synchronized int getFetches() {
+        return mFetches;
+    }
+
+    public synchronized int getDecodes() {
+        return mDecodes;
+    }
+
+    public synchronized int getCancelled() {
+        return mCancelledCount;
+    }
+
+    /**
+     * @return 排队过多而被丢弃的加载数
+     */
+    public synchronized int getDropped() {
+        return mDropped;
+    }
+
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * 取出离可见范围最近的排队任务，没有时等待，关闭后返回null
+     */
+    private synchronized Job takeJob() {
+        while (!mClosed && mPending.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }
+        if (mClosed) {
+            return null;
+        }
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0, z = mPending.size(); i < z; i++) {
+            int distance = mPending.get(i).distance();
+            if (distance < bestDistance) { // 距离相同时先来的优先
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return mPending.remove(best);
+    }
+
+    private void dropFarthest() {
+        int worst = 0;
+        int worstDistance = -1;
+        for (int i = 0, z = mPending.size(); i < z; i++) {
+            int distance = mPending.get(i).distance();
+            if (distance >= worstDistance) { // 距离相同时丢后来的
+                worst = i;
+                worstDistance = distance;
+            }
+        }
+        Job job = mPending.remove(worst);
+        mJobs.remove(job.key);
+        for (Request request : job.requests) {
+            request.mJob = null;
+        }
+        mDropped++;
+    }
+
+    private void runJob(final Job job) {
+        T image;
+        try {
+            File file = mDisk.acquire(job.url); // 钉住，解码前不会被其他线程的put淘汰
+            boolean fetched = file == null;
+            if (fetched) {
+                InputStream in = mFetcher.open(job.url);
+                try {
+                    file = mDisk.putAndAcquire(job.url, in);
+                } finally {
+                    in.close();
+                }
+            }
+            try {
+                image = mCodec.decode(file, job.width, job.height, mPool);
+            } finally {
+                mDisk.release(job.url);
+            }
+            synchronized (this) {
+                if (fetched) {
+                    mFetches++;
+                } else {
+                    mDiskHits++;
+                }
+                mDecodes++;
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.e(TAG, "runJob-> url=%s, failed: %s", job.url, e);
+            synchronized (this) {
+                mJobs.remove(job.key);
+                for (Request request : job.requests) {
+                    request.mJob = null;
+                }
+            }
+            return;
+        }
+        final Entry<T> entry = new Entry<>(image, mCodec.sizeOf(image));
+        final ArrayList<Request> requests;
+        synchronized (this) {
+            mJobs.remove(job.key);
+            Entry<T> old = mMemory.put(job.key, entry);
+            mMemoryBytes += entry.size;
+            if (old != null) {
+                evicted(old);
+            }
+            trimToSize(mMaxMemoryBytes);
+            requests = new ArrayList<>(job.requests);
+            for (Request request : requests) {
+                request.mJob = null;
+                entry.refs++; // 交付前先占住，避免交付前被淘汰复用
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        mDelivery.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Request request : requests) {
+                    boolean deliver;
+                    synchronized (ThumbnailLoader.this) {
+                        deliver = !request.mCancelled;
+                        if (deliver) {
+                            request.mEntry = entry;
+                        } else {
+                            release(entry);
+                        }
+                    }
+                    if (deliver) {
+                        request.mTarget.onThumbnailLoaded(job.url, entry.image);
+                    }
+                }
+            }
+        });
+    }
+
+    private void trimToSize(long maxBytes) {
+        Iterator<Map.Entry<String, Entry<T>>> it = mMemory.entrySet().iterator();
+        while (mMemoryBytes > maxBytes && it.hasNext()) {
+            Entry<T> eldest = it.next().getValue();
+            it.remove();
+            evicted(eldest);
+        }
+        PerfMetrics.set(PerfMetrics.THUMBNAIL_MEMORY_BYTES, mMemoryBytes);
+    }
+
+    private void evicted(Entry<T> entry) {
+        mMemoryBytes -= entry.size;
+        entry.cached = false;
+        if (entry.refs == 0) {
+            mPool.put(entry.image);
+        }
+    }
+
+    private void release(Entry<T> entry) {
+        if (--entry.refs == 0 && !entry.cached) {
+            mPool.put(entry.image);
+        }
+    }
+}
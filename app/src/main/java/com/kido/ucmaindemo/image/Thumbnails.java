@@ -0,0 +1,49 @@
+package com.kido.ucmaindemo.image;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+
+import com.kido.ucmaindemo.MyApplication;
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+
+import java.io.File;
+
+/**
+ * 应用中共用的Bitmap缩略图加载器。解码线程按可见范围自己调度，只从{@link AppExecutors}取线程
+ *
+ * @author Kido
+ */
+public class Thumbnails {
+
+    private static final long DISK_MAX_BYTES = 16 * 1024 * 1024;
+    private static final long POOL_MAX_BYTES = 2 * 1024 * 1024;
+    private static final int DECODE_THREADS = 2;
+
+    private static ThumbnailLoader<Bitmap> sDefault;
+
+    public static synchronized ThumbnailLoader<Bitmap> getDefault() {
+        if (sDefault == null) {
+            BitmapCodec codec = new BitmapCodec();
+            long memoryBytes = Math.min(Runtime.getRuntime().maxMemory() / 16, 8 * 1024 * 1024);
+            sDefault = new ThumbnailLoader<>(new UrlFetcher(),
+                    new DiskLruCache(new File(MyApplication.getContext().getCacheDir(), "thumbnails"), DISK_MAX_BYTES),
+                    codec, new ReusePool<>(codec, POOL_MAX_BYTES), memoryBytes, AppExecutors.getDefault().getMainExecutor(),
+                    DECODE_THREADS, AppExecutors.newThreadFactory("thumbnail", Process.THREAD_PRIORITY_BACKGROUND));
+            final ThumbnailLoader<Bitmap> loader = sDefault;
+            MemoryCoordinator.getDefault().register("thumbnails", MemoryCoordinator.PRIORITY_CACHE,
+                    new MemoryCoordinator.Trimmable() {
+                        @Override
+                        public void onTrim(int stage) {
+                            loader.trimMemory(stage >= MemoryCoordinator.STAGE_ALL ? 0 : loader.getMemoryBytes() / 2);
+                        }
+
+                        @Override
+                        public String describe() {
+                            return loader.getMemoryBytes() / 1024 + " KB";
+                        }
+                    });
+        }
+        return sDefault;
+    }
+}
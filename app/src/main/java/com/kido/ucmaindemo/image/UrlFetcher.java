@@ -0,0 +1,32 @@
+package com.kido.ucmaindemo.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * 通过{@link URL}下载，支持http(s)，也支持file:（本地文件代替远程图片，用于测试和模拟数据）
+ *
+ * @author Kido
+ */
+public class UrlFetcher implements ThumbnailLoader.Fetcher {
+
+    private static final int TIMEOUT_MS = 10 * 1000;
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        if (connection instanceof HttpURLConnection) {
+            int code = ((HttpURLConnection) connection).getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                ((HttpURLConnection) connection).disconnect();
+                throw new IOException("HTTP " + code + ": " + url);
+            }
+        }
+        return connection.getInputStream();
+    }
+}
@@ -0,0 +1,190 @@
+package com.kido.ucmaindemo.memory;
+
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存紧张时的统一释放，不依赖Android API。
+ * <p>
+ * 各缓存和对象池按优先级注册：{@link #PRIORITY_SPECULATIVE}为预先准备、丢了不损失什么的（预创建的view、复用池），
+ * {@link #PRIORITY_CACHE}为可以重新解码、排版或从磁盘读回的缓存，{@link #PRIORITY_DATA}为需要重新加载的数据。
+ * {@link com.kido.ucmaindemo.MyApplication}收到的onTrimMemory级别先换算为释放阶段（{@link #stageFor(int)}），
+ * 阶段n释放优先级不高于n的组件，先释放便宜的；组件按阶段自己决定释放多少。
+ * 注册方持有的对象（如Activity中的池）需在销毁时{@link #unregister(Trimmable)}。
+ *
+ * @author Kido
+ */
+public class MemoryCoordinator {
+
+    // 与ComponentCallbacks2中的取值一致
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+    public static final int TRIM_MEMORY_MODERATE = 60;
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    public static final int STAGE_NONE = 0;
+    /**
+     * 只释放预先准备的对象
+     */
+    public static final int STAGE_SPECULATIVE = 1;
+    /**
+     * 再缩减可以重建的缓存
+     */
+    public static final int STAGE_CACHES = 2;
+    /**
+     * 释放所有能释放的，包括不在显示的数据
+     */
+    public static final int STAGE_ALL = 3;
+
+    public static final int PRIORITY_SPECULATIVE = STAGE_SPECULATIVE;
+    public static final int PRIORITY_CACHE = STAGE_CACHES;
+    public static final int PRIORITY_DATA = STAGE_ALL;
+
+    /**
+     * 可释放内存的组件，回调在调用{@link #onTrimMemory(int)}的线程（主线程）
+     */
+    public interface Trimmable {
+        /**
+         * @param stage STAGE_*，不小于注册时的优先级
+         */
+        void onTrim(int stage);
+
+        /**
+         * @return 当前占用的描述（大小、条数），调试用
+         */
+        String describe();
+    }
+
+    private static final class Registration {
+        final String name;
+        final int priority;
+        final Trimmable trimmable;
+
+        Registration(String name, int priority, Trimmable trimmable) {
+            this.name = name;
+            this.priority = priority;
+            this.trimmable = trimmable;
+        }
+    }
+
+    private static MemoryCoordinator sDefault;
+
+    private final List<Registration> mRegistrations = new ArrayList<>(); // 按优先级排序，同优先级按注册顺序
+    private int mLastStage = STAGE_NONE;
+
+    public static synchronized MemoryCoordinator getDefault() {
+        if (sDefault == null) {
+            sDefault = new MemoryCoordinator();
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param name     显示在{@link #dump()}中
+     * @param priority PRIORITY_*
+     */
+    public synchronized void register(String name, int priority, Trimmable trimmable) {
+        int index = mRegistrations.size();
+        while (index > 0 && mRegistrations.get(index - 1).priority > priority) {
+            index--;
+        }
+        mRegistrations.add(index, new Registration(name, priority, trimmable));
+    }
+
+    public synchronized void unregister(Trimmable trimmable) {
+        for (int i = mRegistrations.size() - 1; i >= 0; i--) {
+            if (mRegistrations.get(i).trimmable == trimmable) {
+                mRegistrations.remove(i);
+            }
+        }
+    }
+
+    /**
+     * 运行中的级别按紧张程度递进；进入后台（UI_HIDDEN、BACKGROUND）时缩减缓存，快要被杀时全部释放
+     */
+    public static int stageFor(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            return STAGE_ALL;
+        }
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            return STAGE_CACHES;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            return STAGE_ALL;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            return STAGE_CACHES;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            return STAGE_SPECULATIVE;
+        }
+        return STAGE_NONE;
+    }
+
+    /**
+     * @param level ComponentCallbacks2中的TRIM_MEMORY_*
+     * @return 执行的阶段
+     */
+    public int onTrimMemory(int level) {
+        int stage = stageFor(level);
+        trim(stage);
+        return stage;
+    }
+
+    /**
+     * @return 执行的阶段
+     */
+    public int onLowMemory() {
+        return onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    /**
+     * 按顺序释放优先级不高于stage的组件
+     */
+    public void trim(int stage) {
+        if (stage == STAGE_NONE) {
+            return;
+        }
+        List<Registration> plan = new ArrayList<>();
+        synchronized (this) {
+            mLastStage = stage;
+            for (Registration registration : mRegistrations) {
+                if (registration.priority <= stage) {
+                    plan.add(registration);
+                }
+            }
+        }
+        PerfMetrics.set(PerfMetrics.MEMORY_TRIM_STAGE, stage);
+        for (Registration registration : plan) { // 锁外回调，组件可以在回调中注销
+            registration.trimmable.onTrim(stage);
+        }
+    }
+
+    public synchronized int getLastStage() {
+        return mLastStage;
+    }
+
+    /**
+     * @return 按释放顺序列出各组件及其占用，调试用；会调用各组件的describe，不要在释放的路径上无条件调用
+     */
+    public String dump() {
+        List<Registration> registrations;
+        synchronized (this) {
+            registrations = new ArrayList<>(mRegistrations);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Registration registration : registrations) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(registration.priority).append(' ').append(registration.name).append(": ")
+                    .append(registration.trimmable.describe());
+        }
+        return sb.toString();
+    }
+}
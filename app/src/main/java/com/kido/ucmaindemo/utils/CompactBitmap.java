@@ -0,0 +1,151 @@
+package com.kido.ucmaindemo.utils;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的int位图（Roaring bitmap的简化版），非线程安全。
+ * <p>
+ * 按高16位分桶，每桶最多65536个值：值少时存为有序char数组（每个值2字节），超过4096个时转为1024个long的位图（固定8KB）。
+ * 稀疏时不会像普通位图那样按最大值分配内存，稠密时每个值约1bit。
+ *
+ * @author Kido
+ */
+public class CompactBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private int[] mKeys = new int[4]; // 高16位，有序
+    private Object[] mContainers = new Object[4]; // char[]或long[]
+    private int[] mCardinalities = new int[4];
+    private int mContainerCount;
+    private int mCardinality;
+
+    public int cardinality() {
+        return mCardinality;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(mKeys, 0, mContainerCount, value >> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = mContainers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, mCardinalities[index], low) >= 0;
+    }
+
+    /**
+     * @return 原来不存在返回true
+     */
+    public boolean add(int value) {
+        int high = value >> 16;
+        char low = (char) value;
+        int index = Arrays.binarySearch(mKeys, 0, mContainerCount, high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high);
+        }
+        Object container = mContainers[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            words[low >>> 6] |= mask;
+        } else {
+            char[] values = (char[]) container;
+            int count = mCardinalities[index];
+            int pos = Arrays.binarySearch(values, 0, count, low);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            if (count == ARRAY_MAX) {
+                long[] words = toBitmap(values, count);
+                words[low >>> 6] |= 1L << low;
+                mContainers[index] = words;
+            } else {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+                    mContainers[index] = values;
+                }
+                System.arraycopy(values, pos, values, pos + 1, count - pos);
+                values[pos] = low;
+            }
+        }
+        mCardinalities[index]++;
+        mCardinality++;
+        return true;
+    }
+
+    /**
+     * @return 所有值，按高16位（有符号）再按低16位（无符号）排序
+     */
+    public int[] toArray() {
+        int[] result = new int[mCardinality];
+        int n = 0;
+        for (int i = 0; i < mContainerCount; i++) {
+            int base = mKeys[i] << 16;
+            Object container = mContainers[i];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        result[n++] = base | ((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int j = 0, z = mCardinalities[i]; j < z; j++) {
+                    result[n++] = base | values[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 估算占用的字节数
+     */
+    public long memoryBytes() {
+        long bytes = mKeys.length * 4L + mContainers.length * 4L + mCardinalities.length * 4L;
+        for (int i = 0; i < mContainerCount; i++) {
+            Object container = mContainers[i];
+            bytes += container instanceof long[] ? BITMAP_WORDS * 8L : ((char[]) container).length * 2L;
+        }
+        return bytes;
+    }
+
+    private void insertContainer(int index, int high) {
+        if (mContainerCount == mKeys.length) {
+            int size = mContainerCount * 2;
+            mKeys = Arrays.copyOf(mKeys, size);
+            mContainers = Arrays.copyOf(mContainers, size);
+            mCardinalities = Arrays.copyOf(mCardinalities, size);
+        }
+        int moved = mContainerCount - index;
+        System.arraycopy(mKeys, index, mKeys, index + 1, moved);
+        System.arraycopy(mContainers, index, mContainers, index + 1, moved);
+        System.arraycopy(mCardinalities, index, mCardinalities, index + 1, moved);
+        mKeys[index] = high;
+        mContainers[index] = new char[4];
+        mCardinalities[index] = 0;
+        mContainerCount++;
+    }
+
+    private static long[] toBitmap(char[] values, int count) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            char low = values[i];
+            words[low >>> 6] |= 1L << low;
+        }
+        return words;
+    }
+}
@@ -0,0 +1,162 @@
+package com.kido.ucmaindemo.utils;
+
+import java.util.Arrays;
+
+/**
+ * long的哈希集合，开放寻址（线性探测），不装箱。非线程安全。
+ *
+ * @author Kido
+ */
+public class LongHashSet {
+
+    private static final long FREE = 0; // 0作为空槽标记，0本身单独记录
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] mKeys;
+    private int mMask;
+    private int mSize; // 不含0
+    private int mThreshold;
+    private boolean mHasZero;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return mHasZero ? mSize + 1 : mSize;
+    }
+
+    public boolean contains(long key) {
+        if (key == FREE) {
+            return mHasZero;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long k = mKeys[index];
+            if (k == FREE) {
+                return false;
+            }
+            if (k == key) {
+                return true;
+            }
+            index = (index + 1) & mMask;
+        }
+    }
+
+    /**
+     * @return 原来不存在返回true
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            boolean added = !mHasZero;
+            mHasZero = true;
+            return added;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long k = mKeys[index];
+            if (k == FREE) {
+                mKeys[index] = key;
+                if (++mSize > mThreshold) {
+                    rehash(mKeys.length * 2);
+                }
+                return true;
+            }
+            if (k == key) {
+                return false;
+            }
+            index = (index + 1) & mMask;
+        }
+    }
+
+    /**
+     * @return 原来存在返回true
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            boolean removed = mHasZero;
+            mHasZero = false;
+            return removed;
+        }
+        int index = indexOf(key);
+        while (true) {
+            long k = mKeys[index];
+            if (k == FREE) {
+                return false;
+            }
+            if (k == key) {
+                shiftKeys(index);
+                mSize--;
+                return true;
+            }
+            index = (index + 1) & mMask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mKeys, FREE);
+        mSize = 0;
+        mHasZero = false;
+    }
+
+    /**
+     * 删除后把同一探测链上后面的key前移，保证查找不断链
+     */
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mMask;
+            long k;
+            while (true) {
+                k = mKeys[pos];
+                if (k == FREE) {
+                    mKeys[last] = FREE;
+                    return;
+                }
+                int slot = indexOf(k);
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mMask;
+            }
+            mKeys[last] = k;
+        }
+    }
+
+    private int indexOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mMask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = mKeys;
+        allocate(newCapacity);
+        for (long key : oldKeys) {
+            if (key != FREE) {
+                int index = indexOf(key);
+                while (mKeys[index] != FREE) {
+                    index = (index + 1) & mMask;
+                }
+                mKeys[index] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mMask = capacity - 1;
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
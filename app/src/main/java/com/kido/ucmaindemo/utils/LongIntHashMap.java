@@ -0,0 +1,186 @@
+package com.kido.ucmaindemo.utils;
+
+import java.util.Arrays;
+
+/**
+ * long到int的哈希表，开放寻址（线性探测），不装箱。非线程安全。
+ *
+ * @author Kido
+ */
+public class LongIntHashMap {
+
+    private static final long FREE = 0; // 0作为空槽标记，key为0的值单独记录
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mSize; // 不含0
+    private int mThreshold;
+    private boolean mHasZero;
+    private int mZeroValue;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return mHasZero ? mSize + 1 : mSize;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return mHasZero;
+        }
+        return mKeys[find(key)] != FREE;
+    }
+
+    /**
+     * @param missingValue key不存在时返回的值
+     */
+    public int get(long key, int missingValue) {
+        if (key == FREE) {
+            return mHasZero ? mZeroValue : missingValue;
+        }
+        int index = find(key);
+        return mKeys[index] == FREE ? missingValue : mValues[index];
+    }
+
+    public void put(long key, int value) {
+        if (key == FREE) {
+            mHasZero = true;
+            mZeroValue = value;
+            return;
+        }
+        int index = find(key);
+        if (mKeys[index] == FREE) {
+            mKeys[index] = key;
+            mValues[index] = value;
+            if (++mSize > mThreshold) {
+                rehash(mKeys.length * 2);
+            }
+        } else {
+            mValues[index] = value;
+        }
+    }
+
+    /**
+     * 给已存在的key的值加上delta，key不存在时不做任何事
+     */
+    public void adjust(long key, int delta) {
+        if (key == FREE) {
+            if (mHasZero) {
+                mZeroValue += delta;
+            }
+            return;
+        }
+        int index = find(key);
+        if (mKeys[index] != FREE) {
+            mValues[index] += delta;
+        }
+    }
+
+    /**
+     * @return 原来存在返回true
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            boolean removed = mHasZero;
+            mHasZero = false;
+            return removed;
+        }
+        int index = find(key);
+        if (mKeys[index] == FREE) {
+            return false;
+        }
+        shiftKeys(index);
+        mSize--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(mKeys, FREE);
+        mSize = 0;
+        mHasZero = false;
+    }
+
+    /**
+     * @return key所在的槽，不存在时返回探测链末尾的空槽
+     */
+    private int find(long key) {
+        int index = indexOf(key);
+        while (true) {
+            long k = mKeys[index];
+            if (k == FREE || k == key) {
+                return index;
+            }
+            index = (index + 1) & mMask;
+        }
+    }
+
+    /**
+     * 删除后把同一探测链上后面的key前移，保证查找不断链
+     */
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mMask;
+            long k;
+            while (true) {
+                k = mKeys[pos];
+                if (k == FREE) {
+                    mKeys[last] = FREE;
+                    return;
+                }
+                int slot = indexOf(k);
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mMask;
+            }
+            mKeys[last] = k;
+            mValues[last] = mValues[pos];
+        }
+    }
+
+    private int indexOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mMask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = mKeys;
+        int[] oldValues = mValues;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE) {
+                int index = indexOf(key);
+                while (mKeys[index] != FREE) {
+                    index = (index + 1) & mMask;
+                }
+                mKeys[index] = key;
+                mValues[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,119 @@
+package com.kido.ucmaindemo.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 性能指标，固定槽位，任意线程可写，读写都不分配对象。
+ * <p>
+ * 由{@link com.kido.ucmaindemo.widget.debug.PerfHudView}展示。
+ *
+ * @author Kido
+ */
+public class PerfMetrics {
+
+    /**
+     * Bar动画期间硬件层占用的内存（字节）
+     */
+    public static final int BAR_LAYER_BYTES = 0;
+    /**
+     * 曝光缓冲区中等待写入的记录数
+     */
+    public static final int IMPRESSION_BACKLOG = 1;
+    /**
+     * 曝光缓冲区满而丢弃的记录数（累计）
+     */
+    public static final int IMPRESSION_DROPPED = 2;
+    /**
+     * 文本排版缓存未命中、在调用线程同步排版的次数（累计）
+     */
+    public static final int TEXT_LAYOUT_MISSES = 3;
+    /**
+     * 文本排版缓存的估算大小（字节）
+     */
+    public static final int TEXT_LAYOUT_BYTES = 4;
+    /**
+     * 缩略图内存缓存的大小（字节）
+     */
+    public static final int THUMBNAIL_MEMORY_BYTES = 5;
+    /**
+     * 频道ViewPager当前的offscreenPageLimit
+     */
+    public static final int OFFSCREEN_PAGE_LIMIT = 6;
+    /**
+     * offscreenPageLimit调整的次数（累计）
+     */
+    public static final int OFFSCREEN_LIMIT_CHANGES = 7;
+    /**
+     * 最近一次切换频道时主线程的耗时（纳秒），包括创建进入保留范围的页面
+     */
+    public static final int PAGE_SWITCH_NANOS = 8;
+    /**
+     * 各线程池中排队等待的任务数
+     */
+    public static final int EXECUTOR_QUEUED = 9;
+    /**
+     * UI关键线程池中最近一个任务排队等待的时间（纳秒）
+     */
+    public static final int EXECUTOR_UI_WAIT_NANOS = 10;
+    /**
+     * 最近一次内存释放的阶段，见{@link com.kido.ucmaindemo.memory.MemoryCoordinator}
+     */
+    public static final int MEMORY_TRIM_STAGE = 11;
+
+    private static final String[] NAMES = {
+            "bar layer KB",
+            "imp backlog",
+            "imp dropped",
+            "text misses",
+            "text cache KB",
+            "thumb cache KB",
+            "offscreen pages",
+            "offscreen changes",
+            "page switch ms",
+            "pool queued",
+            "ui pool wait ms",
+            "trim stage",
+    };
+
+    private static final int[] DIVISORS = {
+            1024,
+            1,
+            1,
+            1,
+            1024,
+            1024,
+            1,
+            1,
+            1000 * 1000,
+            1,
+            1000 * 1000,
+            1,
+    };
+
+    public static final int COUNT = NAMES.length;
+
+    private static final AtomicLongArray sValues = new AtomicLongArray(COUNT);
+
+    public static void set(int metric, long value) {
+        sValues.set(metric, value);
+    }
+
+    public static void add(int metric, long delta) {
+        sValues.addAndGet(metric, delta);
+    }
+
+    public static long get(int metric) {
+        return sValues.get(metric);
+    }
+
+    /**
+     * @return 按展示单位换算后的值
+     */
+    public static long getDisplayValue(int metric) {
+        return sValues.get(metric) / DIVISORS[metric];
+    }
+
+    public static String getName(int metric) {
+        return NAMES[metric];
+    }
+}
@@ -0,0 +1,133 @@
+package com.kido.ucmaindemo.widget;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.utils.Logger;
+
+/**
+ * 分步构建{@link OnlyUcNewsLayout}。
+ * <p>
+ * 在Bar开始合拢时{@link #start()}，布局在后台线程inflate，剩余的主线程工作（绑定view、逐个添加频道tab、关联ViewPager）
+ * 拆成若干步，利用合拢动画帧间的空闲时间（{@link MessageQueue.IdleHandler}）逐步完成。
+ * Bar合拢后调用{@link #finish()}同步完成剩下的步骤并取得构建好的layout。
+ *
+ * @author Kido
+ */
+public class NewsPageBuilder implements MessageQueue.IdleHandler {
+    private static final String TAG = "NewsPageBuilder";
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_INFLATING = 1;
+    private static final int STATE_STEPPING = 2;
+    private static final int STATE_DONE = 3;
+
+    private final Context mContext;
+    private OnlyUcNewsLayout mLayout;
+    private int mState = STATE_IDLE;
+    private boolean mPagerReady;
+    private int mRemainingStepsAtSwap = -1;
+
+    public NewsPageBuilder(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * 开始构建，重复调用无影响
+     */
+    public void start() {
+        if (mState != STATE_IDLE) {
+            return;
+        }
+        mState = STATE_INFLATING;
+        mLayout = new OnlyUcNewsLayout(mContext, true);
+        new AsyncLayoutInflater(mContext).inflate(R.layout.layout_onlyucnews, mLayout, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                if (mState == STATE_INFLATING) { // finish()已经同步inflate过的话忽略
+                    onContentInflated(view);
+                    Looper.myQueue().addIdleHandler(NewsPageBuilder.this);
+                }
+            }
+        });
+    }
+
+    public boolean isStarted() {
+        return mState != STATE_IDLE;
+    }
+
+    /**
+     * 剩余的工作量（步数）：inflate、每个未添加的频道、关联ViewPager各算一步
+     */
+    public int getRemainingSteps() {
+        switch (mState) {
+            case STATE_IDLE:
+            case STATE_INFLATING:
+                return 1 + mContext.getResources().getStringArray(R.array.news_tab_titles).length + 1;
+            case STATE_STEPPING:
+                return mLayout.getPendingChannelCount() + (mPagerReady ? 0 : 1);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return 调用{@link #finish()}时剩余的步数，未调用过则为-1
+     */
+    public int getRemainingStepsAtSwap() {
+        return mRemainingStepsAtSwap;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mState != STATE_STEPPING) {
+            return false;
+        }
+        performStep();
+        return mState == STATE_STEPPING;
+    }
+
+    /**
+     * 同步完成所有剩余步骤
+     *
+     * @return 构建好的layout
+     */
+    public OnlyUcNewsLayout finish() {
+        mRemainingStepsAtSwap = getRemainingSteps();
+        if (mState == STATE_IDLE) {
+            mLayout = new OnlyUcNewsLayout(mContext, true);
+        }
+        if (mState == STATE_IDLE || mState == STATE_INFLATING) {
+            onContentInflated(LayoutInflater.from(mContext).inflate(R.layout.layout_onlyucnews, mLayout, false));
+        }
+        Looper.myQueue().removeIdleHandler(this);
+        while (mState == STATE_STEPPING) {
+            performStep();
+        }
+        Logger.d(TAG, "finish-> remaining steps at swap=%s", mRemainingStepsAtSwap);
+        return mLayout;
+    }
+
+    private void onContentInflated(View content) {
+        mLayout.onContentInflated(content);
+        mState = STATE_STEPPING;
+    }
+
+    private void performStep() {
+        if (mLayout.getPendingChannelCount() > 0) {
+            mLayout.addNextChannel();
+        } else if (!mPagerReady) {
+            mLayout.setupPager();
+            mPagerReady = true;
+            mState = STATE_DONE;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.kido.ucmaindemo.widget;
+
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.kido.ucmaindemo.NewsChannelRegistry;
+import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
+
+/**
+ * 首页与信息流页面的切换容器。
+ * <p>
+ * 信息流页面{@link OnlyUcNewsLayout}只在第一次进入时构建并添加到容器中，之后的切换只改变两者的可见性，
+ * 不再重复inflate。首次构建可通过{@link #prepareNews()}提前交给{@link NewsPageBuilder}分步进行。
+ * 频道内容由{@link NewsChannelRegistry}在两个页面的ViewPager之间移动，列表数据和滚动位置随之保留。
+ *
+ * @author Kido
+ */
+public class NewsPageHost {
+
+    private final FrameLayout mContainer;
+    private final View mHomeView;
+    private final UcNewsContentPager mHomePager;
+    private final NewsChannelRegistry mChannelRegistry;
+    private OnlyUcNewsLayout mNewsLayout;
+    private NewsPageBuilder mBuilder;
+
+    private OnlyUcNewsLayout.OnGobackListener mOnGobackListener;
+
+    public NewsPageHost(FrameLayout container, View homeView, UcNewsContentPager homePager, NewsChannelRegistry channelRegistry) {
+        mContainer = container;
+        mHomeView = homeView;
+        mHomePager = homePager;
+        mChannelRegistry = channelRegistry;
+    }
+
+    public void setOnGobackListener(OnlyUcNewsLayout.OnGobackListener listener) {
+        mOnGobackListener = listener;
+        if (mNewsLayout != null) {
+            mNewsLayout.setOnGobackListener(listener);
+        }
+    }
+
+    /**
+     * 信息流页面还未构建的话，开始分步构建（一般在Bar开始合拢时调用）
+     */
+    public void prepareNews() {
+        if (mNewsLayout == null) {
+            if (mBuilder == null) {
+                mBuilder = new NewsPageBuilder(mContainer.getContext());
+            }
+            mBuilder.start();
+        }
+    }
+
+    /**
+     * 显示信息流页面，首次调用时构建
+     */
+    public void showNews() {
+        ensureNewsLayout();
+        mNewsLayout.setVisibility(View.VISIBLE);
+        mHomeView.setVisibility(View.GONE);
+        mChannelRegistry.attachTo(mNewsLayout.getContentPager(), false, new NewsChannelRegistry.OnTerminalListener() {
+            @Override
+            public void onTerminal() { // open header to go back home
+                if (mOnGobackListener != null) {
+                    mOnGobackListener.onGoback();
+                }
+            }
+        });
+    }
+
+    /**
+     * 回到首页，信息流页面只是隐藏
+     *
+     * @param onTerminalListener 首页中下拉到terminal时的回调
+     */
+    public void showHome(NewsChannelRegistry.OnTerminalListener onTerminalListener) {
+        mHomeView.setVisibility(View.VISIBLE);
+        mChannelRegistry.attachTo(mHomePager, true, onTerminalListener);
+        if (mNewsLayout != null) {
+            mNewsLayout.setVisibility(View.GONE);
+        }
+    }
+
+    public boolean isNewsShowing() {
+        return mNewsLayout != null && mNewsLayout.getVisibility() == View.VISIBLE;
+    }
+
+    public OnlyUcNewsLayout getNewsLayout() {
+        return mNewsLayout;
+    }
+
+    private void ensureNewsLayout() {
+        if (mNewsLayout == null) {
+            if (mBuilder == null) {
+                mBuilder = new NewsPageBuilder(mContainer.getContext());
+            }
+            mNewsLayout = mBuilder.finish();
+            mBuilder = null;
+            mNewsLayout.setOnGobackListener(mOnGobackListener);
+            mNewsLayout.setChannelRegistry(mChannelRegistry);
+            mContainer.addView(mNewsLayout, FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT);
+        }
+    }
+}
@@ -4,27 +4,22 @@ import android.content.Context;
 import android.support.annotation.AttrRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.design.widget.TabLayout;
-import android.support.v4.app.FragmentActivity;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
-import com.kido.ucmaindemo.NewsTagFragment;
+import com.kido.ucmaindemo.NewsChannelRegistry;
 import com.kido.ucmaindemo.R;
-import com.kido.ucmaindemo.adapter.TagFragmentAdapter;
 import com.kido.ucmaindemo.widget.main.UcNewsContentPager;
 import com.kido.ucmaindemo.widget.main.UcNewsTabLayout;
 import com.kido.ucmaindemo.widget.main.UcNewsTitleLayout;
-import com.kido.ucmaindemo.widget.refresh.KSwipeRefreshLayout;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 信息流頁面
+ * <p>
+ * 本身不持有频道fragment，内容由{@link NewsChannelRegistry}挂载到{@link #getContentPager()}上。
  *
  * @author Kido
  */
@@ -36,7 +31,9 @@ public class OnlyUcNewsLayout extends FrameLayout {
     private UcNewsContentPager mContentPager;
     private ImageView mBottomBar;
 
-    private List<NewsTagFragment> mFragments;
+    private NewsChannelRegistry mChannelRegistry;
+    private String[] mNewsTabTitles;
+    private int mAddedTabCount;
 
     private Context mContext;
 
@@ -47,6 +44,18 @@ public class OnlyUcNewsLayout extends FrameLayout {
         init(context);
     }
 
+    /**
+     * @param deferInit true的话只创建空容器，由{@link NewsPageBuilder}分步完成初始化
+     */
+    OnlyUcNewsLayout(@NonNull Context context, boolean deferInit) {
+        super(context);
+        if (deferInit) {
+            mContext = context;
+        } else {
+            init(context);
+        }
+    }
+
     public OnlyUcNewsLayout(@NonNull Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         init(context);
@@ -65,10 +74,40 @@ public class OnlyUcNewsLayout extends FrameLayout {
 
     private void init(Context context) {
         mContext = context;
-        LayoutInflater.from(mContext).inflate(R.layout.layout_onlyucnews, this);
+        onContentInflated(LayoutInflater.from(mContext).inflate(R.layout.layout_onlyucnews, this, false));
+        initTabsAndPager();
+    }
+
+    /**
+     * 添加已inflate好的内容并绑定view
+     *
+     * @param content R.layout.layout_onlyucnews
+     */
+    void onContentInflated(View content) {
+        addView(content);
         bindViews();
         initTitleAndHeader();
-        initTabsAndPager();
+        mNewsTabTitles = getResources().getStringArray(R.array.news_tab_titles);
+    }
+
+    /**
+     * @return 还未添加的频道数
+     */
+    int getPendingChannelCount() {
+        return mNewsTabTitles.length - mAddedTabCount;
+    }
+
+    /**
+     * 添加下一个频道的tab
+     *
+     * @return 是否还有未添加的频道
+     */
+    boolean addNextChannel() {
+        if (getPendingChannelCount() > 0) {
+            mTabLayout.addTab(mNewsTabTitles[mAddedTabCount]);
+            mAddedTabCount++;
+        }
+        return getPendingChannelCount() > 0;
     }
 
     private void initData() {
@@ -81,7 +120,7 @@ public class OnlyUcNewsLayout extends FrameLayout {
     private void bindViews() {
 
         mTitleLayout = (UcNewsTitleLayout) findViewById(R.id.titlebar_layout);
-        mContentPager = (UcNewsContentPager) findViewById(R.id.news_viewPager);
+        mContentPager = (UcNewsContentPager) findViewById(R.id.only_news_viewPager);
         mTabLayout = (UcNewsTabLayout) findViewById(R.id.news_tabLayout);
         mBottomBar = (ImageView) findViewById(R.id.bottom_bar);
         mBottomBar.setOnClickListener(new OnClickListener() {
@@ -99,40 +138,34 @@ public class OnlyUcNewsLayout extends FrameLayout {
         mTitleLayout.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                mFragments.get(mContentPager.getCurrentItem()).scrollToTop(true);
+                if (mChannelRegistry != null && mChannelRegistry.getHostPager() == mContentPager) {
+                    mChannelRegistry.getCurrentFragment().scrollToTop(true);
+                }
             }
         });
     }
 
 
     private void initTabsAndPager() {
-        String[] newsTabTitles = getResources().getStringArray(R.array.news_tab_titles);
-        mFragments = new ArrayList<>(newsTabTitles.length);
-        for (String title : newsTabTitles) {
-            mTabLayout.addTab(mTabLayout.newTab().setText(title));
-            NewsTagFragment fragment = NewsTagFragment.newInstance(title, false);
-            fragment.addOnRefreshListener(new KSwipeRefreshLayout.OnRefreshListener() {
-                @Override
-                public void onRefresh() {
-                    // do nothing, because something has been done inside the fragment.
-                }
-
-                @Override
-                public void onTerminal() { // open header to go back home
-                    if (mOnGobackListener != null) {
-                        mOnGobackListener.onGoback();
-                    }
-                }
-            });
-            mFragments.add(fragment);
+        while (getPendingChannelCount() > 0) {
+            addNextChannel();
         }
+        setupPager();
+    }
 
-        mTabLayout.setTabMode(TabLayout.MODE_SCROLLABLE);
+    void setupPager() {
         mContentPager.setupTabLayout(mTabLayout);
-        mContentPager.setAdapter(new TagFragmentAdapter(((FragmentActivity) getContext()).getSupportFragmentManager(), mFragments));
 
     }
 
+    public void setChannelRegistry(NewsChannelRegistry registry) {
+        mChannelRegistry = registry;
+    }
+
+    public UcNewsContentPager getContentPager() {
+        return mContentPager;
+    }
+
     public void setOnGobackListener(OnGobackListener listener) {
         this.mOnGobackListener = listener;
     }
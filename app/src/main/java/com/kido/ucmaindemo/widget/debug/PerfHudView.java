@@ -0,0 +1,277 @@
+package com.kido.ucmaindemo.widget.debug;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.kido.ucmaindemo.BuildConfig;
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+/**
+ * 调试用的性能浮层，显示实时FPS、最近120帧耗时曲线、内存分配速率、当前Bar/下拉状态以及{@link PerfMetrics}中的指标。
+ * <p>
+ * 帧时间由Choreographer回调写入预分配的环形数组，FPS和分配速率在后台线程统计，绘制过程不分配对象。
+ * 只在debug包中生效，release包中{@link #attach(Activity)}返回null。
+ *
+ * @author Kido
+ */
+public class PerfHudView extends View {
+
+    public static final String BAR_OPENED = "opened";
+    public static final String BAR_CLOSING = "closing";
+    public static final String BAR_CLOSED = "closed";
+    public static final String BAR_OPENING = "opening";
+
+    public static final String REFRESH_IDLE = "idle";
+    public static final String REFRESH_TERMINAL = "terminal";
+
+    private static final int FRAME_COUNT = 120;
+    private static final long SAMPLE_INTERVAL_MS = 500;
+    private static final float FRAME_BUDGET_MS = 16.67f;
+    private static final float GRAPH_MAX_MS = 50f;
+
+    private final long[] mFrameNanos = new long[FRAME_COUNT]; // 环形数组，保存每帧耗时(ns)
+    private volatile int mFrameIndex;
+    private long mLastFrameTimeNanos;
+    private volatile boolean mRunning;
+
+    private volatile int mFps;
+    private volatile int mAllocKbPerSec;
+    private long mLastHeapBytes = -1;
+    private long mLastSampleTime;
+
+    private String mBarState = BAR_OPENED;
+    private String mRefreshState = REFRESH_IDLE;
+
+    private final float[] mGraphPoints = new float[FRAME_COUNT * 4];
+    private final char[] mTextBuffer = new char[32];
+    private final Paint mBgPaint = new Paint();
+    private final Paint mGraphPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBudgetPaint = new Paint();
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float mLineHeight;
+    private final float mPadding;
+
+    private HandlerThread mSamplerThread;
+    private Handler mSamplerHandler;
+
+    private Choreographer.FrameCallback mFrameCallback;
+
+    private final Runnable mSampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            if (mRunning) {
+                mSamplerHandler.postDelayed(this, SAMPLE_INTERVAL_MS);
+            }
+        }
+    };
+
+    /**
+     * 将浮层添加到activity的根布局上（仅debug）。
+     *
+     * @param activity 宿主activity
+     * @return 添加好的浮层，release包返回null
+     */
+    public static PerfHudView attach(Activity activity) {
+        if (!BuildConfig.DEBUG) {
+            return null;
+        }
+        ViewGroup content = (ViewGroup) activity.findViewById(android.R.id.content);
+        PerfHudView hudView = new PerfHudView(activity);
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.TOP);
+        content.addView(hudView, params);
+        return hudView;
+    }
+
+    public PerfHudView(Context context) {
+        super(context);
+        mLineHeight = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11, getResources().getDisplayMetrics());
+        mPadding = mLineHeight / 2;
+        mBgPaint.setColor(0x99000000);
+        mGraphPaint.setColor(Color.GREEN);
+        mGraphPaint.setStrokeWidth(2f);
+        mBudgetPaint.setColor(Color.RED);
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextSize(mLineHeight);
+        setClickable(false);
+        setFocusable(false);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+    }
+
+    public void setBarState(String barState) {
+        mBarState = barState;
+    }
+
+    public void setRefreshState(String refreshState) {
+        mRefreshState = refreshState;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mRunning = true;
+        mSamplerThread = new HandlerThread("PerfHud", Process.THREAD_PRIORITY_BACKGROUND);
+        mSamplerThread.start();
+        mSamplerHandler = new Handler(mSamplerThread.getLooper());
+        mSamplerHandler.post(mSampleRunnable);
+        postFrameCallback();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mRunning = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        mSamplerHandler.removeCallbacks(mSampleRunnable);
+        mSamplerThread.quit();
+        super.onDetachedFromWindow();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * UI线程，每帧只记录一个long
+     */
+    private void onFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            int index = mFrameIndex;
+            mFrameNanos[index] = frameTimeNanos - mLastFrameTimeNanos;
+            mFrameIndex = (index + 1) % FRAME_COUNT;
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mRunning) {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * 后台线程，统计FPS与堆增长速率
+     */
+    private void sample() {
+        long totalNanos = 0;
+        int frames = 0;
+        int index = mFrameIndex;
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            long nanos = mFrameNanos[(index - 1 - i + FRAME_COUNT) % FRAME_COUNT];
+            if (nanos <= 0) {
+                break;
+            }
+            totalNanos += nanos;
+            frames++;
+            if (totalNanos >= 1000000000L) {
+                break;
+            }
+        }
+        mFps = totalNanos == 0 ? 0 : (int) (frames * 1000000000L / totalNanos);
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapBytes = runtime.totalMemory() - runtime.freeMemory();
+        long now = System.currentTimeMillis();
+        if (mLastHeapBytes >= 0 && now > mLastSampleTime) {
+            long delta = heapBytes - mLastHeapBytes; // GC后为负，只统计增长部分
+            mAllocKbPerSec = delta <= 0 ? 0 : (int) (delta * 1000 / (now - mLastSampleTime) / 1024);
+        }
+        mLastHeapBytes = heapBytes;
+        mLastSampleTime = now;
+        postInvalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = (int) (mLineHeight * (5 + PerfMetrics.COUNT) + mPadding * 2);
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), height);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final int width = getWidth();
+        final int height = getHeight();
+        canvas.drawRect(0, 0, width, height, mBgPaint);
+
+        float textX = mPadding;
+        float textY = mPadding + mLineHeight;
+        drawLine(canvas, "fps ", mFps, textX, textY);
+        drawLine(canvas, "alloc KB/s ", mAllocKbPerSec, textX, textY + mLineHeight);
+        canvas.drawText("bar ", textX, textY + mLineHeight * 2, mTextPaint);
+        canvas.drawText(mBarState, textX + mTextPaint.measureText("bar "), textY + mLineHeight * 2, mTextPaint);
+        canvas.drawText("refresh ", textX, textY + mLineHeight * 3, mTextPaint);
+        canvas.drawText(mRefreshState, textX + mTextPaint.measureText("refresh "), textY + mLineHeight * 3, mTextPaint);
+        for (int i = 0; i < PerfMetrics.COUNT; i++) {
+            drawLine(canvas, PerfMetrics.getName(i), (int) PerfMetrics.getDisplayValue(i), textX, textY + mLineHeight * (4 + i));
+        }
+
+        // sparkline，右侧区域绘制最近120帧
+        float graphLeft = width / 2f;
+        float graphWidth = width / 2f - mPadding;
+        float graphBottom = height - mPadding;
+        float graphHeight = height - mPadding * 2;
+        float step = graphWidth / FRAME_COUNT;
+        float budgetY = graphBottom - FRAME_BUDGET_MS / GRAPH_MAX_MS * graphHeight;
+        canvas.drawLine(graphLeft, budgetY, graphLeft + graphWidth, budgetY, mBudgetPaint);
+
+        int index = mFrameIndex;
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            float ms = mFrameNanos[(index + i) % FRAME_COUNT] / 1000000f;
+            float barHeight = Math.min(ms, GRAPH_MAX_MS) / GRAPH_MAX_MS * graphHeight;
+            float x = graphLeft + i * step;
+            mGraphPoints[i * 4] = x;
+            mGraphPoints[i * 4 + 1] = graphBottom;
+            mGraphPoints[i * 4 + 2] = x;
+            mGraphPoints[i * 4 + 3] = graphBottom - barHeight;
+        }
+        canvas.drawLines(mGraphPoints, mGraphPaint);
+    }
+
+    private void drawLine(Canvas canvas, String label, int value, float x, float y) {
+        canvas.drawText(label, x, y, mTextPaint);
+        int count = formatInt(value, mTextBuffer);
+        canvas.drawText(mTextBuffer, mTextBuffer.length - count, count, x + mTextPaint.measureText(label) + mPadding, y, mTextPaint);
+    }
+
+    /**
+     * 把整数右对齐写入buffer，避免String.valueOf带来的分配
+     *
+     * @return 写入的字符数
+     */
+    private static int formatInt(int value, char[] buffer) {
+        int pos = buffer.length;
+        boolean negative = value < 0;
+        long v = Math.abs((long) value);
+        do {
+            buffer[--pos] = (char) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0 && pos > 1);
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        return buffer.length - pos;
+    }
+}
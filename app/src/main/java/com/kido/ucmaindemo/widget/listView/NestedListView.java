@@ -24,6 +24,16 @@ import com.kido.ucmaindemo.utils.Logger;
 
 public class NestedListView extends ListView implements NestedScrollingChild {
 
+    /**
+     * 惯性滑动开始时的回调，速度来自嵌套滑动的fling分发（api21及以上）
+     */
+    public interface OnFlingListener {
+        /**
+         * @param velocityY 像素/秒，向下滚动内容为正
+         */
+        void onFling(float velocityY);
+    }
+
     private static final String TAG = "NestedListView";
     private static final int INVALID_POINTER = -1;
 
@@ -35,6 +45,7 @@ public class NestedListView extends ListView implements NestedScrollingChild {
     private int mNestedOffsetY;
 
     private boolean mScrollable = true;
+    private OnFlingListener mOnFlingListener;
 
     public NestedListView(Context context) {
         super(context);
@@ -66,6 +77,10 @@ public class NestedListView extends ListView implements NestedScrollingChild {
         mScrollable = scrollable;
     }
 
+    public void setOnFlingListener(OnFlingListener listener) {
+        mOnFlingListener = listener;
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
@@ -220,6 +235,9 @@ public class NestedListView extends ListView implements NestedScrollingChild {
 
     @Override
     public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        if (mOnFlingListener != null) {
+            mOnFlingListener.onFling(velocityY);
+        }
         return mChildHelper.dispatchNestedPreFling(velocityX, velocityY);
     }
 
@@ -0,0 +1,155 @@
+package com.kido.ucmaindemo.widget.listView;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.AbsListView;
+
+import com.kido.ucmaindemo.R;
+
+/**
+ * 列表条目按滚动状态绑定：快速滑动（{@link ScrollVelocityGate}）时只做轻量绑定，速度降下来后再对仍在屏幕上的条目补做完整绑定。
+ * <p>
+ * 每种条目类型通过{@link Binder}注册自己的轻量/完整绑定步骤，adapter在getView中调用{@link #bind}。
+ * 速度来自{@link NestedListView}的fling回调（api21及以上），之后由{@link #onScroll}中第一个子view的位移估算；
+ * 低版本没有fling回调，完全靠位移估算。需由列表的OnScrollListener转发回调，只在主线程使用。
+ *
+ * @author Kido
+ */
+public class ScrollBindPolicy implements NestedListView.OnFlingListener {
+
+    /**
+     * 一种条目类型的绑定步骤
+     */
+    public interface Binder {
+        /**
+         * 快速滑动时调用，只做不耗时的绑定，如只用已缓存的文字排版、不加载图片
+         */
+        void bindCheap(View view, int position);
+
+        void bindFull(View view, int position);
+    }
+
+    /**
+     * 记在条目view的tag上，每个view一个，复用
+     */
+    private static final class BindState {
+        int viewType;
+        int position;
+        boolean deferred;
+    }
+
+    private static final int ENTER_DIVISOR = 4; // 相对最大fling速度
+    private static final int EXIT_DIVISOR = 8;
+
+    private final AbsListView mListView;
+    private final ScrollVelocityGate mGate;
+    private final SparseArray<Binder> mBinders = new SparseArray<>();
+    private int mLastFirst = -1;
+    private int mLastTop;
+
+    public ScrollBindPolicy(AbsListView listView) {
+        mListView = listView;
+        float maxVelocity = ViewConfiguration.get(listView.getContext()).getScaledMaximumFlingVelocity();
+        mGate = new ScrollVelocityGate(maxVelocity / ENTER_DIVISOR, maxVelocity / EXIT_DIVISOR);
+    }
+
+    public void setBinder(int viewType, Binder binder) {
+        mBinders.put(viewType, binder);
+    }
+
+    /**
+     * @return 当前是否只做轻量绑定
+     */
+    public boolean isThrottling() {
+        return mGate.isFast();
+    }
+
+    /**
+     * 由adapter的getView调用，view类型没有注册Binder时抛出IllegalStateException
+     */
+    public void bind(int viewType, View view, int position) {
+        Binder binder = mBinders.get(viewType);
+        if (binder == null) {
+            throw new IllegalStateException("no binder for view type " + viewType);
+        }
+        BindState state = (BindState) view.getTag(R.id.tag_bind_state);
+        if (state == null) {
+            state = new BindState();
+            view.setTag(R.id.tag_bind_state, state);
+        }
+        state.viewType = viewType;
+        state.position = position;
+        state.deferred = mGate.isFast();
+        if (state.deferred) {
+            binder.bindCheap(view, position);
+        } else {
+            binder.bindFull(view, position);
+        }
+    }
+
+    /**
+     * 由OnScrollListener.onScrollStateChanged转发
+     */
+    public void onScrollStateChanged(int scrollState) {
+        boolean changed;
+        if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_FLING) {
+            changed = mGate.onFlingStarted(0, System.nanoTime());
+        } else {
+            changed = mGate.onFlingStopped();
+            if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
+                mLastFirst = -1;
+            }
+        }
+        if (changed) {
+            onGateChanged();
+        }
+    }
+
+    /**
+     * 由OnScrollListener.onScroll转发，用第一个可见条目的位移估算速度，跨过条目时按它的高度折算
+     */
+    public void onScroll(int firstVisibleItem) {
+        View first = mListView.getChildAt(0);
+        if (first == null) {
+            return;
+        }
+        int top = first.getTop();
+        int dy = 0;
+        if (mLastFirst >= 0) {
+            dy = (firstVisibleItem - mLastFirst) * first.getHeight() + mLastTop - top;
+        }
+        mLastFirst = firstVisibleItem;
+        mLastTop = top;
+        if (mGate.onScrolled(dy, System.nanoTime())) {
+            onGateChanged();
+        }
+    }
+
+    @Override
+    public void onFling(float velocityY) {
+        if (mGate.onFlingStarted(velocityY, System.nanoTime())) {
+            onGateChanged();
+        }
+    }
+
+    private void onGateChanged() {
+        if (!mGate.isFast()) {
+            rebindDeferred();
+        }
+    }
+
+    /**
+     * 对屏幕上只做了轻量绑定的条目补做完整绑定
+     */
+    private void rebindDeferred() {
+        for (int i = 0, count = mListView.getChildCount(); i < count; i++) {
+            View child = mListView.getChildAt(i);
+            BindState state = (BindState) child.getTag(R.id.tag_bind_state);
+            if (state != null && state.deferred) {
+                state.deferred = false;
+                mBinders.get(state.viewType).bindFull(child, state.position);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.kido.ucmaindemo.widget.listView;
+
+/**
+ * 根据滚动速度判断是否处于"快速滑动"：只在惯性滑动（fling）中、速度超过进入阈值时开始，速度降到退出阈值以下或停止时结束。
+ * 进入和退出阈值不同，避免在临界速度附近来回切换。
+ * <p>
+ * 速度取自fling的初速度，之后由每帧的滚动距离做指数平滑更新。不依赖Android API。
+ *
+ * @author Kido
+ */
+public class ScrollVelocityGate {
+
+    private static final float SMOOTHING = 0.5f; // 新样本的权重
+
+    private final float mEnterVelocity;
+    private final float mExitVelocity;
+
+    private boolean mFlinging;
+    private boolean mFast;
+    private float mVelocity; // 像素/秒，取绝对值
+    private long mLastNanos;
+
+    /**
+     * @param enterVelocity 超过该速度（像素/秒）开始快速滑动
+     * @param exitVelocity  低于该速度结束，应小于enterVelocity
+     */
+    public ScrollVelocityGate(float enterVelocity, float exitVelocity) {
+        mEnterVelocity = enterVelocity;
+        mExitVelocity = exitVelocity;
+    }
+
+    public boolean isFast() {
+        return mFast;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * 开始惯性滑动
+     *
+     * @param velocity 初速度（像素/秒），未知时传0，由后续滚动距离估算
+     * @return 快速状态是否改变
+     */
+    public boolean onFlingStarted(float velocity, long nowNanos) {
+        mFlinging = true;
+        if (velocity != 0) {
+            mVelocity = Math.abs(velocity);
+        }
+        mLastNanos = nowNanos;
+        return update();
+    }
+
+    /**
+     * 手指拖动或停止，都结束快速状态
+     *
+     * @return 快速状态是否改变
+     */
+    public boolean onFlingStopped() {
+        mFlinging = false;
+        mVelocity = 0;
+        mLastNanos = 0;
+        return update();
+    }
+
+    /**
+     * 每帧的滚动距离
+     *
+     * @return 快速状态是否改变
+     */
+    public boolean onScrolled(int dy, long nowNanos) {
+        if (mLastNanos != 0 && nowNanos > mLastNanos) {
+            float sample = Math.abs(dy) * 1e9f / (nowNanos - mLastNanos);
+            mVelocity = mVelocity * (1 - SMOOTHING) + sample * SMOOTHING;
+        }
+        mLastNanos = nowNanos;
+        return update();
+    }
+
+    private boolean update() {
+        boolean fast = mFlinging && mVelocity > (mFast ? mExitVelocity : mEnterVelocity);
+        if (fast != mFast) {
+            mFast = fast;
+            return true;
+        }
+        return false;
+    }
+}
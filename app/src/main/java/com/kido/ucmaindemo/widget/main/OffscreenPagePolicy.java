@@ -0,0 +1,92 @@
+package com.kido.ucmaindemo.widget.main;
+
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+
+/**
+ * {@link UcNewsContentPager}保留页数（offscreenPageLimit）的自适应策略，不依赖Android API。
+ * <p>
+ * 连续快速切换页面、且堆内存还有余量时，多保留几页，来回切换时不必重新创建；停止快速切换一段时间后恢复为1，
+ * 停在某一页不动时由调用方在{@link #SHRINK_DELAY_MILLIS}之后再update一次。
+ * 内存紧张时按{@link MemoryCoordinator}的释放阶段立即压低上限，并在一段时间内不再扩大。
+ *
+ * @author Kido
+ */
+public class OffscreenPagePolicy {
+
+    public static final int MIN_LIMIT = 1;
+    public static final int MAX_LIMIT = 3;
+
+    private static final long FAST_SWITCH_MILLIS = 1000; // 两次切换的间隔小于它算快速切换
+    private static final int FAST_SWITCH_COUNT = 2; // 连续快速切换的次数达到它才扩大
+    static final long SHRINK_DELAY_MILLIS = 10 * 1000; // 最后一次快速切换之后多久恢复
+    private static final long TRIM_HOLD_MILLIS = 30 * 1000; // 内存紧张之后多久内维持压低的上限
+    private static final float HEADROOM_PER_PAGE = 0.2f; // 每多保留一页，需要空闲堆的比例再多这么多
+    private static final float BASE_HEADROOM = 0.2f;
+
+    private int mLimit = MIN_LIMIT;
+    private long mLastSwitchMillis = Long.MIN_VALUE;
+    private long mLastFastMillis = Long.MIN_VALUE;
+    private int mFastSwitches;
+    private int mTrimCap = MAX_LIMIT;
+    private long mTrimMillis;
+
+    public int getLimit() {
+        return mLimit;
+    }
+
+    /**
+     * 选中了新的页面，只记录，不改变limit（扩大会同步创建页面，留到停下后再做）
+     */
+    public void onPageSwitched(long nowMillis) {
+        if (mLastSwitchMillis != Long.MIN_VALUE && nowMillis - mLastSwitchMillis < FAST_SWITCH_MILLIS) {
+            mFastSwitches++;
+            if (mFastSwitches >= FAST_SWITCH_COUNT) {
+                mLastFastMillis = nowMillis;
+            }
+        } else {
+            mFastSwitches = 0;
+        }
+        mLastSwitchMillis = nowMillis;
+    }
+
+    /**
+     * 页面停下时，以及停下后{@link #SHRINK_DELAY_MILLIS}仍没有切换时重新计算
+     *
+     * @param headroom 空闲堆的比例，(max - used) / max
+     * @return 新的limit
+     */
+    public int update(long nowMillis, float headroom) {
+        int byHeap = MIN_LIMIT + Math.max(0, (int) ((headroom - BASE_HEADROOM) / HEADROOM_PER_PAGE));
+        int target;
+        if (mLastFastMillis != Long.MIN_VALUE && nowMillis - mLastFastMillis < SHRINK_DELAY_MILLIS) {
+            // 正在快速切换时按内存扩大；暂停快速切换，先不缩小
+            target = mFastSwitches >= FAST_SWITCH_COUNT ? byHeap : Math.min(mLimit, byHeap);
+        } else {
+            target = MIN_LIMIT;
+        }
+        if (mTrimCap < MAX_LIMIT && nowMillis - mTrimMillis >= TRIM_HOLD_MILLIS) {
+            mTrimCap = MAX_LIMIT;
+        }
+        mLimit = Math.max(MIN_LIMIT, Math.min(Math.min(target, mTrimCap), MAX_LIMIT));
+        return mLimit;
+    }
+
+    /**
+     * @param stage {@link MemoryCoordinator}中的STAGE_*
+     * @return 新的limit
+     */
+    public int onTrim(int stage, long nowMillis) {
+        int cap;
+        if (stage >= MemoryCoordinator.STAGE_CACHES) {
+            cap = MIN_LIMIT;
+        } else if (stage >= MemoryCoordinator.STAGE_SPECULATIVE) {
+            cap = MIN_LIMIT + 1;
+        } else {
+            return mLimit;
+        }
+        mTrimCap = Math.min(mTrimCap, cap);
+        mTrimMillis = nowMillis;
+        mLimit = Math.min(mLimit, mTrimCap);
+        return mLimit;
+    }
+}
@@ -2,6 +2,7 @@ package com.kido.ucmaindemo.widget.main;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.support.annotation.AttrRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -22,7 +23,9 @@ import com.kido.ucmaindemo.widget.main.behavior.BarHeaderBehavior;
  * 新闻列表的顶部Layout
  * </p>
  * 使用时可指定app:unhl_closing_footer, app:unhl_closing_header做为合拢时的头部和尾部，起到合拢动画效果。<br>
- * 另，Bar底部如果要跟内容（比如一个ViewPager）需指定对应的behavior为BarFollowerBehavior，达到嵌套动画效果。
+ * 另，Bar底部如果要跟内容（比如一个ViewPager）需指定对应的behavior为BarFollowerBehavior，达到嵌套动画效果。<br>
+ * Bar合拢后大部分被header/footer/follower遮住，默认开启裁剪模式（{@link #setCullingEnabled(boolean)}）：
+ * 合拢后只绘制未被遮挡的部分（完全遮挡则不绘制），开始展开时恢复正常绘制。
  *
  * @author Kido
  */
@@ -46,6 +49,9 @@ public class UcNewsBarLayout extends FrameLayout {
     private View mFooterView;
     private View mFollowerView;
 
+    private boolean mCullingEnabled = true;
+    private boolean mContentCulled;
+
     public UcNewsBarLayout(@NonNull Context context) {
         super(context);
         init(context);
@@ -137,6 +143,7 @@ public class UcNewsBarLayout extends FrameLayout {
 
                         @Override
                         public void onBarStartOpening() {
+                            setContentCulled(false);
                             if (mBarStateListener != null) {
                                 mBarStateListener.onBarStartOpening();
                             }
@@ -144,6 +151,7 @@ public class UcNewsBarLayout extends FrameLayout {
 
                         @Override
                         public void onBarClosed() {
+                            setContentCulled(mCullingEnabled);
                             if (mBarStateListener != null) {
                                 mBarStateListener.onBarClosed();
                             }
@@ -165,6 +173,53 @@ public class UcNewsBarLayout extends FrameLayout {
         mContext = context;
     }
 
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (!mContentCulled) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        // 合拢状态，只绘制没有被兄弟view遮挡的部分
+        float barTop = getTop() + getTranslationY();
+        float visibleTop = Math.max(barTop, 0);
+        float visibleBottom = barTop + getHeight();
+        if (mHeaderView != null) {
+            visibleTop = Math.max(visibleTop, mHeaderView.getBottom() + mHeaderView.getTranslationY());
+        }
+        View lowerView = mFooterView != null ? mFooterView : mFollowerView;
+        if (lowerView != null) {
+            visibleBottom = Math.min(visibleBottom, lowerView.getTop() + lowerView.getTranslationY());
+        }
+        if (visibleBottom <= visibleTop) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(0, visibleTop - barTop, getWidth(), visibleBottom - barTop);
+        super.dispatchDraw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void setContentCulled(boolean culled) {
+        if (mContentCulled != culled) {
+            mContentCulled = culled;
+            invalidate();
+        }
+    }
+
+    /**
+     * 是否在Bar合拢后裁剪掉被遮挡的内容，默认开启
+     *
+     * @param enabled
+     */
+    public void setCullingEnabled(boolean enabled) {
+        mCullingEnabled = enabled;
+        if (!enabled) {
+            setContentCulled(false);
+        } else if (isClosed()) {
+            setContentCulled(true);
+        }
+    }
+
     /**
      * 本layout的header的高度
      *
@@ -1,23 +1,83 @@
 package com.kido.ucmaindemo.widget.main;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.support.design.widget.CoordinatorLayout;
-import android.support.design.widget.TabLayout;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+import com.kido.ucmaindemo.utils.Logger;
+import com.kido.ucmaindemo.utils.PerfMetrics;
 import com.kido.ucmaindemo.widget.main.behavior.BarFollowerBehavior;
 
 /**
  * 多个新闻列表的容器
+ * <p>
+ * 点击不相邻的标签时不平滑滚过去（那样会创建途经的页面），而是淡出后直接跳到目标页再淡入，
+ * 只创建目标页及其相邻页；过渡期间通过{@link OnTabJumpListener}通知离开的页面暂停耗时工作。
+ * <p>
+ * 保留页数由{@link OffscreenPagePolicy}调整：快速来回切换且堆内存充足时在停下后扩大，停在一页一段时间后恢复，
+ * 内存紧张时经{@link MemoryCoordinator}立即压低（attach期间注册为预先准备的对象）。
+ * 离开保留范围的页面只销毁view，fragment及其列表数据仍由频道注册表持有。调整和切换耗时记在{@link PerfMetrics}中。
  *
  * @author Kido
  */
 @CoordinatorLayout.DefaultBehavior(BarFollowerBehavior.class)
 public class UcNewsContentPager extends ViewPager {
+    private static final String TAG = "UcNewsContentPager";
+
+    /**
+     * 能否左右滑动切换的回调
+     */
+    public interface OnPagingEnabledListener {
+        void onPagingEnabledChanged(boolean enabled);
+    }
+
+    /**
+     * 跳转到不相邻页面的过渡回调
+     */
+    public interface OnTabJumpListener {
+        /**
+         * 开始淡出，此时仍显示from页
+         */
+        void onTabJumpStarted(int from, int to);
+
+        /**
+         * 已跳到to页，开始淡入
+         */
+        void onTabJumpFinished(int to);
+    }
+
+    private static final int JUMP_FADE_DURATION = 120; // 淡出、淡入各一次
 
     private boolean isPagingEnabled = true;
+    private OnPagingEnabledListener mOnPagingEnabledListener;
+    private OnTabJumpListener mOnTabJumpListener;
+    private int mJumpTarget = -1;
+    private final OffscreenPagePolicy mOffscreenPolicy = new OffscreenPagePolicy();
+    private int mScrollState = SCROLL_STATE_IDLE;
+    private final Runnable mShrinkRunnable = new Runnable() { // 停在一页不动时恢复保留页数
+        @Override
+        public void run() {
+            if (mScrollState == SCROLL_STATE_IDLE) {
+                updateOffscreenLimit();
+            }
+        }
+    };
+    private final MemoryCoordinator.Trimmable mTrimmable = new MemoryCoordinator.Trimmable() {
+        @Override
+        public void onTrim(int stage) {
+            applyOffscreenLimit(mOffscreenPolicy.onTrim(stage, SystemClock.uptimeMillis()));
+        }
+
+        @Override
+        public String describe() {
+            return "limit=" + getOffscreenPageLimit();
+        }
+    };
 
     public UcNewsContentPager(Context context) {
         super(context);
@@ -31,11 +91,102 @@ public class UcNewsContentPager extends ViewPager {
 
 
     private void init(Context context) {
+        addOnPageChangeListener(new SimpleOnPageChangeListener() {
+            @Override
+            public void onPageSelected(int position) {
+                removeCallbacks(mShrinkRunnable);
+                mOffscreenPolicy.onPageSwitched(SystemClock.uptimeMillis());
+            }
+
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                mScrollState = state;
+                if (state == SCROLL_STATE_IDLE) { // 扩大会同步创建页面，停下后再做
+                    updateOffscreenLimit();
+                } else {
+                    removeCallbacks(mShrinkRunnable);
+                }
+            }
+        });
+    }
+
+    private void updateOffscreenLimit() {
+        removeCallbacks(mShrinkRunnable);
+        int limit = mOffscreenPolicy.update(SystemClock.uptimeMillis(), getHeapHeadroom());
+        applyOffscreenLimit(limit);
+        if (limit > OffscreenPagePolicy.MIN_LIMIT) {
+            postDelayed(mShrinkRunnable, OffscreenPagePolicy.SHRINK_DELAY_MILLIS);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        MemoryCoordinator.getDefault().register("offscreen pages", MemoryCoordinator.PRIORITY_SPECULATIVE, mTrimmable);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        MemoryCoordinator.getDefault().unregister(mTrimmable);
+        removeCallbacks(mShrinkRunnable);
+        super.onDetachedFromWindow();
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        return this.isPagingEnabled && super.onTouchEvent(event);
+        if (!this.isPagingEnabled) {
+            return false;
+        }
+        if (event.getActionMasked() != MotionEvent.ACTION_UP) {
+            return super.onTouchEvent(event);
+        }
+        int item = getCurrentItem();
+        long start = System.nanoTime();
+        boolean handled = super.onTouchEvent(event); // 抬起时确定目标页并创建进入保留范围的页面
+        recordPageSwitch(item, start);
+        return handled;
+    }
+
+    @Override
+    public void setCurrentItem(int item) {
+        int current = getCurrentItem();
+        long start = System.nanoTime();
+        super.setCurrentItem(item);
+        recordPageSwitch(current, start);
+    }
+
+    @Override
+    public void setCurrentItem(int item, boolean smoothScroll) {
+        int current = getCurrentItem();
+        long start = System.nanoTime();
+        super.setCurrentItem(item, smoothScroll);
+        recordPageSwitch(current, start);
+    }
+
+    private void recordPageSwitch(int fromItem, long startNanos) {
+        if (getCurrentItem() != fromItem) {
+            long elapsed = System.nanoTime() - startNanos;
+            PerfMetrics.set(PerfMetrics.PAGE_SWITCH_NANOS, elapsed);
+            Logger.d(TAG, "page switch-> %s to %s, %sus, limit=%s", fromItem, getCurrentItem(), elapsed / 1000, getOffscreenPageLimit());
+        }
+    }
+
+    private void applyOffscreenLimit(int limit) {
+        if (limit != getOffscreenPageLimit()) {
+            Logger.d(TAG, "applyOffscreenLimit-> %s to %s", getOffscreenPageLimit(), limit);
+            setOffscreenPageLimit(limit);
+            PerfMetrics.add(PerfMetrics.OFFSCREEN_LIMIT_CHANGES, 1);
+        }
+        PerfMetrics.set(PerfMetrics.OFFSCREEN_PAGE_LIMIT, limit);
+    }
+
+    /**
+     * @return 空闲堆的比例
+     */
+    private static float getHeapHeadroom() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return 1 - (float) used / runtime.maxMemory();
     }
 
     @Override
@@ -44,25 +195,76 @@ public class UcNewsContentPager extends ViewPager {
     }
 
     public void setPagingEnabled(boolean b) {
+        if (this.isPagingEnabled == b) {
+            return;
+        }
         this.isPagingEnabled = b;
+        if (mOnPagingEnabledListener != null) {
+            mOnPagingEnabledListener.onPagingEnabledChanged(b);
+        }
+    }
+
+    public boolean isPagingEnabled() {
+        return isPagingEnabled;
     }
 
-    public void setupTabLayout(TabLayout tabLayout) {
-        this.addOnPageChangeListener(new TabLayout.TabLayoutOnPageChangeListener(tabLayout));
-        tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+    public void setOnPagingEnabledListener(OnPagingEnabledListener listener) {
+        mOnPagingEnabledListener = listener;
+    }
+
+    public void setOnTabJumpListener(OnTabJumpListener listener) {
+        mOnTabJumpListener = listener;
+    }
 
+    /**
+     * 切换到item页：相邻的页面平滑滚动，不相邻的淡出后直接跳过去
+     */
+    public void jumpToItem(final int item) {
+        final int from = getCurrentItem();
+        if (Math.abs(item - from) <= 1 || getWidth() == 0) {
+            if (mJumpTarget >= 0) { // 取消正在淡出的跳转
+                mJumpTarget = -1;
+                ViewCompat.animate(this).cancel();
+                ViewCompat.setAlpha(this, 1);
+                if (mOnTabJumpListener != null) {
+                    mOnTabJumpListener.onTabJumpFinished(from);
+                }
+            }
+            setCurrentItem(item);
+            return;
+        }
+        if (mJumpTarget < 0 && mOnTabJumpListener != null) {
+            mOnTabJumpListener.onTabJumpStarted(from, item);
+        }
+        mJumpTarget = item;
+        ViewCompat.animate(this).cancel();
+        ViewCompat.animate(this).alpha(0).setDuration(JUMP_FADE_DURATION).withEndAction(new Runnable() {
             @Override
-            public void onTabSelected(TabLayout.Tab tab) {
-                setCurrentItem(tab.getPosition());
+            public void run() {
+                if (mJumpTarget != item) { // 已被新的跳转取代
+                    return;
+                }
+                mJumpTarget = -1;
+                setCurrentItem(item, false);
+                if (mOnTabJumpListener != null) {
+                    mOnTabJumpListener.onTabJumpFinished(item);
+                }
+                ViewCompat.animate(UcNewsContentPager.this).alpha(1).setDuration(JUMP_FADE_DURATION).withEndAction(null);
             }
+        });
+    }
 
-            @Override
-            public void onTabUnselected(TabLayout.Tab tab) {
+    public void setupTabLayout(UcNewsTabLayout tabLayout) {
+        this.addOnPageChangeListener(tabLayout.newPageChangeListener());
+        tabLayout.addOnTabSelectedListener(new UcNewsTabLayout.OnTabSelectedListener() {
 
+            @Override
+            public void onTabSelected(int position) {
+                jumpToItem(position);
             }
 
             @Override
-            public void onTabReselected(TabLayout.Tab tab) {
+            public void onTabReselected(int position) {
 
             }
         });
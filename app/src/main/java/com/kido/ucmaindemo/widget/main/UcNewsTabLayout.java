@@ -1,19 +1,94 @@
 package com.kido.ucmaindemo.widget.main;
 
+import android.animation.ValueAnimator;
 import android.content.Context;
-import android.support.design.widget.TabLayout;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPager;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.text.Layout;
 import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.OverScroller;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.widget.text.TextLayoutCache;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 新闻便签栏
+ * <p>
+ * 单个view直接绘制所有标签，没有子view：标签文字用{@link TextLayoutCache}中的单行排版，添加时测量一次宽度；
+ * 只画可见范围内的标签，每帧一次draw，与标签数无关。
+ * 指示器由一个属性（indicatorPosition，页面位置 + 偏移）决定，页面滑动时直接跟随，点击标签时做动画；
+ * 标签栏的横向滚动是内部偏移量，随指示器居中，也可以拖动和fling。
+ * 标签总宽度不足view宽度时按fill方式铺满（与原TabLayout的tabGravity="fill"一致），可用untl_tab_fill关闭。
+ * 无障碍由{@link ExploreByTouchHelper}提供，每个标签是一个虚拟view，支持点击。
  *
  * @author Kido
  */
-public class UcNewsTabLayout extends TabLayout {
+public class UcNewsTabLayout extends View {
+
+    /**
+     * 标签点击的回调
+     */
+    public interface OnTabSelectedListener {
+        void onTabSelected(int position);
+
+        void onTabReselected(int position);
+    }
+
+    private static final int INDICATOR_DURATION = 300;
+
+    private final ArrayList<CharSequence> mTitles = new ArrayList<>();
+    private final ArrayList<Layout> mLayouts = new ArrayList<>();
+    private final ArrayList<Layout> mSelectedLayouts = new ArrayList<>();
+    private int[] mTabLefts = new int[16];
+    private int[] mTabRights = new int[16];
+    private int[] mTextWidths = new int[16];
+    private int mNaturalWidth; // 标签按文字宽度排列时的总宽度
+    private int mContentWidth;
+    private boolean mFill;
+    private TabAccessibilityHelper mAccessibilityHelper;
+    private final ArrayList<OnTabSelectedListener> mListeners = new ArrayList<>();
+
+    private TextLayoutCache mCache = TextLayoutCache.getDefault();
+    private TextLayoutCache.Style mStyle;
+    private TextLayoutCache.Style mSelectedStyle;
+    private final Paint mIndicatorPaint = new Paint();
+    private int mTabPadding;
+    private int mIndicatorHeight;
+
+    private int mSelected;
+    private float mIndicatorPosition;
+    private ValueAnimator mIndicatorAnimator;
+    private int mScrollOffset;
+
+    private OverScroller mScroller;
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private float mDownX;
+    private float mLastX;
+    private boolean mDragging;
 
     public UcNewsTabLayout(Context context) {
-        super(context);
-        init(context);
+        this(context, null);
     }
 
     public UcNewsTabLayout(Context context, AttributeSet attrs) {
@@ -22,11 +97,463 @@ public class UcNewsTabLayout extends TabLayout {
 
     public UcNewsTabLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        init(context);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.UcNewsTabLayout);
+        float textSize = a.getDimension(R.styleable.UcNewsTabLayout_untl_text_size,
+                TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14, getResources().getDisplayMetrics()));
+        int textColor = a.getColor(R.styleable.UcNewsTabLayout_untl_text_color,
+                ContextCompat.getColor(context, R.color.textGray));
+        int selectedTextColor = a.getColor(R.styleable.UcNewsTabLayout_untl_selected_text_color,
+                ContextCompat.getColor(context, R.color.colorPrimary));
+        int indicatorColor = a.getColor(R.styleable.UcNewsTabLayout_untl_indicator_color, selectedTextColor);
+        mFill = a.getBoolean(R.styleable.UcNewsTabLayout_untl_tab_fill, true);
+        a.recycle();
+        init(context, textSize, textColor, selectedTextColor, indicatorColor);
+    }
+
+    private void init(Context context, float textSize, int textColor, int selectedTextColor, int indicatorColor) {
+        mStyle = new TextLayoutCache.Style(textSize, textColor, 1);
+        mSelectedStyle = new TextLayoutCache.Style(textSize, selectedTextColor, 1);
+        mIndicatorPaint.setColor(indicatorColor);
+        float density = getResources().getDisplayMetrics().density;
+        mTabPadding = Math.round(12 * density);
+        mIndicatorHeight = Math.round(2 * density);
+        mScroller = new OverScroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mAccessibilityHelper = new TabAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    /**
+     * 在末尾添加一个标签，只测量这一个标签的宽度
+     */
+    public void addTab(CharSequence title) {
+        int index = mTitles.size();
+        if (index == mTabLefts.length) {
+            mTabLefts = grow(mTabLefts, index);
+            mTabRights = grow(mTabRights, index);
+            mTextWidths = grow(mTextWidths, index);
+        }
+        int textWidth = mStyle.measureWidth(title);
+        mTitles.add(title);
+        mLayouts.add(mCache.get(title, textWidth, mStyle));
+        mSelectedLayouts.add(mCache.get(title, textWidth, mSelectedStyle));
+        mTextWidths[index] = textWidth;
+        mNaturalWidth += textWidth + mTabPadding * 2;
+        layoutTabs(getWidth());
+        mAccessibilityHelper.invalidateRoot();
+        invalidate();
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] grown = new int[size * 2];
+        System.arraycopy(array, 0, grown, 0, size);
+        return grown;
+    }
+
+    /**
+     * 计算每个标签的左右边界。标签总宽度不足width时，fill模式下铺满：
+     * 每个标签都放得下时等分宽度，否则把多出的宽度平均分给各个标签
+     */
+    private void layoutTabs(int width) {
+        int count = mTitles.size();
+        int extra = mFill && count > 0 && mNaturalWidth < width ? width - mNaturalWidth : 0;
+        int equalWidth = 0;
+        if (extra > 0) {
+            equalWidth = width / count;
+            for (int i = 0; i < count; i++) {
+                if (mTextWidths[i] + mTabPadding * 2 > equalWidth) {
+                    equalWidth = 0;
+                    break;
+                }
+            }
+        }
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            int tabWidth = mTextWidths[i] + mTabPadding * 2;
+            if (equalWidth > 0) {
+                tabWidth = equalWidth;
+            } else if (extra > 0) {
+                tabWidth += extra / count;
+            }
+            if (extra > 0 && i == count - 1) {
+                tabWidth = width - left; // 余数给最后一个标签，保证右边对齐
+            }
+            mTabLefts[i] = left;
+            left += tabWidth;
+            mTabRights[i] = left;
+        }
+        mContentWidth = left;
+    }
+
+    public int getTabCount() {
+        return mTitles.size();
+    }
+
+    public CharSequence getTabTitle(int position) {
+        return mTitles.get(position);
+    }
+
+    public int getSelectedTabPosition() {
+        return mSelected;
+    }
+
+    public void addOnTabSelectedListener(OnTabSelectedListener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeOnTabSelectedListener(OnTabSelectedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * 选中标签，指示器动画移过去，不回调listener
+     */
+    public void selectTab(int position) {
+        selectTab(position, true);
+    }
+
+    /**
+     * @param animate false时指示器直接跳过去
+     */
+    public void selectTab(int position, boolean animate) {
+        if (position < 0 || position >= mTitles.size()) {
+            return;
+        }
+        if (position != mSelected) {
+            setSelectedInternal(position);
+        }
+        if (animate) {
+            animateIndicatorTo(position);
+        } else {
+            cancelIndicatorAnimation();
+            setIndicatorPosition(position);
+        }
     }
 
-    private void init(Context context) {
+    public float getIndicatorPosition() {
+        return mIndicatorPosition;
     }
 
+    /**
+     * 指示器位置，整数部分是所在标签，小数部分是到下一个标签的比例；标签栏随之滚动使指示器居中
+     */
+    public void setIndicatorPosition(float position) {
+        mIndicatorPosition = Math.max(0, Math.min(position, mTitles.size() - 1));
+        if (!mDragging) {
+            mScroller.forceFinished(true);
+            setScrollOffset((getIndicatorLeft() + getIndicatorRight()) / 2 - getWidth() / 2);
+        }
+        invalidate();
+    }
+
+    /**
+     * @return 跟随ViewPager的监听器：滑动时指示器跟随，页面选中时更新选中的标签
+     */
+    public ViewPager.OnPageChangeListener newPageChangeListener() {
+        return new ViewPager.OnPageChangeListener() {
+            private int mPreviousState = ViewPager.SCROLL_STATE_IDLE;
+            private int mState = ViewPager.SCROLL_STATE_IDLE;
+
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                // 点击标签引起的滚动（平滑滚动或直接跳转）由指示器动画处理，不跟随
+                boolean byClick = mState == ViewPager.SCROLL_STATE_SETTLING && mPreviousState == ViewPager.SCROLL_STATE_IDLE;
+                boolean jumped = mState == ViewPager.SCROLL_STATE_IDLE
+                        && mIndicatorAnimator != null && mIndicatorAnimator.isRunning();
+                if (!byClick && !jumped) {
+                    cancelIndicatorAnimation();
+                    setIndicatorPosition(position + positionOffset);
+                }
+            }
+
+            @Override
+            public void onPageSelected(int position) {
+                boolean animate = mState == ViewPager.SCROLL_STATE_IDLE
+                        || (mState == ViewPager.SCROLL_STATE_SETTLING && mPreviousState == ViewPager.SCROLL_STATE_IDLE);
+                if (animate) {
+                    selectTab(position, true);
+                } else if (position != mSelected && position >= 0 && position < mTitles.size()) {
+                    setSelectedInternal(position);
+                }
+            }
+
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                mPreviousState = mState;
+                mState = state;
+            }
+        };
+    }
+
+    private void setSelectedInternal(int position) {
+        int previous = mSelected;
+        mSelected = position;
+        mAccessibilityHelper.invalidateVirtualView(previous);
+        mAccessibilityHelper.invalidateVirtualView(position);
+        invalidate();
+    }
+
+    private void animateIndicatorTo(int position) {
+        cancelIndicatorAnimation();
+        if (mIndicatorPosition == position || getWidth() == 0) {
+            setIndicatorPosition(position);
+            return;
+        }
+        mIndicatorAnimator = ValueAnimator.ofFloat(mIndicatorPosition, position);
+        mIndicatorAnimator.setDuration(INDICATOR_DURATION);
+        mIndicatorAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                setIndicatorPosition((Float) animation.getAnimatedValue());
+            }
+        });
+        mIndicatorAnimator.start();
+    }
 
+    private void cancelIndicatorAnimation() {
+        if (mIndicatorAnimator != null) {
+            mIndicatorAnimator.cancel();
+            mIndicatorAnimator = null;
+        }
+    }
+
+    private int getIndicatorLeft() {
+        return interpolate(mTabLefts);
+    }
+
+    private int getIndicatorRight() {
+        return interpolate(mTabRights);
+    }
+
+    private int interpolate(int[] edges) {
+        if (mTitles.isEmpty()) {
+            return 0;
+        }
+        int index = (int) mIndicatorPosition;
+        float fraction = mIndicatorPosition - index;
+        if (fraction == 0 || index + 1 >= mTitles.size()) {
+            return edges[index];
+        }
+        return Math.round(edges[index] + (edges[index + 1] - edges[index]) * fraction);
+    }
+
+    private int getMaxScrollOffset() {
+        return Math.max(0, mContentWidth - getWidth());
+    }
+
+    private void setScrollOffset(int offset) {
+        offset = Math.max(0, Math.min(offset, getMaxScrollOffset()));
+        if (offset != mScrollOffset) {
+            mScrollOffset = offset;
+            invalidate();
+        }
+    }
+
+    private int tabAt(float x) {
+        int contentX = (int) x + mScrollOffset;
+        for (int i = 0, count = mTitles.size(); i < count; i++) {
+            if (contentX >= mTabLefts[i] && contentX < mTabRights[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = mStyle.getMaxHeight() + mTabPadding * 2 + mIndicatorHeight;
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutTabs(w);
+        mAccessibilityHelper.invalidateRoot();
+        setIndicatorPosition(mIndicatorPosition);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int count = mTitles.size();
+        if (count == 0) {
+            return;
+        }
+        int height = getHeight();
+        int right = mScrollOffset + getWidth();
+        int saveCount = canvas.save();
+        canvas.translate(-mScrollOffset, 0);
+        for (int i = 0; i < count; i++) {
+            if (mTabRights[i] <= mScrollOffset) {
+                continue;
+            }
+            if (mTabLefts[i] >= right) {
+                break;
+            }
+            Layout layout = i == mSelected ? mSelectedLayouts.get(i) : mLayouts.get(i);
+            canvas.save();
+            canvas.translate(mTabLefts[i] + (mTabRights[i] - mTabLefts[i] - mTextWidths[i]) / 2,
+                    (height - layout.getHeight()) / 2);
+            layout.draw(canvas);
+            canvas.restore();
+        }
+        canvas.drawRect(getIndicatorLeft(), height - mIndicatorHeight, getIndicatorRight(), height, mIndicatorPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mAccessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        mAccessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+        float x = event.getX();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mScroller.forceFinished(true);
+                mDownX = x;
+                mLastX = x;
+                mDragging = false;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (!mDragging && Math.abs(x - mDownX) > mTouchSlop && getMaxScrollOffset() > 0) {
+                    mDragging = true;
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                if (mDragging) {
+                    setScrollOffset(mScrollOffset + Math.round(mLastX - x));
+                }
+                mLastX = x;
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                    int velocity = (int) mVelocityTracker.getXVelocity();
+                    if (Math.abs(velocity) > mMinFlingVelocity) {
+                        mScroller.fling(mScrollOffset, 0, -velocity, 0, 0, getMaxScrollOffset(), 0, 0);
+                        ViewCompat.postInvalidateOnAnimation(this);
+                    }
+                } else {
+                    int tab = tabAt(x);
+                    if (tab >= 0) {
+                        performClick();
+                        dispatchTabClick(tab);
+                    }
+                }
+                endTouch();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                endTouch();
+                break;
+        }
+        return true;
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            setScrollOffset(mScroller.getCurrX());
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    private void endTouch() {
+        mDragging = false;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void dispatchTabClick(int tab) {
+        mAccessibilityHelper.sendEventForVirtualView(tab, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        boolean reselected = tab == mSelected;
+        if (!reselected) {
+            selectTab(tab, true);
+        }
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            if (reselected) {
+                mListeners.get(i).onTabReselected(tab);
+            } else {
+                mListeners.get(i).onTabSelected(tab);
+            }
+        }
+    }
+
+    /**
+     * 每个标签对应一个虚拟view，id即标签位置
+     */
+    private class TabAccessibilityHelper extends ExploreByTouchHelper {
+        private final Rect mBounds = new Rect();
+
+        TabAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int tab = tabAt(x);
+            return tab >= 0 ? tab : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0, count = mTitles.size(); i < count; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            if (virtualViewId < mTitles.size()) {
+                event.setContentDescription(mTitles.get(virtualViewId));
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            if (virtualViewId >= mTitles.size()) { // 标签已变化，给一个空节点
+                mBounds.setEmpty();
+                node.setContentDescription("");
+                node.setBoundsInParent(mBounds);
+                return;
+            }
+            mBounds.set(mTabLefts[virtualViewId] - mScrollOffset, 0,
+                    mTabRights[virtualViewId] - mScrollOffset, getHeight());
+            node.setText(mTitles.get(virtualViewId));
+            node.setBoundsInParent(mBounds);
+            node.setSelected(virtualViewId == mSelected);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && virtualViewId < mTitles.size()) {
+                dispatchTabClick(virtualViewId);
+                return true;
+            }
+            return false;
+        }
+    }
 }
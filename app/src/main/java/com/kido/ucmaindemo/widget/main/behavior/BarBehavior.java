@@ -10,6 +10,7 @@ import android.widget.OverScroller;
 
 import com.kido.ucmaindemo.utils.Logger;
 import com.kido.ucmaindemo.widget.main.base.ViewOffsetBehavior;
+import com.kido.ucmaindemo.widget.main.helper.AnimationLayerHelper;
 import com.kido.ucmaindemo.widget.main.helper.BarHelper;
 
 import java.lang.ref.WeakReference;
@@ -41,6 +42,8 @@ public class BarBehavior extends ViewOffsetBehavior {
 
     private boolean mWasNestedFlung;
 
+    private final AnimationLayerHelper mLayerHelper = new AnimationLayerHelper();
+
 
     public void setPagerStateListener(OnPagerStateListener pagerStateListener) {
         mPagerStateListener = pagerStateListener;
@@ -184,6 +187,7 @@ public class BarBehavior extends ViewOffsetBehavior {
     }
 
     private void onFlingFinished(CoordinatorLayout coordinatorLayout, View layout) {
+        mLayerHelper.end();
         changeState(isClosed(layout) ? STATE_CLOSED : STATE_OPENED);
     }
 
@@ -255,6 +259,7 @@ public class BarBehavior extends ViewOffsetBehavior {
                     barOffset, curTranslationY, dy, startY, deltaY);
 
             mOverScroller.startScroll(0, startY, 0, deltaY, duration);
+            mLayerHelper.begin(mLayout, mParent.getDependents(mLayout));
             start();
             if (mPagerStateListener != null) {
                 mPagerStateListener.onBarStartClosing();
@@ -268,6 +273,7 @@ public class BarBehavior extends ViewOffsetBehavior {
             Logger.d(TAG, "scrollToOpen-> curTranslationY=%s, startY=%s, deltaY=%s",
                     curTranslationY, startY, deltaY);
             mOverScroller.startScroll(0, startY, 0, deltaY, duration);
+            mLayerHelper.begin(mLayout, mParent.getDependents(mLayout));
             start();
             if (mPagerStateListener != null) {
                 mPagerStateListener.onBarStartOpening();
@@ -289,6 +295,7 @@ public class BarBehavior extends ViewOffsetBehavior {
             if (mLayout != null && mOverScroller != null) {
                 if (mOverScroller.computeScrollOffset()) {
                     Logger.d(TAG, "FlingRunnable run-> mOverScroller.getCurrY()=%s", mOverScroller.getCurrY());
+                    mLayerHelper.onFrame();
                     ViewCompat.setTranslationY(mLayout, mOverScroller.getCurrY());
                     ViewCompat.postOnAnimation(mLayout, this);
                 } else {
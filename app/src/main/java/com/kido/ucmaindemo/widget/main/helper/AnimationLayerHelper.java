@@ -0,0 +1,137 @@
+package com.kido.ucmaindemo.widget.main.helper;
+
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import com.kido.ucmaindemo.utils.Logger;
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bar动画期间把Bar及其依赖的view提升为硬件层，动画结束后恢复。
+ * <p>
+ * 动画只改变translationY，有了硬件层每帧只需合成，不必重新录制display list。
+ * 若某个view在动画过程中连续几帧都在自我刷新（比如列表在滚动），硬件层反而要每帧重绘，此时提前释放它的层。
+ *
+ * @author Kido
+ */
+public class AnimationLayerHelper {
+    private static final String TAG = "UNBL_LayerHelper";
+
+    private static final int MAX_DIRTY_FRAMES = 2; // 连续脏帧超过该值则释放
+
+    private final List<View> mViews = new ArrayList<>();
+    private int[] mOldLayerTypes = new int[4];
+    private int[] mDirtyFrames = new int[4];
+    private long mLayerBytes;
+    private boolean mActive;
+
+    /**
+     * 动画开始
+     *
+     * @param layout     Bar
+     * @param dependents 依赖Bar的兄弟view
+     */
+    public void begin(View layout, List<View> dependents) {
+        if (mActive) {
+            return;
+        }
+        mActive = true;
+        add(layout);
+        if (dependents != null) {
+            for (int i = 0, z = dependents.size(); i < z; i++) {
+                add(dependents.get(i));
+            }
+        }
+        PerfMetrics.set(PerfMetrics.BAR_LAYER_BYTES, mLayerBytes);
+        Logger.d(TAG, "begin-> layered=%s, bytes=%s", mViews.size(), mLayerBytes);
+    }
+
+    /**
+     * 每帧调用，检查是否有view在自我刷新
+     */
+    public void onFrame() {
+        if (!mActive || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        for (int i = 0, z = mViews.size(); i < z; i++) {
+            View view = mViews.get(i);
+            if (view == null) {
+                continue;
+            }
+            if (view.isDirty()) {
+                if (++mDirtyFrames[i] > MAX_DIRTY_FRAMES) {
+                    release(i);
+                }
+            } else {
+                mDirtyFrames[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * 动画结束，恢复原来的layer type
+     */
+    public void end() {
+        if (!mActive) {
+            return;
+        }
+        for (int i = 0, z = mViews.size(); i < z; i++) {
+            release(i);
+        }
+        mViews.clear();
+        mActive = false;
+        mLayerBytes = 0;
+        PerfMetrics.set(PerfMetrics.BAR_LAYER_BYTES, 0);
+    }
+
+    private void add(View view) {
+        if (view == null || view.getVisibility() != View.VISIBLE || view.getWidth() == 0 || view.getHeight() == 0) {
+            return;
+        }
+        int oldLayerType = ViewCompat.getLayerType(view);
+        if (oldLayerType == ViewCompat.LAYER_TYPE_HARDWARE) {
+            return;
+        }
+        int index = mViews.size();
+        ensureCapacity(index + 1);
+        mViews.add(view);
+        mOldLayerTypes[index] = oldLayerType;
+        mDirtyFrames[index] = 0;
+        ViewCompat.setLayerType(view, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        if (ViewCompat.isAttachedToWindow(view)) {
+            view.buildLayer();
+        }
+        mLayerBytes += layerBytes(view);
+    }
+
+    private void release(int index) {
+        View view = mViews.get(index);
+        if (view == null) {
+            return;
+        }
+        ViewCompat.setLayerType(view, mOldLayerTypes[index], null);
+        mViews.set(index, null);
+        mLayerBytes -= layerBytes(view);
+        PerfMetrics.set(PerfMetrics.BAR_LAYER_BYTES, mLayerBytes);
+    }
+
+    private static long layerBytes(View view) {
+        return (long) view.getWidth() * view.getHeight() * 4; // ARGB_8888
+    }
+
+    private void ensureCapacity(int size) {
+        if (mOldLayerTypes.length < size) {
+            int newSize = Math.max(size, mOldLayerTypes.length * 2);
+            int[] layerTypes = new int[newSize];
+            System.arraycopy(mOldLayerTypes, 0, layerTypes, 0, mOldLayerTypes.length);
+            mOldLayerTypes = layerTypes;
+            int[] dirtyFrames = new int[newSize];
+            System.arraycopy(mDirtyFrames, 0, dirtyFrames, 0, mDirtyFrames.length);
+            mDirtyFrames = dirtyFrames;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.kido.ucmaindemo.widget.news;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.kido.ucmaindemo.R;
+import com.kido.ucmaindemo.image.ThumbnailLoader;
+import com.kido.ucmaindemo.widget.text.TextLayoutCache;
+
+/**
+ * 扁平的新闻条目view：标题、附加信息和可选的右侧缩略图都在一个view里直接绘制，没有子view。
+ * <p>
+ * 文字使用{@link TextLayoutCache}中的排版，与item_news中的{@link com.kido.ucmaindemo.widget.text.LayoutTextView}共用缓存。
+ * 有缩略图时标题宽度变窄；位图未设置前画占位色。宽度需为确定值，高度由内容决定。
+ * 缩略图可通过{@link #loadThumbnail}由{@link ThumbnailLoader}加载，重新绑定时自动取消上一次的加载。
+ * 快速滑动时可以只用已缓存的排版绑定，未命中的文字按最大行数占位，不画。
+ *
+ * @author Kido
+ */
+public class NewsRowView extends View implements ThumbnailLoader.Target<Bitmap> {
+
+    private TextLayoutCache mCache = TextLayoutCache.getDefault();
+    private final int mGap;
+    private final int mThumbWidth;
+    private final int mThumbHeight;
+    private final Paint mThumbPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint mPlaceholderPaint = new Paint();
+
+    private CharSequence mTitle;
+    private TextLayoutCache.Style mTitleStyle;
+    private CharSequence mMeta;
+    private TextLayoutCache.Style mMetaStyle;
+    private boolean mHasThumbnail;
+    private Bitmap mThumbnail;
+    private String mThumbnailUrl;
+    private ThumbnailLoader<Bitmap>.Request mThumbnailRequest;
+    private final Rect mThumbSrc = new Rect();
+    private final Rect mThumbDst = new Rect();
+
+    private Layout mTitleLayout;
+    private Layout mMetaLayout;
+    private int mTextWidth;
+    private boolean mCachedOnly;
+
+    public NewsRowView(Context context) {
+        this(context, null);
+    }
+
+    public NewsRowView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public NewsRowView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        Resources res = context.getResources();
+        int padding = res.getDimensionPixelSize(R.dimen.news_row_padding);
+        setPadding(padding, padding, padding, padding);
+        mGap = res.getDimensionPixelSize(R.dimen.news_row_gap);
+        mThumbWidth = res.getDimensionPixelSize(R.dimen.news_thumbnail_width);
+        mThumbHeight = res.getDimensionPixelSize(R.dimen.news_thumbnail_height);
+        mPlaceholderPaint.setColor(ContextCompat.getColor(context, R.color.colorPrimaryLight));
+        TypedArray a = context.obtainStyledAttributes(new int[]{android.R.attr.selectableItemBackground});
+        setBackgroundDrawable(a.getDrawable(0)); // 与item_news的点击效果一致
+        a.recycle();
+    }
+
+    public void setCache(TextLayoutCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * @param hasThumbnail 是否给缩略图留位置，位图通过{@link #setThumbnail(Bitmap)}设置
+     */
+    public void bind(CharSequence title, TextLayoutCache.Style titleStyle,
+                     CharSequence meta, TextLayoutCache.Style metaStyle, boolean hasThumbnail) {
+        bind(title, titleStyle, meta, metaStyle, hasThumbnail, false);
+    }
+
+    /**
+     * @param meta       可为null，只占位
+     * @param cachedOnly 为true时只用已缓存的排版，未命中不排版
+     */
+    public void bind(CharSequence title, TextLayoutCache.Style titleStyle,
+                     CharSequence meta, TextLayoutCache.Style metaStyle, boolean hasThumbnail, boolean cachedOnly) {
+        boolean relayout = hasThumbnail != mHasThumbnail || mTextWidth == 0;
+        int oldHeight = getContentHeight();
+        mTitle = title;
+        mTitleStyle = titleStyle;
+        mMeta = meta;
+        mMetaStyle = metaStyle;
+        mHasThumbnail = hasThumbnail;
+        mCachedOnly = cachedOnly;
+        cancelThumbnail();
+        if (!relayout) { // 宽度不变，直接取排版
+            updateLayouts(mTextWidth);
+            relayout = getContentHeight() != oldHeight;
+        } else {
+            mTitleLayout = null;
+            mMetaLayout = null;
+        }
+        if (relayout) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public void setThumbnail(Bitmap bitmap) {
+        mThumbnail = bitmap;
+        if (bitmap != null) { // centerCrop
+            float scale = Math.max((float) mThumbWidth / bitmap.getWidth(), (float) mThumbHeight / bitmap.getHeight());
+            int srcWidth = Math.round(mThumbWidth / scale);
+            int srcHeight = Math.round(mThumbHeight / scale);
+            int left = (bitmap.getWidth() - srcWidth) / 2;
+            int top = (bitmap.getHeight() - srcHeight) / 2;
+            mThumbSrc.set(left, top, left + srcWidth, top + srcHeight);
+        }
+        invalidate();
+    }
+
+    /**
+     * 加载缩略图，需在{@link #bind}之后调用
+     *
+     * @param viewport 所在列表的可见范围
+     * @param position 条目位置，用于排优先级
+     */
+    public void loadThumbnail(ThumbnailLoader<Bitmap> loader, String url, ThumbnailLoader.Viewport viewport, int position) {
+        cancelThumbnail();
+        mThumbnailUrl = url;
+        mThumbnailRequest = loader.load(url, mThumbWidth, mThumbHeight, viewport, position, this);
+    }
+
+    /**
+     * 取消缩略图加载并释放已显示的位图，条目被回收时调用
+     */
+    public void cancelThumbnail() {
+        if (mThumbnailRequest != null) {
+            mThumbnailRequest.cancel();
+            mThumbnailRequest = null;
+        }
+        mThumbnailUrl = null;
+        if (mThumbnail != null) {
+            mThumbnail = null;
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onThumbnailLoaded(String url, Bitmap image) {
+        if (url.equals(mThumbnailUrl)) {
+            setThumbnail(image);
+        }
+    }
+
+    public int getThumbnailWidth() {
+        return mThumbWidth;
+    }
+
+    public int getThumbnailHeight() {
+        return mThumbHeight;
+    }
+
+    /**
+     * @return 当前标题排版宽度，尚未测量时为0
+     */
+    public int getTitleWidth() {
+        return mTextWidth;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int textWidth = width - getPaddingLeft() - getPaddingRight();
+        if (mHasThumbnail) {
+            textWidth -= mThumbWidth + mGap;
+        }
+        textWidth = Math.max(0, textWidth);
+        if (mTitle != null && (mTitleLayout == null || textWidth != mTextWidth)) {
+            updateLayouts(textWidth);
+        }
+        mTextWidth = textWidth;
+        int height = getContentHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        int thumbRight = right - left - getPaddingRight();
+        mThumbDst.set(thumbRight - mThumbWidth, getPaddingTop(), thumbRight, getPaddingTop() + mThumbHeight);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mTitle == null) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        int titleHeight = getTitleHeight();
+        if (mTitleLayout != null) {
+            canvas.save();
+            canvas.clipRect(0, 0, mTitleLayout.getWidth(), titleHeight);
+            mTitleLayout.draw(canvas);
+            canvas.restore();
+        }
+        if (mMetaLayout != null) {
+            canvas.translate(0, titleHeight + mGap);
+            mMetaLayout.draw(canvas);
+        }
+        canvas.restoreToCount(saveCount);
+
+        if (mHasThumbnail) {
+            if (mThumbnail != null) {
+                canvas.drawBitmap(mThumbnail, mThumbSrc, mThumbDst, mThumbPaint);
+            } else {
+                canvas.drawRect(mThumbDst, mPlaceholderPaint);
+            }
+        }
+    }
+
+    private void updateLayouts(int textWidth) {
+        mTitleLayout = getLayout(mTitle, textWidth, mTitleStyle);
+        mMetaLayout = mMeta == null ? null : getLayout(mMeta, textWidth, mMetaStyle);
+    }
+
+    private Layout getLayout(CharSequence text, int width, TextLayoutCache.Style style) {
+        return mCachedOnly ? mCache.peek(text, width, style) : mCache.get(text, width, style);
+    }
+
+    private int getTitleHeight() {
+        if (mTitleLayout == null) {
+            return mTitleStyle.getMaxHeight();
+        }
+        int lines = Math.min(mTitleLayout.getLineCount(), mTitleStyle.getMaxLines());
+        return mTitleLayout.getLineTop(lines);
+    }
+
+    private int getContentHeight() {
+        if (mTitle == null) {
+            return 0;
+        }
+        int metaHeight = mMetaLayout == null ? mMetaStyle.getMaxHeight()
+                : mMetaLayout.getLineTop(Math.min(mMetaLayout.getLineCount(), 1));
+        int textHeight = getTitleHeight() + mGap + metaHeight;
+        return mHasThumbnail ? Math.max(textHeight, mThumbHeight) : textHeight;
+    }
+}
@@ -0,0 +1,115 @@
+package com.kido.ucmaindemo.widget.text;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 直接绘制{@link TextLayoutCache}中排版结果的轻量文本view，用于列表标题。
+ * <p>
+ * 与TextView不同，绑定时不做文字测量：宽度已知时直接从缓存取排版，否则等onMeasure时再取。
+ * 只支持宽度为确定值（如match_parent）的布局，高度为wrap_content。
+ * 快速滑动时可以只用已缓存的排版（{@link #setText(CharSequence, TextLayoutCache.Style, boolean)}），未命中时按最大行数占位。
+ *
+ * @author Kido
+ */
+public class LayoutTextView extends View {
+
+    private TextLayoutCache mCache = TextLayoutCache.getDefault();
+    private CharSequence mText;
+    private TextLayoutCache.Style mStyle;
+    private Layout mLayout;
+    private int mTextWidth;
+    private boolean mCachedOnly;
+
+    public LayoutTextView(Context context) {
+        this(context, null);
+    }
+
+    public LayoutTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public LayoutTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public void setCache(TextLayoutCache cache) {
+        mCache = cache;
+    }
+
+    public void setText(CharSequence text, TextLayoutCache.Style style) {
+        setText(text, style, false);
+    }
+
+    /**
+     * @param cachedOnly 为true时只用已缓存的排版，未命中不排版，按最大行数占位
+     */
+    public void setText(CharSequence text, TextLayoutCache.Style style, boolean cachedOnly) {
+        boolean unchanged = text == mText && style.equals(mStyle);
+        mCachedOnly = cachedOnly;
+        if (unchanged && (mLayout != null || cachedOnly)) {
+            return;
+        }
+        int oldHeight = getTextHeight();
+        mText = text;
+        mStyle = style;
+        mLayout = mTextWidth > 0 ? getLayout(mTextWidth) : null;
+        if (mTextWidth == 0 || getTextHeight() != oldHeight) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * @return 当前排版宽度，尚未测量时为0
+     */
+    public int getTextWidth() {
+        return mTextWidth;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int textWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        if (mText != null && (mLayout == null || textWidth != mTextWidth)) {
+            mLayout = getLayout(textWidth);
+        }
+        mTextWidth = textWidth;
+        int height = getTextHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        canvas.clipRect(0, 0, mLayout.getWidth(), getTextHeight());
+        mLayout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private Layout getLayout(int width) {
+        return mCachedOnly ? mCache.peek(mText, width, mStyle) : mCache.get(mText, width, mStyle);
+    }
+
+    /**
+     * 低版本的排版可能超过最大行数，只算前maxLines行
+     */
+    private int getTextHeight() {
+        if (mLayout == null) {
+            return mText == null ? 0 : mStyle.getMaxHeight();
+        }
+        int lines = Math.min(mLayout.getLineCount(), mStyle.getMaxLines());
+        return mLayout.getLineTop(lines);
+    }
+}
@@ -0,0 +1,232 @@
+package com.kido.ucmaindemo.widget.text;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import com.kido.ucmaindemo.executor.AppExecutors;
+import com.kido.ucmaindemo.executor.CancellationToken;
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import java.util.List;
+
+/**
+ * 文本排版（{@link StaticLayout}）缓存，按 文本 + 宽度 + 样式 索引，按估算字节数LRU淘汰。
+ * <p>
+ * 数据加载后用{@link #prefetch(List, int, Style, CancellationToken)}在后台线程预先排版，绑定时{@link #get(CharSequence, int, Style)}通常直接命中，
+ * 未命中时在调用线程同步排版并放入缓存。
+ * 排版用的{@link TextPaint}属于{@link Style}，创建后不再修改，后台排版和主线程绘制只读共享。
+ *
+ * @author Kido
+ */
+public class TextLayoutCache {
+
+    private static final int DEFAULT_MAX_BYTES = 512 * 1024;
+
+    private static TextLayoutCache sDefault;
+
+    /**
+     * 影响排版的文字样式，参数相同的样式可共享缓存
+     */
+    public static final class Style {
+        final TextPaint mPaint;
+        final int mMaxLines;
+
+        public Style(float textSizePx, int color, int maxLines) {
+            this(textSizePx, color, maxLines, Typeface.DEFAULT);
+        }
+
+        public Style(float textSizePx, int color, int maxLines, Typeface typeface) {
+            mPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+            mPaint.setTextSize(textSizePx);
+            mPaint.setColor(color);
+            mPaint.setTypeface(typeface);
+            mMaxLines = maxLines;
+        }
+
+        public int getMaxLines() {
+            return mMaxLines;
+        }
+
+        /**
+         * @return 单行显示text所需的宽度
+         */
+        public int measureWidth(CharSequence text) {
+            return (int) Math.ceil(Layout.getDesiredWidth(text, mPaint));
+        }
+
+        /**
+         * @return 排满maxLines行的估算高度，排版未就绪时用于占位
+         */
+        public int getMaxHeight() {
+            return mPaint.getFontMetricsInt(null) * mMaxLines;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Style)) {
+                return false;
+            }
+            Style style = (Style) o;
+            return mMaxLines == style.mMaxLines
+                    && mPaint.getTextSize() == style.mPaint.getTextSize()
+                    && mPaint.getColor() == style.mPaint.getColor()
+                    && mPaint.getTypeface() == style.mPaint.getTypeface();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(mPaint.getTextSize());
+            result = 31 * result + mPaint.getColor();
+            result = 31 * result + mMaxLines;
+            return result;
+        }
+    }
+
+    private static final class Key {
+        final CharSequence text;
+        final int width;
+        final Style style;
+
+        Key(CharSequence text, int width, Style style) {
+            this.text = text;
+            this.width = width;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && style.equals(key.style) && TextUtils.equals(text, key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + width) * 31 + style.hashCode();
+        }
+    }
+
+    private final LruCache<Key, Layout> mCache;
+
+    public TextLayoutCache(int maxBytes) {
+        mCache = new LruCache<Key, Layout>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Layout value) {
+                return estimateBytes(value);
+            }
+        };
+    }
+
+    public static synchronized TextLayoutCache getDefault() {
+        if (sDefault == null) {
+            final TextLayoutCache cache = new TextLayoutCache(DEFAULT_MAX_BYTES);
+            MemoryCoordinator.getDefault().register("text layouts", MemoryCoordinator.PRIORITY_CACHE,
+                    new MemoryCoordinator.Trimmable() {
+                        @Override
+                        public void onTrim(int stage) {
+                            if (stage >= MemoryCoordinator.STAGE_ALL) {
+                                cache.evictAll();
+                            } else {
+                                cache.trimToSize(cache.mCache.size() / 2); // 留下最近用过的一半
+                            }
+                        }
+
+                        @Override
+                        public String describe() {
+                            return cache.mCache.size() / 1024 + " KB, " + cache.mCache.snapshot().size() + " layouts";
+                        }
+                    });
+            sDefault = cache;
+        }
+        return sDefault;
+    }
+
+    /**
+     * 取排版结果，未命中时同步排版
+     */
+    public Layout get(CharSequence text, int width, Style style) {
+        Key key = new Key(text, width, style);
+        Layout layout = mCache.get(key);
+        if (layout == null) {
+            PerfMetrics.add(PerfMetrics.TEXT_LAYOUT_MISSES, 1);
+            layout = build(text, width, style);
+            mCache.put(key, layout);
+            PerfMetrics.set(PerfMetrics.TEXT_LAYOUT_BYTES, mCache.size());
+        }
+        return layout;
+    }
+
+    /**
+     * 只取已缓存的排版，未命中返回null，不排版。快速滑动时使用
+     */
+    public Layout peek(CharSequence text, int width, Style style) {
+        return mCache.get(new Key(text, width, style));
+    }
+
+    /**
+     * 在预取线程池中为texts排版，已缓存的跳过
+     *
+     * @param token 开始前取消则不做，可为null
+     */
+    public void prefetch(List<? extends CharSequence> texts, final int width, final Style style,
+                         final CancellationToken token) {
+        if (width <= 0 || texts.isEmpty()) {
+            return;
+        }
+        final CharSequence[] pending = texts.toArray(new CharSequence[texts.size()]);
+        AppExecutors.getDefault().getPrefetchPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (CharSequence text : pending) {
+                    if (token != null && token.isCancelled()) {
+                        break;
+                    }
+                    Key key = new Key(text, width, style);
+                    if (mCache.get(key) == null) {
+                        mCache.put(key, build(text, width, style));
+                    }
+                }
+                PerfMetrics.set(PerfMetrics.TEXT_LAYOUT_BYTES, mCache.size());
+            }
+        }, token);
+    }
+
+    public void trimToSize(int maxBytes) {
+        mCache.trimToSize(maxBytes);
+        PerfMetrics.set(PerfMetrics.TEXT_LAYOUT_BYTES, mCache.size());
+    }
+
+    public void evictAll() {
+        mCache.evictAll();
+        PerfMetrics.set(PerfMetrics.TEXT_LAYOUT_BYTES, 0);
+    }
+
+    static Layout build(CharSequence text, int width, Style style) {
+        if (Build.VERSION.SDK_INT >= 23) {
+            return StaticLayout.Builder.obtain(text, 0, text.length(), style.mPaint, width)
+                    .setMaxLines(style.mMaxLines)
+                    .setEllipsize(TextUtils.TruncateAt.END)
+                    .build();
+        }
+        // 低版本不支持限制行数，排出全部行，由绘制方只画前mMaxLines行
+        return new StaticLayout(text, style.mPaint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+
+    /**
+     * 文本本身（通常与列表数据共享）不计入，只估算行信息和对象头
+     */
+    private static int estimateBytes(Layout layout) {
+        return 128 + layout.getLineCount() * 32;
+    }
+}
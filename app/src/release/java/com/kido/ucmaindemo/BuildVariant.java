@@ -0,0 +1,22 @@
+package com.kido.ucmaindemo;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+
+import com.kido.ucmaindemo.feed.FeedSource;
+import com.kido.ucmaindemo.feed.LocalFeedSource;
+
+/**
+ * release包：信息流数据在进程内生成，不启动模拟服务，也没有调试入口。debug包中有同名的实现
+ *
+ * @author Kido
+ */
+public class BuildVariant {
+
+    public static FeedSource createFeedSource() {
+        return new LocalFeedSource(FeedSource.DEFAULT_PAGE_SIZE);
+    }
+
+    public static void addTestEntries(Activity activity, ViewGroup container) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.kido.ucmaindemo.executor;
+
+import com.kido.ucmaindemo.utils.PerfMetrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 线程池：串行executor保持顺序、取消的任务跳过、排队超过容量时的两种策略、排队数统计
+ */
+public class TaskPoolTest {
+
+    private final List<TaskPool> mPools = new ArrayList<>();
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (TaskPool pool : mPools) {
+            pool.shutdown();
+            pool.awaitTermination(5000);
+        }
+    }
+
+    private TaskPool newPool(int threads, int capacity, int policy) {
+        TaskPool pool = new TaskPool("test", threads, capacity, policy, Executors.defaultThreadFactory(), -1);
+        mPools.add(pool);
+        return pool;
+    }
+
+    /**
+     * 占住池中唯一的线程，直到latch打开
+     */
+    private static CountDownLatch block(TaskPool pool) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static Runnable record(final List<Integer> out, final int value) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                out.add(value);
+            }
+        };
+    }
+
+    @Test
+    public void serialExecutorKeepsOrder() throws Exception {
+        TaskPool pool = newPool(4, 64, TaskPool.POLICY_OVERFLOW);
+        Executor serial = pool.newSerialExecutor();
+        final List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 200; i++) {
+            serial.execute(record(out, i));
+        }
+        serial.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(200, out.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) out.get(i));
+        }
+    }
+
+    @Test
+    public void cancelledTasksAreSkipped() throws Exception {
+        TaskPool pool = newPool(1, 16, TaskPool.POLICY_OVERFLOW);
+        CountDownLatch release = block(pool);
+        List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        CancellationToken token = new CancellationToken();
+        pool.execute(record(out, 1), token);
+        pool.execute(record(out, 2));
+        token.cancel();
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5000));
+        assertEquals(Collections.singletonList(2), out);
+        assertEquals(1, pool.getCancelled());
+    }
+
+    @Test
+    public void discardOldestWhenFull() throws Exception {
+        TaskPool pool = newPool(1, 2, TaskPool.POLICY_DISCARD_OLDEST);
+        CountDownLatch release = block(pool);
+        List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 5; i++) {
+            pool.execute(record(out, i));
+        }
+        assertEquals(3, pool.getDropped());
+        assertEquals(2, pool.getQueueSize());
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5000));
+        assertEquals(Arrays.asList(3, 4), out);
+    }
+
+    @Test
+    public void overflowKeepsQueueingOffTheCaller() throws Exception {
+        TaskPool pool = newPool(1, 1, TaskPool.POLICY_OVERFLOW);
+        CountDownLatch release = block(pool);
+        final String caller = Thread.currentThread().getName();
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        Runnable recordThread = new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread().getName());
+            }
+        };
+        for (int i = 0; i < 3; i++) { // 超过容量仍然排队，不在当前线程执行
+            pool.execute(recordThread);
+        }
+        assertTrue(threads.isEmpty());
+        assertEquals(3, pool.getQueueSize());
+        assertEquals(3, pool.getMaxQueueSize());
+        assertEquals(2, pool.getOverflowed());
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5000));
+        assertEquals(3, threads.size());
+        assertFalse(threads.contains(caller));
+        assertEquals(0, pool.getDropped());
+    }
+
+    @Test
+    public void queuedMetricReturnsToZero() throws Exception {
+        long before = PerfMetrics.get(PerfMetrics.EXECUTOR_QUEUED);
+        TaskPool pool = newPool(1, 4, TaskPool.POLICY_DISCARD_OLDEST);
+        CountDownLatch release = block(pool);
+        List<Integer> out = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 6; i++) {
+            pool.execute(record(out, i));
+        }
+        assertEquals(before + 4, PerfMetrics.get(PerfMetrics.EXECUTOR_QUEUED));
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5000));
+        assertEquals(before, PerfMetrics.get(PerfMetrics.EXECUTOR_QUEUED));
+        assertTrue(pool.getMaxWaitNanos() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noSerialExecutorOnDiscardingPool() {
+        newPool(1, 4, TaskPool.POLICY_DISCARD_OLDEST).newSerialExecutor();
+    }
+}
@@ -0,0 +1,59 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 与ArrayList对照的随机插入/删除测试
+ */
+public class FeedItemIndexTest {
+
+    @Test
+    public void matchesReferenceList() {
+        Random random = new Random(7);
+        FeedItemIndex index = new FeedItemIndex();
+        List<Long> expected = new ArrayList<>();
+        long nextId = -500; // 覆盖负数和0
+        for (int round = 0; round < 3000; round++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int position = random.nextInt(expected.size() + 1);
+                int count = 1 + random.nextInt(8);
+                List<FeedItem> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(new FeedItem(nextId++, "c", "t", 0));
+                }
+                index.insert(position, items);
+                for (int i = 0; i < count; i++) {
+                    expected.add(position + i, items.get(i).id);
+                }
+            } else {
+                int position = random.nextInt(expected.size());
+                int count = 1 + random.nextInt(Math.min(8, expected.size() - position));
+                for (int i = 0; i < count; i++) {
+                    assertTrue(index.contains(expected.get(position)));
+                    expected.remove(position);
+                }
+                index.remove(position, count);
+            }
+            if (round % 100 == 0) {
+                verify(index, expected);
+            }
+        }
+        verify(index, expected);
+        assertEquals(-1, index.positionOf(nextId));
+    }
+
+    private static void verify(FeedItemIndex index, List<Long> expected) {
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < expected.size(); i++) {
+            long id = expected.get(i);
+            assertEquals(id, index.idAt(i));
+            assertEquals(i, index.positionOf(id));
+        }
+    }
+}
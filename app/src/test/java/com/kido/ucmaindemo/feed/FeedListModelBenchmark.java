@@ -0,0 +1,49 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在1万、5万条列表上刷新合并的耗时，结果打印到标准输出。
+ * 依赖机器负载，不随单元测试运行，需要时去掉@Ignore手动运行；一帧（16ms）内完成为合格。
+ */
+public class FeedListModelBenchmark {
+
+    private static final String CHANNEL = "推荐";
+    private static final int ROUNDS = 50;
+
+    @Ignore("benchmark, run manually")
+    @Test
+    public void merge_10000() {
+        run(10000);
+    }
+
+    @Ignore("benchmark, run manually")
+    @Test
+    public void merge_50000() {
+        run(50000);
+    }
+
+    private void run(int size) {
+        FeedListModel model = new FeedListModel(new FeedItemPool(64));
+        model.appendNew(SyntheticFeedSource.load(CHANNEL, 0, size));
+        long worst = 0;
+        long total = 0;
+        for (int r = 1; r <= ROUNDS; r++) {
+            // 每次刷新：20条中15条新、5条与现有重复
+            List<FeedItem> fresh = SyntheticFeedSource.load(CHANNEL, -15 * r, 20);
+            long start = System.nanoTime();
+            int inserted = model.prependNew(fresh);
+            long cost = System.nanoTime() - start;
+            assertEquals(15, inserted);
+            worst = Math.max(worst, cost);
+            total += cost;
+        }
+        System.out.println(String.format("FeedListModel merge into %d items: avg=%.3fms, worst=%.3fms",
+                size, total / 1e6 / ROUNDS, worst / 1e6));
+    }
+}
@@ -0,0 +1,89 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 合并的正确性：只插入新条目、重复的放回对象池、多次刷新后位置索引仍一致。耗时见{@link FeedListModelBenchmark}
+ */
+public class FeedListModelTest {
+
+    private static final String CHANNEL = "推荐";
+
+    @Test
+    public void insertsOnlyNewItemsAndReportsRange() {
+        FeedItemPool pool = new FeedItemPool(16);
+        FeedListModel model = new FeedListModel(pool);
+        final int[] range = new int[2];
+        model.setObserver(new FeedListModel.Observer() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                range[0] = positionStart;
+                range[1] = itemCount;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                range[0] = positionStart;
+                range[1] = -itemCount;
+            }
+        });
+        model.appendNew(SyntheticFeedSource.load(CHANNEL, 0, 10));
+        assertEquals(0, range[0]);
+        assertEquals(10, range[1]);
+
+        int inserted = model.prependNew(SyntheticFeedSource.load(CHANNEL, -3, 6)); // -3..2，其中0..2已存在
+        assertEquals(3, inserted);
+        assertEquals(0, range[0]);
+        assertEquals(3, range[1]);
+        assertEquals(13, model.size());
+        assertEquals(SyntheticFeedSource.makeId(CHANNEL, -3), model.get(0).id);
+        assertEquals(SyntheticFeedSource.makeId(CHANNEL, 0), model.get(3).id);
+        assertEquals(3, pool.size()); // 重复的条目放回池中
+
+        range[1] = -1;
+        assertEquals(0, model.appendNew(SyntheticFeedSource.load(CHANNEL, 5, 5)));
+        assertEquals(-1, range[1]); // 没有变化不通知
+
+        long id = model.getItemId(5);
+        model.remove(1, 2);
+        assertEquals(1, range[0]);
+        assertEquals(-2, range[1]);
+        assertEquals(3, model.positionOf(id));
+        assertEquals(SyntheticFeedSource.makeId(CHANNEL, -3), model.getItemId(0));
+    }
+
+    @Test
+    public void dropsDuplicatesWithinOnePayload() {
+        FeedListModel model = new FeedListModel(new FeedItemPool(4));
+        List<FeedItem> items = new ArrayList<>(SyntheticFeedSource.load(CHANNEL, 0, 3));
+        items.addAll(SyntheticFeedSource.load(CHANNEL, 1, 3));
+        assertEquals(4, model.appendNew(items));
+    }
+
+    @Test
+    public void repeatedRefreshesKeepIndexConsistent() {
+        int size = 10000;
+        int rounds = 50;
+        FeedItemPool pool = new FeedItemPool(1024);
+        FeedListModel model = new FeedListModel(pool);
+        model.appendNew(SyntheticFeedSource.load(CHANNEL, 0, size));
+        for (int r = 1; r <= rounds; r++) {
+            // 每次刷新：20条中15条新、5条与现有重复
+            assertEquals(15, model.prependNew(SyntheticFeedSource.load(CHANNEL, -15 * r, 20)));
+            assertEquals(5 * r, pool.size()); // 重复的条目都放回池中
+            assertEquals(0, model.positionOf(SyntheticFeedSource.makeId(CHANNEL, -15 * r)));
+        }
+        assertEquals(size + 15 * rounds, model.size());
+        for (int i = 0; i < model.size(); i += 97) {
+            long id = model.getItemId(i);
+            assertEquals(SyntheticFeedSource.makeId(CHANNEL, i - 15 * rounds), id); // 按序号连续
+            assertEquals(i, model.positionOf(id));
+        }
+        assertEquals(-1, model.positionOf(SyntheticFeedSource.makeId(CHANNEL, size)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * FeedStreamReader在1MB与10MB模拟数据上的吞吐和首批耗时，结果打印到标准输出。
+ * 吞吐测试耗时较长，不随单元测试运行，需要时去掉@Ignore手动运行；单条分配量用profiler看。
+ */
+public class FeedStreamReaderBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CHANNEL = "推荐";
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    @Ignore("benchmark, run manually")
+    @Test
+    public void parse_1MB() throws Exception {
+        run(1024 * 1024);
+    }
+
+    @Ignore("benchmark, run manually")
+    @Test
+    public void parse_10MB() throws Exception {
+        run(10 * 1024 * 1024);
+    }
+
+    @Test
+    public void partialDeliveryAndInterning() throws Exception {
+        FeedStreamReader reader = new FeedStreamReader(new FeedItemPool(64), 10);
+        final int[] batches = new int[1];
+        final String[] channel = new String[1];
+        int count = reader.read(SyntheticFeedSource.openJson(CHANNEL, 0, 35), null, new FeedStreamReader.Sink() {
+            @Override
+            public void onItems(List<FeedItem> items, boolean complete) {
+                batches[0]++;
+                assertEquals(complete ? 5 : 10, items.size());
+                for (FeedItem item : items) {
+                    if (channel[0] == null) {
+                        channel[0] = item.channel;
+                    }
+                    assertSame(channel[0], item.channel);
+                }
+                if (items.size() > 0) {
+                    FeedItem first = items.get(0);
+                    int seq = (int) first.id;
+                    assertEquals(SyntheticFeedSource.makeId(CHANNEL, seq), first.id);
+                    assertEquals(SyntheticFeedSource.makeTitle(CHANNEL, seq), first.title);
+                }
+            }
+        });
+        assertEquals(35, count);
+        assertEquals(4, batches[0]);
+        assertEquals(CHANNEL, channel[0]);
+    }
+
+    private void run(int targetBytes) throws IOException {
+        byte[] payload = makePayload(targetBytes);
+        final FeedItemPool pool = new FeedItemPool(256);
+        FeedStreamReader reader = new FeedStreamReader(pool, 20);
+        CountingSink sink = new CountingSink(pool);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink.reset();
+            reader.read(open(payload), CHANNEL, sink);
+        }
+
+        long totalNanos = 0;
+        long firstBatchNanos = 0;
+        int items = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            sink.reset();
+            long start = System.nanoTime();
+            sink.mStartNanos = start;
+            items = reader.read(open(payload), CHANNEL, sink);
+            totalNanos += System.nanoTime() - start;
+            firstBatchNanos += sink.mFirstBatchNanos;
+            assertEquals(items, sink.mCount);
+        }
+        assertTrue(items > 0);
+
+        double seconds = totalNanos / 1e9;
+        double mb = (double) payload.length * ROUNDS / (1024 * 1024);
+        System.out.println(String.format(
+                "FeedStreamReader %.1fMB: items=%d, avg=%.1fms, first batch=%.3fms, %.1f MB/s, %.0f items/s",
+                payload.length / (1024.0 * 1024), items, totalNanos / 1e6 / ROUNDS, firstBatchNanos / 1e6 / ROUNDS,
+                mb / seconds, items * ROUNDS / seconds));
+    }
+
+    private static byte[] makePayload(int targetBytes) {
+        StringBuilder sample = new StringBuilder();
+        SyntheticFeedSource.appendJson(sample, CHANNEL, 0, 100);
+        int bytesPerItem = sample.toString().getBytes(UTF_8).length / 100;
+        StringBuilder sb = new StringBuilder(targetBytes);
+        SyntheticFeedSource.appendJson(sb, CHANNEL, 0, targetBytes / bytesPerItem);
+        return sb.toString().getBytes(UTF_8);
+    }
+
+    private static Reader open(byte[] payload) {
+        return new InputStreamReader(new ByteArrayInputStream(payload), UTF_8);
+    }
+
+    /**
+     * 只计数，条目立即放回池中（模拟列表拷贝后丢弃重复项）
+     */
+    private static class CountingSink implements FeedStreamReader.Sink {
+        private final FeedItemPool mPool;
+        long mStartNanos;
+        long mFirstBatchNanos;
+        int mCount;
+
+        CountingSink(FeedItemPool pool) {
+            mPool = pool;
+        }
+
+        void reset() {
+            mFirstBatchNanos = 0;
+            mCount = 0;
+        }
+
+        @Override
+        public void onItems(List<FeedItem> items, boolean complete) {
+            if (mCount == 0) {
+                mFirstBatchNanos = System.nanoTime() - mStartNanos;
+            }
+            mCount += items.size();
+            mPool.releaseAll(items);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式JSON读取：转义与\\u、嵌套skipValue、数字格式、字符串复用、非法和截断的输入
+ */
+public class JsonTokenReaderTest {
+
+    private static JsonTokenReader reader(String json) {
+        return new JsonTokenReader(new StringReader(json), new StringPool(64));
+    }
+
+    private static void assertSyntaxError(String json) {
+        JsonTokenReader reader = reader(json);
+        try {
+            while (reader.peek() != JsonTokenReader.END_DOCUMENT) {
+                reader.skipValue();
+            }
+            fail("expected syntax error: " + json);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("json syntax error"));
+        }
+    }
+
+    @Test
+    public void readsEscapes() throws IOException {
+        JsonTokenReader reader = reader("[\"a\\\"b\\\\c\\/d\\n\\t\\r\\b\\f\"]");
+        reader.beginArray();
+        assertEquals("a\"b\\c/d\n\t\r\b\f", reader.nextString());
+        reader.endArray();
+        assertEquals(JsonTokenReader.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void readsUnicodeEscapes() throws IOException {
+        JsonTokenReader reader = reader("[\"\\u4e2d\\u6587\", \"\\u00E9x\", \"\\ud83d\\ude00\"]");
+        reader.beginArray();
+        assertEquals("中文", reader.nextString());
+        assertEquals("\u00e9x", reader.nextString());
+        assertEquals("\ud83d\ude00", reader.nextString()); // 代理对按两个char原样拼接
+        reader.endArray();
+    }
+
+    @Test
+    public void readsLongStringsAcrossBufferRefills() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        JsonTokenReader reader = reader("{\"k\":\"" + sb + "\\n\"}");
+        reader.beginObject();
+        assertEquals("k", reader.nextName());
+        assertEquals(sb + "\n", reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    public void skipsNestedValues() throws IOException {
+        JsonTokenReader reader = reader("{\"skip\":{\"a\":[1,{\"b\":[[],{}]},\"x\",true,null],\"c\":{}},\"keep\":7}");
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(7, reader.nextLong());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonTokenReader.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void readsNumbers() throws IOException {
+        JsonTokenReader reader = reader("[0, -42, 9007199254740993, 1.9, 1e3, 2.5E+2, -1.5e-1, \"12\"]");
+        reader.beginArray();
+        assertEquals(0, reader.nextLong());
+        assertEquals(-42, reader.nextLong());
+        assertEquals(9007199254740993L, reader.nextLong()); // 整数不经过double，不丢精度
+        assertEquals(1, reader.nextLong());
+        assertEquals(1000, reader.nextLong());
+        assertEquals(250, reader.nextLong());
+        assertEquals(0, reader.nextLong());
+        assertEquals(12, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    public void readsLiteralsAndNull() throws IOException {
+        JsonTokenReader reader = reader("{\"t\":true,\"f\":false,\"n\":null,\"s\":null}");
+        reader.beginObject();
+        reader.nextName();
+        assertTrue(reader.nextBoolean());
+        reader.nextName();
+        assertFalse(reader.nextBoolean());
+        reader.nextName();
+        assertEquals(JsonTokenReader.NULL, reader.peek());
+        reader.nextNull();
+        reader.nextName();
+        assertNull(reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    public void internsNamesAndRequestedValues() throws IOException {
+        JsonTokenReader reader = reader("[{\"channel\":\"推荐\"},{\"channel\":\"推荐\"}]");
+        reader.beginArray();
+        reader.beginObject();
+        String name = reader.nextName();
+        String value = reader.nextString(true);
+        reader.endObject();
+        reader.beginObject();
+        assertSame(name, reader.nextName());
+        assertSame(value, reader.nextString(true));
+        reader.endObject();
+        reader.endArray();
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        assertSyntaxError("[1 2]");
+        assertSyntaxError("{\"a\" 1}");
+        assertSyntaxError("{\"a\":1 \"b\":2}");
+        assertSyntaxError("{a:1}");
+        assertSyntaxError("[tru]");
+        assertSyntaxError("[nul]");
+        assertSyntaxError("[\"\\x\"]");
+        assertSyntaxError("[\"\\u12G4\"]");
+        assertSyntaxError("[@]");
+        assertSyntaxError("[] []");
+    }
+
+    @Test
+    public void rejectsTruncatedInput() {
+        assertSyntaxError("");
+        assertSyntaxError("[");
+        assertSyntaxError("[1,");
+        assertSyntaxError("{\"a\":");
+        assertSyntaxError("{\"a\":{\"b\":[1,2]");
+        assertSyntaxError("[\"abc");
+        assertSyntaxError("[\"abc\\");
+        assertSyntaxError("[\"\\u12");
+    }
+
+    @Test
+    public void typeMismatchIsAnError() throws IOException {
+        JsonTokenReader reader = reader("[true]");
+        reader.beginArray();
+        try {
+            reader.nextString();
+            fail();
+        } catch (IOException expected) {
+        }
+        try {
+            reader.beginObject();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
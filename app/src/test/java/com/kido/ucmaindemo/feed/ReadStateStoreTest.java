@@ -0,0 +1,129 @@
+package com.kido.ucmaindemo.feed;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * 已曝光/已读状态的持久化：追加写入、重新加载、压缩、末尾不完整记录
+ */
+public class ReadStateStoreTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("read_state", "");
+        assertTrue(mDir.delete());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void persistsAndReloads() {
+        ChannelReadState state = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertTrue(state.isLoaded());
+        assertTrue(state.markSeen(1));
+        assertFalse(state.markSeen(1));
+        assertTrue(state.markRead(-7));
+        state.flush();
+
+        ChannelReadState reloaded = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertTrue(reloaded.isSeen(1));
+        assertFalse(reloaded.isRead(1));
+        assertTrue(reloaded.isSeen(-7));
+        assertTrue(reloaded.isRead(-7));
+        assertFalse(new ReadStateStore(mDir, DIRECT).get("国际").isSeen(1));
+    }
+
+    @Test
+    public void ignoresTornTailRecord() throws IOException {
+        ChannelReadState state = new ReadStateStore(mDir, DIRECT).get("推荐");
+        state.markSeen(42);
+        state.flush();
+        File[] files = mDir.listFiles();
+        assertNotNull(files);
+        FileOutputStream out = new FileOutputStream(files[0], true);
+        out.write(new byte[]{ChannelReadState.FLAG_READ, 0, 0}); // 写了一半的记录
+        out.close();
+
+        ChannelReadState reloaded = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertTrue(reloaded.isSeen(42));
+        assertEquals(1, reloaded.mRecordsOnDisk);
+        assertEquals(5, files[0].length()); // 不完整的记录已截掉
+
+        reloaded.markSeen(7); // 之后追加的记录仍然对齐
+        reloaded.flush();
+        ChannelReadState again = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertEquals(2, again.mRecordsOnDisk);
+        assertTrue(again.isSeen(42));
+        assertTrue(again.isSeen(7));
+        assertFalse(again.isRead(42));
+        assertFalse(again.isRead(7));
+        int[][] snapshot = again.snapshot();
+        assertEquals(2, snapshot[0].length);
+        assertEquals(0, snapshot[1].length);
+    }
+
+    @Test
+    public void writesOnlyNewMarks() {
+        ChannelReadState state = new ReadStateStore(mDir, DIRECT).get("推荐");
+        for (int i = 0; i < 20000; i++) {
+            state.markSeen(i % 1000);
+            state.markRead(i);
+        }
+        state.flush();
+        assertEquals(40000, state.mRecordsOnDisk); // 20000条已曝光 + 20000条已读，重复的标记不写
+
+        ChannelReadState reloaded = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertTrue(reloaded.isRead(19999));
+        assertTrue(reloaded.isSeen(19999));
+        assertFalse(reloaded.isSeen(20000));
+    }
+
+    @Test
+    public void compactsDuplicatedHistory() throws IOException {
+        assertTrue(mDir.mkdirs());
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(
+                new File(mDir, Integer.toHexString("推荐".hashCode()) + ".rs")));
+        for (int i = 0; i < 5000; i++) { // 如加载完成前重复写入的记录
+            out.writeByte(ChannelReadState.FLAG_SEEN);
+            out.writeInt(1);
+        }
+        out.close();
+
+        ChannelReadState state = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertEquals(5000, state.mRecordsOnDisk);
+        state.markSeen(2);
+        state.flush();
+        assertEquals(2, state.mRecordsOnDisk);
+
+        ChannelReadState reloaded = new ReadStateStore(mDir, DIRECT).get("推荐");
+        assertTrue(reloaded.isSeen(1));
+        assertTrue(reloaded.isSeen(2));
+    }
+}
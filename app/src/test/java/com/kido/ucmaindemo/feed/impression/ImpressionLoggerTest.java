@@ -0,0 +1,142 @@
+package com.kido.ucmaindemo.feed.impression;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 曝光日志：批量写入、文件内去重、按大小轮转、关闭时写完剩余记录
+ */
+public class ImpressionLoggerTest {
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("impressions", "");
+        assertTrue(mDir.delete());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void writesDedupedRecordsOnClose() throws Exception {
+        ImpressionLogger logger = new ImpressionLogger(mDir, 256).setFlushInterval(60000);
+        logger.start();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(logger.log(i % 40, 5, i));
+        }
+        logger.close();
+
+        List<long[]> records = readRecords(logger.getFile(0));
+        assertEquals(40, records.size());
+        assertEquals(40, logger.getWritten());
+        assertEquals(60, logger.getDeduped());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, records.get(i)[0]);
+            assertEquals(5, records.get(i)[2]);
+            assertEquals(i, records.get(i)[3]);
+        }
+        assertTrue(records.get(0)[1] > 0);
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() throws Exception {
+        ImpressionLogger logger = new ImpressionLogger(mDir, 256).setBatchSize(10).setFlushInterval(60000);
+        logger.start();
+        for (int i = 0; i < 25; i++) {
+            logger.log(i, 0, i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logger.getWritten() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, logger.getWritten()); // 剩下5条未满一批，等时间阈值
+        assertEquals(20, readRecords(logger.getFile(0)).size());
+
+        logger.requestFlush();
+        deadline = System.currentTimeMillis() + 5000;
+        while (logger.getWritten() < 25 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(25, logger.getWritten());
+        logger.close();
+    }
+
+    @Test
+    public void idleWriterWakesForNewRecords() throws Exception {
+        ImpressionLogger logger = new ImpressionLogger(mDir, 256).setBatchSize(10).setFlushInterval(50);
+        logger.start();
+        Thread.sleep(100); // 没有记录，后台线程进入无限期等待
+        for (int i = 0; i < 3; i++) {
+            logger.log(i, 0, i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logger.getWritten() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, logger.getWritten()); // 被第一条记录唤醒，不满一批也按时间阈值写入
+        logger.close();
+    }
+
+    @Test
+    public void rotatesBySize() throws Exception {
+        ImpressionLogger logger = new ImpressionLogger(mDir, 1024).setBatchSize(10).setFlushInterval(60000)
+                .setMaxFileBytes(10 * ImpressionLogger.RECORD_BYTES).setMaxFiles(3);
+        logger.start();
+        for (int i = 0; i < 45; i++) {
+            while (!logger.log(i, 0, i)) {
+                Thread.sleep(1);
+            }
+        }
+        logger.log(5, 0, 5); // 已轮转出去的id可再次写入
+        logger.close();
+
+        assertEquals(46, logger.getWritten());
+        assertEquals(0, logger.getDeduped());
+        assertEquals(4, logger.getRotations());
+        List<long[]> current = readRecords(logger.getFile(0));
+        assertEquals(6, current.size());
+        assertEquals(40, current.get(0)[0]);
+        assertEquals(5, current.get(5)[0]);
+        assertEquals(30, readRecords(logger.getFile(1)).get(0)[0]);
+        assertEquals(20, readRecords(logger.getFile(2)).get(0)[0]);
+        assertFalse(logger.getFile(3).exists());
+    }
+
+    private static List<long[]> readRecords(File file) throws IOException {
+        List<long[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+        assertEquals(0, file.length() % ImpressionLogger.RECORD_BYTES);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            for (long i = 0, n = file.length() / ImpressionLogger.RECORD_BYTES; i < n; i++) {
+                records.add(new long[]{in.readLong(), in.readLong(), in.readInt(), in.readInt()});
+            }
+        } finally {
+            in.close();
+        }
+        return records;
+    }
+}
@@ -0,0 +1,79 @@
+package com.kido.ucmaindemo.feed.impression;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 曝光环形缓冲区：满时丢弃、记录字段、跨线程按顺序不丢不重
+ */
+public class ImpressionRingBufferTest {
+
+    @Test
+    public void dropsWhenFull() {
+        ImpressionRingBuffer buffer = new ImpressionRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i, 100 + i, 7, i));
+        }
+        assertFalse(buffer.offer(4, 104, 7, 4));
+        assertEquals(1, buffer.getDropped());
+        assertEquals(4, buffer.getHighWatermark());
+
+        long[] out = new long[2 * ImpressionRingBuffer.RECORD_LONGS];
+        assertEquals(2, buffer.drain(out, 2));
+        assertEquals(0, ImpressionRingBuffer.itemIdOf(out, 0));
+        assertEquals(101, ImpressionRingBuffer.timeOf(out, 1));
+        assertEquals(2, buffer.size());
+        assertTrue(buffer.offer(5, 105, 7, 5)); // 取出后又有空位
+    }
+
+    @Test
+    public void keepsRecordFields() {
+        ImpressionRingBuffer buffer = new ImpressionRingBuffer(4);
+        buffer.offer(-1L, Long.MAX_VALUE, "推荐".hashCode(), -3);
+        long[] out = new long[ImpressionRingBuffer.RECORD_LONGS];
+        assertEquals(1, buffer.drain(out, 1));
+        assertEquals(-1L, ImpressionRingBuffer.itemIdOf(out, 0));
+        assertEquals(Long.MAX_VALUE, ImpressionRingBuffer.timeOf(out, 0));
+        assertEquals("推荐".hashCode(), ImpressionRingBuffer.channelOf(out, 0));
+        assertEquals(-3, ImpressionRingBuffer.positionOf(out, 0));
+        assertEquals(0, buffer.drain(out, 1));
+    }
+
+    @Test
+    public void transfersInOrderAcrossThreads() throws InterruptedException {
+        final ImpressionRingBuffer buffer = new ImpressionRingBuffer(64);
+        final int total = 500000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < total; i++) {
+                    while (!buffer.offer(i, i * 2L, i, -i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+        long[] out = new long[16 * ImpressionRingBuffer.RECORD_LONGS];
+        long expected = 0;
+        while (expected < total) {
+            int count = buffer.drain(out, 16);
+            if (count == 0) {
+                Thread.yield();
+            }
+            for (int i = 0; i < count; i++, expected++) {
+                if (ImpressionRingBuffer.itemIdOf(out, i) != expected
+                        || ImpressionRingBuffer.timeOf(out, i) != expected * 2
+                        || ImpressionRingBuffer.channelOf(out, i) != (int) expected
+                        || ImpressionRingBuffer.positionOf(out, i) != (int) -expected) {
+                    fail("record " + expected + " corrupted");
+                }
+            }
+        }
+        producer.join();
+        assertEquals(total, buffer.getOffered());
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.kido.ucmaindemo.image;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 磁盘LRU缓存：存取、按大小淘汰最久未用的、钉住的不淘汰、重新打开后保留
+ */
+public class DiskLruCacheTest {
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("disk_lru", "");
+        assertTrue(mDir.delete());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void putAndGet() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDir, 1000);
+        assertNull(cache.get("http://a/1"));
+        File file = cache.put("http://a/1", bytes(100));
+        assertEquals(100, file.length());
+        assertEquals(file, cache.get("http://a/1"));
+        assertEquals(100, cache.size());
+
+        cache.put("http://a/1", bytes(50)); // 覆盖
+        assertEquals(50, cache.size());
+        cache.remove("http://a/1");
+        assertNull(cache.get("http://a/1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDir, 300);
+        cache.put("a", bytes(100));
+        cache.put("b", bytes(100));
+        cache.put("c", bytes(100));
+        assertNotNull(cache.get("a")); // a变为最近使用
+        cache.put("d", bytes(100));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(300, cache.size());
+        assertEquals(3, mDir.listFiles().length);
+    }
+
+    @Test
+    public void pinnedEntrySurvivesTrimUntilReleased() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDir, 200);
+        File a = cache.putAndAcquire("a", bytes(100));
+        cache.put("b", bytes(100));
+        assertNotNull(cache.acquire("b"));
+        cache.release("b");
+        cache.put("c", bytes(100)); // a最久未用但被钉住，淘汰b
+        assertTrue(a.exists());
+        assertNull(cache.get("b"));
+        assertEquals(200, cache.size());
+
+        assertEquals(a, cache.acquire("a")); // 钉住两次
+        cache.put("d", bytes(100)); // 只能淘汰c，a仍在
+        assertTrue(a.exists());
+        assertEquals(200, cache.size());
+        cache.release("a");
+        cache.put("e", bytes(100)); // 仍钉住一次
+        assertTrue(a.exists());
+        assertEquals(200, cache.size());
+        cache.release("a");
+        cache.put("f", bytes(100)); // 解除后按访问顺序淘汰a
+        assertFalse(a.exists());
+        assertNull(cache.get("a"));
+        assertEquals(200, cache.size());
+        assertEquals(2, mDir.listFiles().length);
+    }
+
+    @Test
+    public void reopensExistingFiles() throws IOException {
+        DiskLruCache cache = new DiskLruCache(mDir, 1000);
+        cache.put("a", bytes(100));
+        cache.put("b", bytes(200));
+        new File(mDir, DiskLruCache.fileName("a")).setLastModified(System.currentTimeMillis() - 60 * 1000); // 文件时间精度可能只有秒
+        assertTrue(new File(mDir, "x.1.tmp").createNewFile()); // 上次写到一半的临时文件
+
+        DiskLruCache reopened = new DiskLruCache(mDir, 250);
+        assertEquals(200, reopened.size()); // 超出上限，较早的a被删除
+        assertNull(reopened.get("a"));
+        assertNotNull(reopened.get("b"));
+        assertFalse(new File(mDir, "x.1.tmp").exists());
+    }
+
+    private static ByteArrayInputStream bytes(int length) {
+        return new ByteArrayInputStream(new byte[length]);
+    }
+}
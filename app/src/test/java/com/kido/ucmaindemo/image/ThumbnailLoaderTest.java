@@ -0,0 +1,260 @@
+package com.kido.ucmaindemo.image;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 缩略图加载：缓存层级、请求合并、取消、按可见范围排序、淘汰后复用。用本地文件代替远程图片
+ */
+public class ThumbnailLoaderTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * 测试用的图片：大小就是文件长度
+     */
+    static final class FakeImage {
+        final int size;
+        final boolean reused;
+
+        FakeImage(int size, boolean reused) {
+            this.size = size;
+            this.reused = reused;
+        }
+    }
+
+    private static final class FakeCodec implements ThumbnailLoader.Codec<FakeImage> {
+        @Override
+        public FakeImage decode(File file, int width, int height, ReusePool<FakeImage> pool) {
+            int size = (int) file.length();
+            return new FakeImage(size, pool.take(size) != null);
+        }
+
+        @Override
+        public int sizeOf(FakeImage image) {
+            return image.size;
+        }
+    }
+
+    /**
+     * 读本地文件，可以挡住第一次下载，记录下载顺序
+     */
+    private static final class GatedFetcher implements ThumbnailLoader.Fetcher {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<String> fetched = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public InputStream open(String url) throws IOException {
+            fetched.add(url);
+            started.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new UrlFetcher().open(url);
+        }
+    }
+
+    private static final class Recorder implements ThumbnailLoader.Target<FakeImage> {
+        final CountDownLatch loaded = new CountDownLatch(1);
+        volatile FakeImage image;
+
+        @Override
+        public void onThumbnailLoaded(String url, FakeImage image) {
+            this.image = image;
+            loaded.countDown();
+        }
+
+        FakeImage await() throws InterruptedException {
+            assertTrue(loaded.await(5, TimeUnit.SECONDS));
+            return image;
+        }
+    }
+
+    private File mRoot;
+    private File mSources;
+    private final ThumbnailLoader.Viewport mViewport = new ThumbnailLoader.Viewport();
+    private final List<ThumbnailLoader<FakeImage>> mLoaders = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = File.createTempFile("thumbnails", "");
+        assertTrue(mRoot.delete());
+        mSources = new File(mRoot, "sources");
+        assertTrue(mSources.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        for (ThumbnailLoader<FakeImage> loader : mLoaders) {
+            loader.close();
+        }
+        delete(mRoot);
+    }
+
+    @Test
+    public void loadsThroughCacheLayers() throws Exception {
+        String url = source("a", 100);
+        GatedFetcher fetcher = new GatedFetcher();
+        fetcher.gate.countDown();
+        ThumbnailLoader<FakeImage> loader = newLoader(fetcher, 10000, 1);
+
+        Recorder first = new Recorder();
+        loader.load(url, 80, 60, mViewport, 0, first);
+        assertEquals(100, first.await().size);
+        assertEquals(1, loader.getFetches());
+
+        Recorder second = new Recorder();
+        loader.load(url, 80, 60, mViewport, 0, second);
+        assertEquals(0, second.loaded.getCount()); // 内存命中，同步回调
+        assertSame(first.image, second.image);
+        assertEquals(1, loader.getMemoryHits());
+
+        ThumbnailLoader<FakeImage> restarted = newLoader(fetcher, 10000, 1); // 同一个磁盘缓存
+        Recorder third = new Recorder();
+        restarted.load(url, 80, 60, mViewport, 0, third);
+        assertEquals(100, third.await().size);
+        assertEquals(0, restarted.getFetches());
+        assertEquals(1, restarted.getDiskHits());
+        assertEquals(1, fetcher.fetched.size());
+    }
+
+    @Test
+    public void cancelledRequestIsNotDelivered() throws Exception {
+        String blocker = source("blocker", 10);
+        String url = source("a", 10);
+        GatedFetcher fetcher = new GatedFetcher();
+        ThumbnailLoader<FakeImage> loader = newLoader(fetcher, 10000, 1);
+
+        loader.load(blocker, 80, 60, mViewport, 0, new Recorder());
+        assertTrue(fetcher.started.await(5, TimeUnit.SECONDS)); // 唯一的线程被挡住
+        Recorder cancelled = new Recorder();
+        Recorder kept = new Recorder();
+        loader.load(url, 80, 60, mViewport, 1, cancelled).cancel();
+        assertEquals(0, loader.getPendingCount()); // 没有其它请求，直接出队
+        ThumbnailLoader<FakeImage>.Request request = loader.load(url, 80, 60, mViewport, 1, kept);
+        loader.load(url, 80, 60, mViewport, 2, new Recorder()).cancel(); // 合并到同一次加载后取消其中一个
+        assertEquals(1, loader.getPendingCount());
+        fetcher.gate.countDown();
+
+        kept.await();
+        assertEquals(1, cancelled.loaded.getCount());
+        assertEquals(2, loader.getCancelled());
+        assertEquals(2, fetcher.fetched.size());
+        request.cancel();
+    }
+
+    @Test
+    public void nearestToViewportFirst() throws Exception {
+        String blocker = source("blocker", 10);
+        GatedFetcher fetcher = new GatedFetcher();
+        ThumbnailLoader<FakeImage> loader = newLoader(fetcher, 10000, 1);
+        mViewport.set(0, 3);
+
+        loader.load(blocker, 80, 60, mViewport, 0, new Recorder());
+        assertTrue(fetcher.started.await(5, TimeUnit.SECONDS));
+        Recorder last = new Recorder();
+        String far = source("far", 10);
+        String near = source("near", 10);
+        String middle = source("middle", 10);
+        String behind = source("behind", 10);
+        loader.load(far, 80, 60, mViewport, 50, new Recorder());
+        loader.load(near, 80, 60, mViewport, 5, new Recorder());
+        loader.load(middle, 80, 60, mViewport, 20, new Recorder());
+        loader.load(behind, 80, 60, mViewport, 2, last);
+        mViewport.set(40, 44); // 滚动后，far离得最近
+        fetcher.gate.countDown();
+
+        last.await();
+        assertEquals(5, fetcher.fetched.size());
+        assertEquals(far, fetcher.fetched.get(1));
+        assertEquals(middle, fetcher.fetched.get(2));
+        assertEquals(near, fetcher.fetched.get(3));
+        assertEquals(behind, fetcher.fetched.get(4));
+    }
+
+    @Test
+    public void evictedImagesAreReusedWhenReleased() throws Exception {
+        GatedFetcher fetcher = new GatedFetcher();
+        fetcher.gate.countDown();
+        ThumbnailLoader<FakeImage> loader = newLoader(fetcher, 250, 1); // 只放得下两张
+        ReusePool<FakeImage> pool = mPool;
+
+        Recorder a = new Recorder();
+        ThumbnailLoader<FakeImage>.Request shown = loader.load(source("a", 100), 80, 60, mViewport, 0, a);
+        a.await();
+        Recorder b = new Recorder();
+        ThumbnailLoader<FakeImage>.Request hidden = loader.load(source("b", 100), 80, 60, mViewport, 1, b);
+        b.await();
+        hidden.cancel(); // 已交付的请求取消时释放引用
+        Recorder c = new Recorder();
+        loader.load(source("c", 100), 80, 60, mViewport, 2, c);
+        assertFalse(c.await().reused);
+        assertEquals(0, pool.getBytes()); // a被淘汰，但还在显示，不能复用
+        assertEquals(200, loader.getMemoryBytes());
+
+        shown.cancel(); // 条目回收
+        assertEquals(100, pool.getBytes());
+        Recorder d = new Recorder();
+        loader.load(source("d", 100), 80, 60, mViewport, 3, d);
+        assertTrue(d.await().reused); // 复用了a
+        assertEquals(1, pool.getReuseCount());
+        assertEquals(100, pool.getBytes()); // 放入d时淘汰b，b已没有引用，进入复用池
+    }
+
+    private ReusePool<FakeImage> mPool;
+
+    private ThumbnailLoader<FakeImage> newLoader(ThumbnailLoader.Fetcher fetcher, long memoryBytes, int threads) {
+        FakeCodec codec = new FakeCodec();
+        mPool = new ReusePool<>(codec, 1000);
+        ThumbnailLoader<FakeImage> loader = new ThumbnailLoader<>(fetcher, new DiskLruCache(new File(mRoot, "disk"), 100000),
+                codec, mPool, memoryBytes, DIRECT, threads);
+        mLoaders.add(loader);
+        return loader;
+    }
+
+    /**
+     * @return 本地文件的file:地址，代替远程图片
+     */
+    private String source(String name, int length) throws IOException {
+        File file = new File(mSources, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+        return file.toURI().toString();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,105 @@
+package com.kido.ucmaindemo.memory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 内存释放：各trim级别对应的阶段、按优先级释放的顺序、注销和调试输出
+ */
+public class MemoryCoordinatorTest {
+
+    private final List<String> mTrimmed = new ArrayList<>();
+
+    private MemoryCoordinator.Trimmable component(final String name) {
+        return new MemoryCoordinator.Trimmable() {
+            @Override
+            public void onTrim(int stage) {
+                mTrimmed.add(name + "@" + stage);
+            }
+
+            @Override
+            public String describe() {
+                return name + " held";
+            }
+        };
+    }
+
+    /**
+     * 故意打乱注册顺序
+     */
+    private MemoryCoordinator newCoordinator() {
+        MemoryCoordinator coordinator = new MemoryCoordinator();
+        coordinator.register("data", MemoryCoordinator.PRIORITY_DATA, component("data"));
+        coordinator.register("cache1", MemoryCoordinator.PRIORITY_CACHE, component("cache1"));
+        coordinator.register("pool", MemoryCoordinator.PRIORITY_SPECULATIVE, component("pool"));
+        coordinator.register("cache2", MemoryCoordinator.PRIORITY_CACHE, component("cache2"));
+        return coordinator;
+    }
+
+    @Test
+    public void mapsTrimLevelsToStages() {
+        assertEquals(MemoryCoordinator.STAGE_NONE, MemoryCoordinator.stageFor(0));
+        assertEquals(MemoryCoordinator.STAGE_SPECULATIVE,
+                MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(MemoryCoordinator.STAGE_CACHES, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(MemoryCoordinator.STAGE_ALL, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(MemoryCoordinator.STAGE_CACHES, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(MemoryCoordinator.STAGE_CACHES, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_BACKGROUND));
+        assertEquals(MemoryCoordinator.STAGE_ALL, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_MODERATE));
+        assertEquals(MemoryCoordinator.STAGE_ALL, MemoryCoordinator.stageFor(MemoryCoordinator.TRIM_MEMORY_COMPLETE));
+    }
+
+    @Test
+    public void runningModerateOnlyDropsSpeculative() {
+        MemoryCoordinator coordinator = newCoordinator();
+        assertEquals(MemoryCoordinator.STAGE_SPECULATIVE,
+                coordinator.onTrimMemory(MemoryCoordinator.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(Collections.singletonList("pool@1"), mTrimmed);
+    }
+
+    @Test
+    public void uiHiddenTrimsCachesInPriorityOrder() {
+        MemoryCoordinator coordinator = newCoordinator();
+        coordinator.onTrimMemory(MemoryCoordinator.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(Arrays.asList("pool@2", "cache1@2", "cache2@2"), mTrimmed);
+        assertEquals(MemoryCoordinator.STAGE_CACHES, coordinator.getLastStage());
+    }
+
+    @Test
+    public void lowMemoryTrimsEverything() {
+        MemoryCoordinator coordinator = newCoordinator();
+        coordinator.onLowMemory();
+        assertEquals(Arrays.asList("pool@3", "cache1@3", "cache2@3", "data@3"), mTrimmed);
+    }
+
+    @Test
+    public void ignoresUnknownLowLevels() {
+        MemoryCoordinator coordinator = newCoordinator();
+        assertEquals(MemoryCoordinator.STAGE_NONE, coordinator.onTrimMemory(1));
+        assertTrue(mTrimmed.isEmpty());
+        assertEquals(MemoryCoordinator.STAGE_NONE, coordinator.getLastStage());
+    }
+
+    @Test
+    public void unregisteredComponentsAreSkipped() {
+        MemoryCoordinator coordinator = new MemoryCoordinator();
+        MemoryCoordinator.Trimmable pool = component("pool");
+        coordinator.register("pool", MemoryCoordinator.PRIORITY_SPECULATIVE, pool);
+        coordinator.register("data", MemoryCoordinator.PRIORITY_DATA, component("data"));
+        coordinator.unregister(pool);
+        coordinator.onTrimMemory(MemoryCoordinator.TRIM_MEMORY_COMPLETE);
+        assertEquals(Collections.singletonList("data@3"), mTrimmed);
+    }
+
+    @Test
+    public void dumpListsComponentsInTrimOrder() {
+        assertEquals("1 pool: pool held\n2 cache1: cache1 held\n2 cache2: cache2 held\n3 data: data held",
+                newCoordinator().dump());
+    }
+}
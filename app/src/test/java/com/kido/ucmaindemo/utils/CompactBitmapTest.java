@@ -0,0 +1,47 @@
+package com.kido.ucmaindemo.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 与TreeSet对照，并检查稠密数据下的内存占用
+ */
+public class CompactBitmapTest {
+
+    @Test
+    public void matchesTreeSet() {
+        Random random = new Random(3);
+        CompactBitmap bitmap = new CompactBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 100000; i++) {
+            // 一部分集中在小范围内以触发转为位图，一部分分散（包括负数）
+            int value = random.nextBoolean() ? random.nextInt(20000) - 10000 : random.nextInt();
+            assertEquals(expected.add(value), bitmap.add(value));
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (int i = -10000; i < 10000; i++) {
+            assertEquals(expected.contains(i), bitmap.contains(i));
+        }
+        int[] values = bitmap.toArray();
+        assertEquals(expected.size(), values.length);
+        for (int value : values) {
+            assertTrue(expected.contains(value));
+        }
+    }
+
+    @Test
+    public void millionsOfOrdinalsStayCompact() {
+        CompactBitmap bitmap = new CompactBitmap();
+        int count = 3000000;
+        for (int i = 0; i < count; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(count, bitmap.cardinality());
+        long bytes = bitmap.memoryBytes();
+        assertTrue(bytes < count / 8 + 64 * 1024); // 约1bit/条
+    }
+}
@@ -0,0 +1,34 @@
+package com.kido.ucmaindemo.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 与HashSet对照的随机增删测试
+ */
+public class LongHashSetTest {
+
+    @Test
+    public void matchesHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(5000) - 100; // 包含0和负数，制造大量冲突与删除
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key = -100; key < 4900; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kido.ucmaindemo.widget.listView;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 快速滑动判断：只在fling中进入、按退出阈值离开、拖动或停止立即离开
+ */
+public class ScrollVelocityGateTest {
+
+    private static final long FRAME = 16 * 1000 * 1000L;
+
+    @Test
+    public void entersOnFastFling() {
+        ScrollVelocityGate gate = new ScrollVelocityGate(4000, 2000);
+        assertFalse(gate.onFlingStarted(3000, FRAME));
+        assertFalse(gate.isFast());
+        assertTrue(gate.onFlingStarted(-5000, 2 * FRAME)); // 方向不影响
+        assertTrue(gate.isFast());
+        assertEquals(5000, gate.getVelocity(), 0.01);
+    }
+
+    @Test
+    public void dragIsNeverFast() {
+        ScrollVelocityGate gate = new ScrollVelocityGate(4000, 2000);
+        long now = FRAME;
+        for (int i = 0; i < 20; i++) {
+            assertFalse(gate.onScrolled(200, now += FRAME)); // 12500像素/秒，但不在fling中
+        }
+        assertFalse(gate.isFast());
+    }
+
+    @Test
+    public void estimatesVelocityFromScrollWhenUnknown() {
+        ScrollVelocityGate gate = new ScrollVelocityGate(4000, 2000);
+        long now = FRAME;
+        gate.onFlingStarted(0, now);
+        assertFalse(gate.isFast());
+        boolean changed = false;
+        for (int i = 0; i < 5 && !changed; i++) {
+            changed = gate.onScrolled(160, now += FRAME); // 10000像素/秒
+        }
+        assertTrue(changed);
+        assertTrue(gate.isFast());
+    }
+
+    @Test
+    public void exitsBelowExitVelocityOnly() {
+        ScrollVelocityGate gate = new ScrollVelocityGate(4000, 2000);
+        long now = FRAME;
+        gate.onFlingStarted(8000, now);
+        assertTrue(gate.isFast());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(gate.onScrolled(48, now += FRAME)); // 3000像素/秒，在两个阈值之间保持
+        }
+        assertTrue(gate.isFast());
+        boolean changed = false;
+        for (int i = 0; i < 10 && !changed; i++) {
+            changed = gate.onScrolled(8, now += FRAME); // 500像素/秒
+        }
+        assertTrue(changed);
+        assertFalse(gate.isFast());
+        assertFalse(gate.onScrolled(48, now + FRAME)); // 回到两个阈值之间也不再进入
+    }
+
+    @Test
+    public void stopEndsFastImmediately() {
+        ScrollVelocityGate gate = new ScrollVelocityGate(4000, 2000);
+        gate.onFlingStarted(8000, FRAME);
+        assertTrue(gate.onFlingStopped());
+        assertFalse(gate.isFast());
+        assertEquals(0, gate.getVelocity(), 0);
+        assertFalse(gate.onFlingStopped());
+    }
+}
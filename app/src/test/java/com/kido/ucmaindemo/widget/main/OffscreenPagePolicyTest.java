@@ -0,0 +1,73 @@
+package com.kido.ucmaindemo.widget.main;
+
+import com.kido.ucmaindemo.memory.MemoryCoordinator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 保留页数策略：快速切换且内存充足时扩大，停止后恢复，内存紧张时压低并维持一段时间
+ */
+public class OffscreenPagePolicyTest {
+
+    private static int swipeFast(OffscreenPagePolicy policy, long start, int count, float headroom) {
+        int limit = policy.getLimit();
+        for (int i = 0; i < count; i++) {
+            policy.onPageSwitched(start + i * 400);
+            limit = policy.update(start + i * 400 + 300, headroom);
+        }
+        return limit;
+    }
+
+    @Test
+    public void slowSwitchingKeepsMinimum() {
+        OffscreenPagePolicy policy = new OffscreenPagePolicy();
+        for (int i = 0; i < 5; i++) {
+            policy.onPageSwitched(i * 5000);
+            assertEquals(OffscreenPagePolicy.MIN_LIMIT, policy.update(i * 5000 + 300, 0.9f));
+        }
+    }
+
+    @Test
+    public void fastSwitchingGrowsWithHeadroom() {
+        assertEquals(3, swipeFast(new OffscreenPagePolicy(), 0, 4, 0.9f));
+        assertEquals(2, swipeFast(new OffscreenPagePolicy(), 0, 4, 0.5f));
+        assertEquals(1, swipeFast(new OffscreenPagePolicy(), 0, 4, 0.25f));
+    }
+
+    @Test
+    public void shrinksAfterFastSwitchingStops() {
+        OffscreenPagePolicy policy = new OffscreenPagePolicy();
+        assertEquals(3, swipeFast(policy, 0, 4, 0.9f));
+        policy.onPageSwitched(5000); // 慢了，但离最后一次快速切换不久
+        assertEquals(3, policy.update(5300, 0.9f));
+        policy.onPageSwitched(20000);
+        assertEquals(OffscreenPagePolicy.MIN_LIMIT, policy.update(20300, 0.9f));
+    }
+
+    @Test
+    public void shrinksWhenIdleOnOnePage() {
+        OffscreenPagePolicy policy = new OffscreenPagePolicy();
+        assertEquals(3, swipeFast(policy, 0, 4, 0.9f)); // 最后一次切换在1200
+        assertEquals(3, policy.update(1500 + OffscreenPagePolicy.SHRINK_DELAY_MILLIS / 2, 0.9f));
+        assertEquals(OffscreenPagePolicy.MIN_LIMIT, policy.update(1200 + OffscreenPagePolicy.SHRINK_DELAY_MILLIS, 0.9f));
+    }
+
+    @Test
+    public void trimMemoryCapsForAWhile() {
+        OffscreenPagePolicy policy = new OffscreenPagePolicy();
+        assertEquals(3, swipeFast(policy, 0, 4, 0.9f));
+        assertEquals(2, policy.onTrim(MemoryCoordinator.STAGE_SPECULATIVE, 2000));
+        assertEquals(1, policy.onTrim(MemoryCoordinator.STAGE_CACHES, 2100));
+        assertEquals(1, swipeFast(policy, 3000, 4, 0.9f)); // 维持期内不扩大
+        assertEquals(3, swipeFast(policy, 40000, 4, 0.9f));
+    }
+
+    @Test
+    public void noneStageIsIgnored() {
+        OffscreenPagePolicy policy = new OffscreenPagePolicy();
+        assertEquals(3, swipeFast(policy, 0, 4, 0.9f));
+        assertEquals(3, policy.onTrim(MemoryCoordinator.STAGE_NONE, 2000));
+    }
+}
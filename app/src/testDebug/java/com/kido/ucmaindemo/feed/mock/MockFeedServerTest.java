@@ -0,0 +1,125 @@
+package com.kido.ucmaindemo.feed.mock;
+
+import com.kido.ucmaindemo.feed.FeedClient;
+import com.kido.ucmaindemo.feed.FeedItem;
+import com.kido.ucmaindemo.feed.FeedItemPool;
+import com.kido.ucmaindemo.feed.FeedStreamReader;
+import com.kido.ucmaindemo.feed.SyntheticFeedSource;
+import com.kido.ucmaindemo.image.UrlFetcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 模拟服务与压测模式，不访问外网。
+ */
+public class MockFeedServerTest {
+
+    private static final String[] CHANNELS = {"推荐", "国际", "视频", "游戏", "动漫", "热点", "社会", "广州"};
+    private static final int PAGE_SIZE = 20;
+
+    private MockFeedServer mServer;
+    private FeedClient mClient;
+    private FeedStreamReader mReader;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockFeedServer(CHANNELS).setNewItemsPerRefresh(5);
+        mServer.start();
+        mClient = new FeedClient(mServer.getBaseUrl(), PAGE_SIZE);
+        mReader = new FeedStreamReader(new FeedItemPool(PAGE_SIZE), 10);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void refreshReturnsNewItemsOnTop() throws IOException {
+        List<FeedItem> first = fetch("推荐", 0);
+        List<FeedItem> second = fetch("推荐", 0);
+        assertEquals(PAGE_SIZE, first.size());
+        assertEquals(PAGE_SIZE, second.size());
+        assertEquals(SyntheticFeedSource.makeId("推荐", -10), second.get(0).id);
+        assertEquals(first.get(0).id, second.get(5).id);
+        assertEquals("推荐", second.get(0).channel);
+    }
+
+    @Test
+    public void paginationContinuesAfterFirstPage() throws IOException {
+        List<FeedItem> first = fetch("国际", 0);
+        List<FeedItem> next = fetch("国际", 1);
+        long lastOfFirst = first.get(PAGE_SIZE - 1).id;
+        assertEquals(lastOfFirst + 1, next.get(0).id);
+    }
+
+    @Test
+    public void servesThumbnails() throws IOException {
+        FeedItem withThumbnail = new FeedItem(SyntheticFeedSource.makeId("推荐", 3), "推荐", "", 0);
+        assertNull(mClient.getThumbnailUrl(new FeedItem(SyntheticFeedSource.makeId("推荐", 4), "推荐", "", 0)));
+        String url = mClient.getThumbnailUrl(withThumbnail);
+        assertNotNull(url);
+
+        InputStream in = new UrlFetcher().open(url);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        byte[] bmp = out.toByteArray();
+        assertEquals('B', bmp[0]);
+        assertEquals('M', bmp[1]);
+        assertEquals(54 + MockFeedServer.THUMB_WIDTH * MockFeedServer.THUMB_HEIGHT * 3, bmp.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownChannelFails() throws IOException {
+        fetch("不存在", 0);
+    }
+
+    @Test
+    public void errorRateIsReported() throws InterruptedException {
+        mServer.setErrorRate(1f);
+        FeedLoadRunner.Report report = new FeedLoadRunner(mClient, CHANNELS, 1, 1).run();
+        assertEquals(CHANNELS.length * 2, report.requests);
+        assertEquals(report.requests, report.errors);
+    }
+
+    @Test
+    public void loadTestAllChannels() throws InterruptedException {
+        mServer.setLatency(5, 30);
+        FeedLoadRunner.Report report = new FeedLoadRunner(mClient, CHANNELS, 3, 4).run();
+        assertEquals(CHANNELS.length * 3 * 5, report.requests);
+        assertEquals(0, report.errors);
+        assertEquals((long) report.requests * PAGE_SIZE, report.items);
+        assertEquals(report.requests, mServer.getRequestCount());
+        assertTrue(report.p50Ms >= 5);
+        assertTrue(report.p99Ms >= report.p50Ms);
+    }
+
+    private List<FeedItem> fetch(String channel, int page) throws IOException {
+        final List<FeedItem> items = new ArrayList<>();
+        mClient.fetch(channel, page, mReader, new FeedStreamReader.Sink() {
+            @Override
+            public void onItems(List<FeedItem> batch, boolean complete) {
+                items.addAll(batch);
+            }
+        });
+        return items;
+    }
+}